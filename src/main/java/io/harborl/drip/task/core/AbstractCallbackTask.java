@@ -0,0 +1,53 @@
+package io.harborl.drip.task.core;
+
+import io.harborl.drip.task.core.utils.Exceptions;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A skeleton implementation of {@linkplain CallbackTask}.<br/>
+ * <p/>
+ * It bridges the synchronous {@link #exec()} to the asynchronous 
+ * {@link #exec(Completion)} by waiting the completion, which keeps the task 
+ * workable on a executor that doesn't know the callback contract.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public abstract class AbstractCallbackTask implements CallbackTask {
+
+  /** Executes the task's real works and blocks until it completes. */
+  @Override
+  public final void exec() {
+    final CountDownLatch done = new CountDownLatch(1);
+    final Throwable[] cause = new Throwable[1];
+
+    exec(new Completion() {
+
+      @Override
+      public void succeed() {
+        done.countDown();
+      }
+
+      @Override
+      public void fail(Throwable th) {
+        cause[0] = th;
+        done.countDown();
+      }
+
+    });
+
+    try {
+      done.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting completion", e);
+    }
+
+    // The latch count down happens-before the await returns.
+    if (cause[0] != null) {
+      throw Exceptions.launderThrowable(cause[0]);
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package io.harborl.drip.task.core;
+
+/**
+ * A CallbackTask is a {@linkplain AyncTask} which completes asynchronously.<br/>
+ * <p/>
+ * The {@link #exec(Completion)} only starts the task's real works and 
+ * returns immediately, the outcome is reported later through the given 
+ * {@linkplain Completion}. So the executor doesn't need to hold a worker 
+ * thread during the whole network round-trip.
+ * <p/>
+ * The executor still invokes {@link #onSucceed()} or {@link #onFailure(Throwable)}
+ * once the completion is reported.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface CallbackTask extends AyncTask {
+
+  /** 
+   * Starts the task's real works, and reports the outcome through 
+   * the completion callback. It should never block.
+   */
+  void exec(Completion completion);
+}
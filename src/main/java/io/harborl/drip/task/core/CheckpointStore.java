@@ -0,0 +1,19 @@
+package io.harborl.drip.task.core;
+
+import java.io.IOException;
+
+/**
+ * A CheckpointStore is used to persist the low-watermark position of streams.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface CheckpointStore {
+
+  /** Returns the last stored position of the stream, or the default one if absent. */
+  long load(String stream, long defaultPosition) throws IOException;
+
+  /** Stores the position of the stream atomically. */
+  void store(String stream, long position) throws IOException;
+}
@@ -0,0 +1,306 @@
+package io.harborl.drip.task.core;
+
+import io.harborl.drip.task.core.utils.Logger;
+import io.harborl.drip.task.core.utils.Util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A Checkpointer tracks the completion of a stream's {@linkplain Positioned} tasks
+ * and persists the low-watermark position periodically.<br/>
+ * <p/>
+ * The low-watermark only covers the contiguous completed prefix, namely
+ * every task before it has reported onSucceed() or onFailure(). 
+ * So a restart which resumes from the watermark never misses any task, 
+ * but might re-fetch a few completed ones.
+ * <p/>
+ * A {@linkplain ReadAhead} stream, such as the {@linkplain FairTaskStream}, hands out
+ * the tasks out of the position order, and holds back the others. The watermark
+ * stays below the lowest held position as well, which is published after the released
+ * tasks are tracked by {@link #track(List, TaskStream)}.
+ * <p/>
+ * A {@linkplain TaskChunk} is tracked by its rows, the position of a row is read from 
+ * the chunk's cursor, so the columnar chunk is never materialized for the checkpoint.
+ * <p/>
+ * Completing a task only removes its position from a concurrent set, 
+ * the writes are done on a background thread and coalesced, which only 
+ * stores the latest watermark when it has changed.
+ * <p/>
+ * Usage:
+ * <pre>
+ * Checkpointer checkpointer = Checkpointer.valueOf(store, "email", 5, TimeUnit.SECONDS);
+ * TaskStream stream = JdbcEmailTaskStream.valueOf(ds, query, 1000, 1000, checkpointer.position());
+ * SimpleScheduler.valueOf(stream, executor, period, unit, checkpointer).start();
+ * </pre>
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class Checkpointer {
+
+  private final CheckpointStore store;
+  private final String stream;
+  
+  /** The positions of the submitted tasks which are not completed yet. */
+  private final ConcurrentSkipListSet<Long> pending = new ConcurrentSkipListSet<Long>();
+  
+  /** The background thread which writes the checkpoint. */
+  private final ScheduledExecutorService writer;
+  
+  /** The max position submitted so far, it is only written by the scheduler thread. */
+  private volatile long maxSubmitted;
+
+  /** The lowest position held back by a read-ahead stream, it is only written by the scheduler thread. */
+  private volatile long lowestHeld = Long.MAX_VALUE;
+  
+  /** Guarded by this, the last stored position. */
+  private long stored;
+
+  private Checkpointer(CheckpointStore store, String stream, long position) {
+    this.store = store;
+    this.stream = stream;
+    this.maxSubmitted = position;
+    this.stored = position;
+    this.writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "[Checkpointer] - writer - ");
+        thread.setDaemon(true);
+        return thread;
+      }
+
+    });
+  }
+
+  /**
+   * Creates a checkpointer of the specified stream, it restores the last stored position
+   * and writes the watermark with the specified period.
+   * 
+   * @param store the store used to persist the checkpoint
+   * @param stream the name of stream or shard
+   * @param period the time period to write
+   * @param unit the time unit used to measure the time period
+   * @return returns the created instance
+   * @throws IOException throws when load the last checkpoint failed
+   */
+  public static Checkpointer valueOf(
+      CheckpointStore store, String stream, long period, TimeUnit unit) throws IOException {
+    Util.GuardsNull(store, "store is null");
+    Util.GuardsNull(stream, "stream is null");
+
+    final Checkpointer checkpointer = 
+        new Checkpointer(store, stream, store.load(stream, Long.MIN_VALUE));
+    checkpointer.writer.scheduleWithFixedDelay(new Runnable() {
+
+      @Override
+      public void run() {
+        checkpointer.flush();
+      }
+
+    }, period, period, unit);
+
+    return checkpointer;
+  }
+
+  /** Returns the position restored from the last checkpoint, the stream resumes after it. */
+  public long position() {
+    synchronized (this) {
+      return stored;
+    }
+  }
+
+  /** 
+   * Tracks the specified tasks, which must be invoked in the submission order.
+   * Tasks without position are returned as they are.
+   */
+  public List<AyncTask> track(List<AyncTask> tasks) {
+    List<AyncTask> tracked = new ArrayList<AyncTask>(tasks.size());
+    for (AyncTask task : tasks) {
+      /* The position of a decorated task is the original one's. */
+      final AyncTask original = Tasks.unwrap(task);
+      if (!(original instanceof Positioned)) {
+        tracked.add(task);
+        continue;
+      }
+
+      final Long position = ((Positioned) original).position();
+      /* Adds to pending before publishing the max, see watermark(). */
+      pending.add(position);
+      if (position > maxSubmitted) maxSubmitted = position;
+
+      tracked.add(Tasks.whenComplete(task, new Completion() {
+
+        @Override
+        public void succeed() {
+          pending.remove(position);
+        }
+
+        @Override
+        public void fail(Throwable th) {
+          pending.remove(position);
+        }
+
+      }));
+    }
+    return tracked;
+  }
+
+  /**
+   * Tracks the specified tasks fetched from the stream, just like {@link #track(List)}, 
+   * and then keeps the watermark below the tasks the stream still holds if it reads ahead.
+   */
+  public List<AyncTask> track(List<AyncTask> tasks, TaskStream stream) {
+    List<AyncTask> tracked = track(tasks);
+    /* Publishes the held position after the released tasks are pending, 
+     * see watermark(), it never decreases since the stream is in the position order. */
+    if (stream instanceof ReadAhead) lowestHeld = ((ReadAhead) stream).lowestHeldPosition();
+    return tracked;
+  }
+
+  /** 
+   * Tracks the rows of the specified chunk, which must be invoked in the submission order.
+   * Rows without position are not tracked.
+   */
+  public TaskChunk track(TaskChunk chunk) {
+    Util.GuardsNull(chunk, "chunk is null");
+
+    final ChunkCursor cursor = Tasks.unwrap(chunk.cursor());
+    if (!(cursor instanceof Positioned)) return chunk;
+
+    final int size = chunk.size();
+    for (int row = 0; row < size; ++row) {
+      final long position = ((Positioned) cursor.moveTo(row)).position();
+      /* Adds to pending before publishing the max, see watermark(). */
+      pending.add(position);
+      if (position > maxSubmitted) maxSubmitted = position;
+    }
+    return new CheckpointedChunk(chunk);
+  }
+
+  /**
+   * Tracks the rows of the specified chunk fetched from the stream, just like {@link #track(TaskChunk)}, 
+   * and then keeps the watermark below the tasks the stream still holds if it reads ahead.
+   */
+  public TaskChunk track(TaskChunk chunk, TaskStream stream) {
+    TaskChunk tracked = track(chunk);
+    if (stream instanceof ReadAhead) lowestHeld = ((ReadAhead) stream).lowestHeldPosition();
+    return tracked;
+  }
+
+  /** Returns the current low-watermark position. */
+  long watermark() {
+    /* Reads the held position first, the released tasks have been pending 
+     * before it moves past them. */
+    final long held = lowestHeld;
+    /* Reads the max before the pending set, a task which is submitted in between
+     * can only make the watermark lower, never higher. */
+    long max = maxSubmitted;
+    Long first = pending.isEmpty() ? null : pending.first();
+    long watermark = first == null ? max : Math.min(max, first - 1);
+    return held == Long.MAX_VALUE ? watermark : Math.min(watermark, held - 1);
+  }
+
+  /** Stores the watermark if it has advanced. */
+  synchronized void flush() {
+    long watermark = watermark();
+    if (watermark <= stored) return;
+
+    try {
+      store.store(stream, watermark);
+      stored = watermark;
+    } catch (Throwable t) {
+      Logger.err.println("[Checkpointer] [ERROR] - store checkpoint failed - " + stream + " - " + t);
+    }
+  }
+
+  /** Stops the background writer and stores the final watermark. */
+  public void close() {
+    writer.shutdown();
+    try {
+      writer.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+  }
+
+  @Override
+  public String toString() {
+    return "[Checkpointer] " + stream + " - watermark: " + watermark() + ", stored: " + position();
+  }
+
+  /** A forwarding chunk whose rows leave the pending positions when they complete. */
+  private final class CheckpointedChunk implements TaskChunk {
+    final TaskChunk chunk;
+
+    CheckpointedChunk(TaskChunk chunk) {
+      this.chunk = chunk;
+    }
+
+    @Override
+    public int size() {
+      return chunk.size();
+    }
+
+    @Override
+    public ChunkCursor cursor() {
+      return new CheckpointedCursor(chunk.cursor());
+    }
+
+    @Override
+    public AyncTask task(int row) {
+      final Long position = ((Positioned) Tasks.unwrap(chunk.cursor()).moveTo(row)).position();
+      return Tasks.whenComplete(chunk.task(row), new Completion() {
+
+        @Override
+        public void succeed() {
+          pending.remove(position);
+        }
+
+        @Override
+        public void fail(Throwable th) {
+          pending.remove(position);
+        }
+
+      });
+    }
+  }
+
+  /** 
+   * A forwarding cursor which removes the position of current row when it completes,
+   * the removal is idempotent, so a onFailure() following a throwing onSucceed() is harmless.
+   */
+  private final class CheckpointedCursor extends Tasks.ForwardingCursor {
+
+    CheckpointedCursor(ChunkCursor cursor) {
+      super(cursor);
+    }
+
+    @Override
+    public void onFailure(Throwable th) {
+      try {
+        delegate.onFailure(th);
+      } finally {
+        pending.remove(((Positioned) Tasks.unwrap(delegate)).position());
+      }
+    }
+
+    @Override
+    public void onSucceed() {
+      try {
+        delegate.onSucceed();
+      } finally {
+        pending.remove(((Positioned) Tasks.unwrap(delegate)).position());
+      }
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package io.harborl.drip.task.core;
+
+/**
+ * A ChunkCursor is a flyweight view of a row of {@linkplain TaskChunk}, which acts
+ * as the task of current row. It can be moved over the rows, so one cursor is
+ * enough to run a whole range of rows.<br/>
+ * <strong><tt>Note:</tt></strong> It is not thread-safe.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface ChunkCursor {
+
+  /** Moves to the row, returns this cursor. */
+  ChunkCursor moveTo(int row);
+
+  /** Returns the current row. */
+  int row();
+
+  /** Executes the task of current row, see {@link AyncTask#exec()}. */
+  void exec();
+
+  /** Invoked when the task of current row fails, see {@link AyncTask#onFailure(Throwable)}. */
+  void onFailure(Throwable th);
+
+  /** Invoked when the task of current row succeeds, see {@link AyncTask#onSucceed()}. */
+  void onSucceed();
+
+  /** Returns the name of current row's task. */
+  String name();
+}
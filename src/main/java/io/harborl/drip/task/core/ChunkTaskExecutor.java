@@ -0,0 +1,17 @@
+package io.harborl.drip.task.core;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A task executor which is able to run a {@linkplain TaskChunk} in ranges of rows
+ * through the cursors, without materializing the tasks.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface ChunkTaskExecutor extends TaskExecutor {
+
+  /** Submits the chunk to execute, the latch counts down once per row when it completes. */
+  void submit(TaskChunk chunk, CountDownLatch latch);
+}
@@ -0,0 +1,15 @@
+package io.harborl.drip.task.core;
+
+/**
+ * A task stream which is able to return the chunks in the compact {@linkplain TaskChunk} form.<br/>
+ * Its {@link #nextChunk()} returns the next chunk materialized, for the legacy paths.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface ChunkTaskStream extends TaskStream {
+
+  /** Returns the next chunk in the compact form. */
+  TaskChunk nextTaskChunk();
+}
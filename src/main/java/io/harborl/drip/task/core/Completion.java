@@ -0,0 +1,22 @@
+package io.harborl.drip.task.core;
+
+/**
+ * A Completion is the callback handed to a {@linkplain CallbackTask}
+ * which is used to report the outcome of an asynchronous execution.<br/>
+ * <p/>
+ * Only the first call takes effect, the later ones are ignored, 
+ * so it is safe to be invoked from any thread, for example, 
+ * the I/O thread of a non-blocking client.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface Completion {
+
+  /** Reports the execution completes successfully. */
+  void succeed();
+
+  /** Reports the execution failed with the specified cause. */
+  void fail(Throwable th);
+}
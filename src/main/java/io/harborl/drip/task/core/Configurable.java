@@ -0,0 +1,33 @@
+package io.harborl.drip.task.core;
+
+import java.util.Map;
+
+/**
+ * A {@code Configurable} instance is able to change its settings at runtime.<br/>
+ * <p/>
+ * The settings are named by text keys and their values are text, too. 
+ * The new values take effect at the next round rather than interrupting the 
+ * works in processing.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface Configurable {
+
+  /** Returns the value of the setting, or null if the key is unknown. */
+  String get(String key);
+
+  /**
+   * Changes the value of the setting.
+   * 
+   * @param key the setting key
+   * @param value the new value
+   * @return returns false if the key is unknown
+   * @throws IllegalArgumentException throws when the value is invalid
+   */
+  boolean set(String key, String value);
+
+  /** Returns all of the settings with their current values. */
+  Map<String, String> settings();
+}
@@ -0,0 +1,165 @@
+package io.harborl.drip.task.core;
+
+import io.harborl.drip.task.core.utils.Util;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * A cron-like {@linkplain Trigger}, which fires at the minutes matching the expression.<br/>
+ * <p/>
+ * The expression has five fields separated by spaces:
+ * <pre>
+ * minute (0-59)  hour (0-23)  day of month (1-31)  month (1-12)  day of week (0-7, 0 or 7 is Sunday)
+ * </pre>
+ * A field is a {@code *}, a value, a range {@code a-b}, or a list of them separated by commas,
+ * each of which might be followed by a step {@code /n}, e.g. {@code *}{@code /5 9-18 * * 1-5}
+ * fires every 5 minutes in the office hours of weekdays.
+ * <p/>
+ * As the standard cron, if both day fields are restricted, a day matching either of them fires.
+ * The round which takes longer than the interval skips the missed fire times.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class CronTrigger implements Trigger {
+
+  /** The max years to search the next fire time, which rejects the impossible dates such as Feb 30. */
+  private static final int MAX_SEARCH_YEARS = 8;
+
+  private final String expression;
+  private final TimeZone zone;
+  private final long minutes;
+  private final long hours;
+  private final long daysOfMonth;
+  private final long months;
+  private final long daysOfWeek;
+  private final boolean anyDayOfMonth;
+  private final boolean anyDayOfWeek;
+
+  private CronTrigger(String expression, TimeZone zone, String[] fields) {
+    this.expression = expression;
+    this.zone = zone;
+    this.minutes = parse(fields[0], 0, 59);
+    this.hours = parse(fields[1], 0, 23);
+    this.daysOfMonth = parse(fields[2], 1, 31);
+    this.months = parse(fields[3], 1, 12);
+    long days = parse(fields[4], 0, 7);
+    /* Both 0 and 7 are Sunday. */
+    if ((days & (1L << 7)) != 0) days |= 1L;
+    this.daysOfWeek = days;
+    this.anyDayOfMonth = fields[2].startsWith("*");
+    this.anyDayOfWeek = fields[4].startsWith("*");
+  }
+
+  /** Creates a trigger of the expression in the default time zone. */
+  public static CronTrigger valueOf(String expression) {
+    return valueOf(expression, TimeZone.getDefault());
+  }
+
+  /** Creates a trigger of the expression in the specified time zone. */
+  public static CronTrigger valueOf(String expression, TimeZone zone) {
+    Util.GuardsNull(expression, "expression is null");
+    Util.GuardsNull(zone, "zone is null");
+
+    final String[] fields = expression.trim().split("\\s+");
+    if (fields.length != 5) throw new IllegalArgumentException("Cron needs 5 fields - " + expression);
+
+    CronTrigger trigger = new CronTrigger(expression, zone, fields);
+    /* Fails fast if it never fires. */
+    trigger.next(System.currentTimeMillis());
+    return trigger;
+  }
+
+  /** Parses a field to a bit set of its values. */
+  private static long parse(String field, int min, int max) {
+    long bits = 0;
+    for (String part : field.split(",")) {
+      int step = 1;
+      final int slash = part.indexOf('/');
+      if (slash >= 0) {
+        step = number(part.substring(slash + 1), 1, max);
+        part = part.substring(0, slash);
+      }
+
+      int from;
+      int to;
+      if ("*".equals(part)) {
+        from = min;
+        to = max;
+      } else {
+        final int dash = part.indexOf('-');
+        from = number(dash < 0 ? part : part.substring(0, dash), min, max);
+        to = dash < 0 ? (slash >= 0 ? max : from) : number(part.substring(dash + 1), min, max);
+        if (to < from) throw new IllegalArgumentException("Bad cron range - " + part);
+      }
+
+      for (int value = from; value <= to; value += step) {
+        bits |= 1L << value;
+      }
+    }
+    return bits;
+  }
+
+  private static int number(String value, int min, int max) {
+    final int number;
+    try {
+      number = Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Bad cron value - " + value);
+    }
+    if (number < min || number > max) {
+      throw new IllegalArgumentException("Cron value out of range [" + min + ", " + max + "] - " + value);
+    }
+    return number;
+  }
+
+  private static boolean has(long bits, int value) {
+    return (bits & (1L << value)) != 0;
+  }
+
+  private boolean dayMatches(Calendar time) {
+    final boolean dayOfMonth = has(daysOfMonth, time.get(Calendar.DAY_OF_MONTH));
+    final boolean dayOfWeek = has(daysOfWeek, time.get(Calendar.DAY_OF_WEEK) - 1);
+    if (anyDayOfMonth || anyDayOfWeek) return dayOfMonth && dayOfWeek;
+    return dayOfMonth || dayOfWeek;
+  }
+
+  /** Returns the first fire time after now, rounds which overran the fire times skip them. */
+  @Override
+  public long next(long roundStartMillis) {
+    Calendar time = Calendar.getInstance(zone);
+    time.setTimeInMillis(Math.max(roundStartMillis, System.currentTimeMillis()));
+    time.set(Calendar.SECOND, 0);
+    time.set(Calendar.MILLISECOND, 0);
+    time.add(Calendar.MINUTE, 1);
+
+    final int lastYear = time.get(Calendar.YEAR) + MAX_SEARCH_YEARS;
+    while (time.get(Calendar.YEAR) <= lastYear) {
+      if (!has(months, time.get(Calendar.MONTH) + 1)) {
+        time.add(Calendar.MONTH, 1);
+        time.set(Calendar.DAY_OF_MONTH, 1);
+        time.set(Calendar.HOUR_OF_DAY, 0);
+        time.set(Calendar.MINUTE, 0);
+      } else if (!dayMatches(time)) {
+        time.add(Calendar.DAY_OF_MONTH, 1);
+        time.set(Calendar.HOUR_OF_DAY, 0);
+        time.set(Calendar.MINUTE, 0);
+      } else if (!has(hours, time.get(Calendar.HOUR_OF_DAY))) {
+        time.add(Calendar.HOUR_OF_DAY, 1);
+        time.set(Calendar.MINUTE, 0);
+      } else if (!has(minutes, time.get(Calendar.MINUTE))) {
+        time.add(Calendar.MINUTE, 1);
+      } else {
+        return time.getTimeInMillis();
+      }
+    }
+    throw new IllegalArgumentException("Cron never fires - " + expression);
+  }
+
+  @Override
+  public String toString() {
+    return "cron '" + expression + "'";
+  }
+}
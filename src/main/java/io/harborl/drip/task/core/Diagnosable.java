@@ -0,0 +1,15 @@
+package io.harborl.drip.task.core;
+
+/**
+ * A {@code Diagnosable} instance is able to report its long-running tasks,
+ * which is used to find the stuck worker threads at runtime.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface Diagnosable {
+
+  /** Returns the report of the long-running tasks and their sampled stacks. */
+  String threads();
+}
@@ -0,0 +1,243 @@
+package io.harborl.drip.task.core;
+
+import io.harborl.drip.task.core.utils.Settings;
+import io.harborl.drip.task.core.utils.Util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A task stream decorator, which shares the chunks across tenants by weighted 
+ * deficit round-robin.<br/>
+ * <p/>
+ * The tasks fetched from the underlying stream are buffered in a sub-queue per tenant
+ * ({@linkplain Tenanted}, the others go to the default tenant). Each chunk is taken 
+ * from the active tenants in turn, a tenant's turn grants it {@code quantum * weight} 
+ * tasks, and a partially used turn carries its deficit over to the next chunk. 
+ * So a tenant with a huge campaign can't starve the small ones. 
+ * Both enqueue and dequeue are O(1).
+ * <p/>
+ * The underlying stream is read ahead up to {@code fair.lookahead} buffered tasks, 
+ * the fairness only covers the tenants within the buffer. As a {@linkplain ReadAhead} stream,
+ * it reports the lowest position of the buffered {@linkplain Positioned} tasks, so the 
+ * {@linkplain Checkpointer} never skips a task held back for the other tenants.
+ * <p/>
+ * Settings: {@code fair.chunk.size}, {@code fair.lookahead}, {@code fair.quantum} and 
+ * {@code weight.$tenant} (default 1), the others are delegated to the underlying stream.
+ * <p/>
+ * <strong><tt>Note:</tt></strong> The {@link #nextChunk()} is not thread-safe, which is 
+ * expected to be driven by the single thread scheduler.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class FairTaskStream implements TaskStream, Configurable, Closeable, ReadAhead {
+
+  /** The tenant of the tasks which don't have one. */
+  public static final String DEFAULT_TENANT = "default";
+
+  private static final String WEIGHT_PREFIX = "weight.";
+  private static final int MAX_WEIGHT = 1000000;
+
+  private final TaskStream underlying;
+  private final Map<String, Integer> weights = new ConcurrentHashMap<String, Integer>();
+  
+  /** The settings which can be changed at runtime. */
+  private volatile int chunkSize;
+  private volatile int lookahead;
+  private volatile int quantum;
+  
+  /** The non-empty sub-queues by tenant, and the same ones in the round-robin order. */
+  private final Map<String, TenantQueue> queues = new HashMap<String, TenantQueue>();
+  private final ArrayDeque<TenantQueue> active = new ArrayDeque<TenantQueue>();
+  private int buffered;
+
+  private FairTaskStream(TaskStream underlying, int chunkSize, int lookahead, int quantum) {
+    this.underlying = underlying;
+    this.chunkSize = chunkSize;
+    this.lookahead = lookahead;
+    this.quantum = quantum;
+  }
+
+  /**
+   * Creates a fair stream.
+   * 
+   * @param underlying the stream to fetch the tasks
+   * @param chunkSize the max size of a chunk
+   * @param lookahead the max count of buffered tasks to read ahead, not less than the chunk size
+   * @param quantum the tasks granted to a tenant of weight 1 per turn
+   * @return returns the created instance
+   */
+  public static FairTaskStream valueOf(TaskStream underlying, int chunkSize, int lookahead, int quantum) {
+    Util.GuardsNull(underlying, "underlying is null");
+    if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive");
+    if (lookahead < chunkSize) throw new IllegalArgumentException("lookahead must not be less than chunkSize");
+    if (quantum <= 0) throw new IllegalArgumentException("quantum must be positive");
+
+    return new FairTaskStream(underlying, chunkSize, lookahead, quantum);
+  }
+
+  /** Sets the weight of a tenant, returns this stream. */
+  public FairTaskStream weight(String tenant, int weight) {
+    Util.GuardsNull(tenant, "tenant is null");
+    if (weight <= 0 || weight > MAX_WEIGHT) 
+      throw new IllegalArgumentException("weight must be in [1, " + MAX_WEIGHT + "]");
+
+    weights.put(tenant, weight);
+    return this;
+  }
+
+  @Override
+  public List<AyncTask> nextChunk() {
+    fill();
+
+    final int size = Math.min(chunkSize, buffered);
+    List<AyncTask> chunk = new ArrayList<AyncTask>(size);
+    while (chunk.size() < size) {
+      TenantQueue queue = active.peekFirst();
+      if (!queue.inTurn) {
+        Integer weight = weights.get(queue.tenant);
+        queue.deficit += (long) quantum * (weight == null ? 1 : weight);
+        queue.inTurn = true;
+      }
+
+      while (queue.deficit > 0 && !queue.tasks.isEmpty() && chunk.size() < size) {
+        chunk.add(queue.tasks.pollFirst());
+        --queue.deficit;
+      }
+
+      if (queue.tasks.isEmpty()) {
+        /* An idle tenant leaves, which doesn't save up its deficit. */
+        active.pollFirst();
+        queues.remove(queue.tenant);
+      } else if (queue.deficit == 0) {
+        active.addLast(active.pollFirst());
+        queue.inTurn = false;
+      }
+    }
+
+    buffered -= chunk.size();
+    return chunk;
+  }
+
+  /** Reads ahead the underlying stream until the buffer reaches the lookahead. */
+  private void fill() {
+    while (buffered < lookahead) {
+      List<AyncTask> tasks = underlying.nextChunk();
+      if (tasks == null || tasks.isEmpty()) return;
+
+      for (AyncTask task : tasks) {
+        enqueue(task);
+      }
+    }
+  }
+
+  /** Appends the task to its tenant's queue. */
+  private void enqueue(AyncTask task) {
+    final AyncTask original = Tasks.unwrap(task);
+    String tenant = original instanceof Tenanted ? ((Tenanted) original).tenant() : null;
+    if (tenant == null) tenant = DEFAULT_TENANT;
+
+    TenantQueue queue = queues.get(tenant);
+    if (queue == null) {
+      queue = new TenantQueue(tenant);
+      queues.put(tenant, queue);
+      active.addLast(queue);
+    }
+    queue.tasks.addLast(task);
+    ++buffered;
+  }
+
+  /** 
+   * Returns the lowest position of the buffered tasks, which is the lowest position of 
+   * the sub-queues' first positioned tasks, since a sub-queue keeps the stream order.
+   */
+  @Override
+  public long lowestHeldPosition() {
+    long lowest = Long.MAX_VALUE;
+    for (TenantQueue queue : active) {
+      for (AyncTask task : queue.tasks) {
+        final AyncTask original = Tasks.unwrap(task);
+        if (original instanceof Positioned) {
+          lowest = Math.min(lowest, ((Positioned) original).position());
+          break;
+        }
+      }
+    }
+    return lowest;
+  }
+
+  /** Closes the underlying stream if it is closeable. */
+  @Override
+  public void close() throws IOException {
+    if (underlying instanceof Closeable) ((Closeable) underlying).close();
+  }
+
+  @Override
+  public String get(String key) {
+    if ("fair.chunk.size".equals(key)) {
+      return String.valueOf(chunkSize);
+    } else if ("fair.lookahead".equals(key)) {
+      return String.valueOf(lookahead);
+    } else if ("fair.quantum".equals(key)) {
+      return String.valueOf(quantum);
+    } else if (key != null && key.startsWith(WEIGHT_PREFIX)) {
+      Integer weight = weights.get(key.substring(WEIGHT_PREFIX.length()));
+      return String.valueOf(weight == null ? 1 : weight);
+    }
+    return underlying instanceof Configurable ? ((Configurable) underlying).get(key) : null;
+  }
+
+  @Override
+  public boolean set(String key, String value) {
+    if ("fair.chunk.size".equals(key)) {
+      chunkSize = Settings.intIn(key, value, 1, lookahead);
+      return true;
+    } else if ("fair.lookahead".equals(key)) {
+      lookahead = Settings.intIn(key, value, chunkSize, Integer.MAX_VALUE);
+      return true;
+    } else if ("fair.quantum".equals(key)) {
+      quantum = Settings.intIn(key, value, 1, Integer.MAX_VALUE);
+      return true;
+    } else if (key != null && key.startsWith(WEIGHT_PREFIX) && key.length() > WEIGHT_PREFIX.length()) {
+      weights.put(key.substring(WEIGHT_PREFIX.length()), Settings.intIn(key, value, 1, MAX_WEIGHT));
+      return true;
+    }
+    return underlying instanceof Configurable && ((Configurable) underlying).set(key, value);
+  }
+
+  @Override
+  public Map<String, String> settings() {
+    Map<String, String> settings = new LinkedHashMap<String, String>();
+    settings.put("fair.chunk.size", String.valueOf(chunkSize));
+    settings.put("fair.lookahead", String.valueOf(lookahead));
+    settings.put("fair.quantum", String.valueOf(quantum));
+    for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+      settings.put(WEIGHT_PREFIX + weight.getKey(), String.valueOf(weight.getValue()));
+    }
+    if (underlying instanceof Configurable) {
+      settings.putAll(((Configurable) underlying).settings());
+    }
+    return settings;
+  }
+
+  /** The sub-queue of a tenant. */
+  private static final class TenantQueue {
+    final String tenant;
+    final ArrayDeque<AyncTask> tasks = new ArrayDeque<AyncTask>();
+    long deficit;
+    boolean inTurn;
+
+    TenantQueue(String tenant) {
+      this.tenant = tenant;
+    }
+  }
+}
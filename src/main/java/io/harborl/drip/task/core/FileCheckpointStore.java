@@ -0,0 +1,71 @@
+package io.harborl.drip.task.core;
+
+import io.harborl.drip.task.core.utils.Util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * A properties file based {@linkplain CheckpointStore} implementation.<br/>
+ * <p/>
+ * All of streams share one file, the store writes a temporary file aside, 
+ * syncs it to the disk and then renames it to the target, so a crash never 
+ * leaves a partial checkpoint.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class FileCheckpointStore implements CheckpointStore {
+
+  private final File file;
+  
+  /** Guarded by this, the positions of all streams. */
+  private final Properties positions = new Properties();
+
+  private FileCheckpointStore(File file) {
+    this.file = file;
+  }
+
+  /** Creates a store backed by the specified file, loads the positions if it exists. */
+  public static FileCheckpointStore valueOf(File file) throws IOException {
+    Util.GuardsNull(file, "file is null");
+    FileCheckpointStore store = new FileCheckpointStore(file);
+    if (file.exists()) {
+      FileInputStream in = new FileInputStream(file);
+      try {
+        store.positions.load(in);
+      } finally {
+        in.close();
+      }
+    }
+    return store;
+  }
+
+  @Override
+  public synchronized long load(String stream, long defaultPosition) {
+    String position = positions.getProperty(stream);
+    return position == null ? defaultPosition : Long.parseLong(position);
+  }
+
+  @Override
+  public synchronized void store(String stream, long position) throws IOException {
+    positions.setProperty(stream, String.valueOf(position));
+
+    File temp = new File(file.getPath() + ".tmp");
+    FileOutputStream out = new FileOutputStream(temp);
+    try {
+      positions.store(out, "Drip task stream checkpoints");
+      out.getFD().sync();
+    } finally {
+      out.close();
+    }
+
+    if (!temp.renameTo(file)) {
+      throw new IOException("Rename checkpoint file failed - " + temp);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package io.harborl.drip.task.core;
+
+import io.harborl.drip.task.core.utils.Util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * An {@linkplain OutcomeSink} which appends a tab separated line per outcome to a file:
+ * <pre>
+ * time-millis  id  name  tenant  SUCCEEDED|FAILED  failure
+ * </pre>
+ * The missing fields are empty, a batch is flushed with one write.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class FileOutcomeSink implements OutcomeSink, Closeable {
+
+  private final Writer writer;
+
+  private FileOutcomeSink(Writer writer) {
+    this.writer = writer;
+  }
+
+  /** Creates a sink which appends to the specified file. */
+  public static FileOutcomeSink valueOf(File file) throws IOException {
+    Util.GuardsNull(file, "file is null");
+    return new FileOutcomeSink(new BufferedWriter(
+        new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"), 64 * 1024));
+  }
+
+  @Override
+  public void write(List<Outcome> outcomes) throws IOException {
+    StringBuilder line = new StringBuilder(128);
+    for (Outcome outcome : outcomes) {
+      line.setLength(0);
+      line.append(outcome.timeMillis()).append('\t')
+          .append(outcome.id() == Outcome.NO_ID ? "" : String.valueOf(outcome.id())).append('\t')
+          .append(field(outcome.name())).append('\t')
+          .append(field(outcome.tenant())).append('\t')
+          .append(outcome.succeeded() ? "SUCCEEDED" : "FAILED").append('\t')
+          .append(field(outcome.failure())).append('\n');
+      writer.write(line.toString());
+    }
+    writer.flush();
+  }
+
+  /** Returns the field without the separators, or empty if it's null. */
+  private static String field(String value) {
+    return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+  }
+
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+}
@@ -0,0 +1,149 @@
+package io.harborl.drip.task.core;
+
+/**
+ * A gradient based adaptive concurrency limit, which is driven by the measured task latency.<br/>
+ * <p/>
+ * It keeps a long term latency average as the baseline and a short term one as 
+ * the current latency, the gradient is the ratio of them:
+ * <ul>
+ *   <li>While the latency stays within the tolerance, the gradient is 1 and the limit grows 
+ *   by a queue size of {@code sqrt(limit)}.</li>
+ *   <li>When the latency rises beyond the tolerance, the gradient drops below 1 
+ *   and the limit backs off proportionally, without the queue allowance, so even 
+ *   a small limit backs off on a moderate rise.</li>
+ * </ul>
+ * The in-use count of a sample must only cover the running tasks and the callbacks in flight,
+ * not the queued ones, which are not limited. The limit doesn't grow when less than half of it 
+ * is in use, because the latency of an application-limited load tells nothing about 
+ * the downstream capacity.
+ * <p/>
+ * It is thread-safe.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class GradientConcurrencyLimit {
+
+  /** The latency ratio tolerated before backing off. */
+  private static final double TOLERANCE = 1.5;
+  
+  /** The weight of a new limit, which smooths the limit changes. */
+  private static final double SMOOTHING = 0.2;
+  
+  /** The sample windows of the long term and short term latency averages. */
+  private static final int LONG_WINDOW = 600;
+  private static final int SHORT_WINDOW = 10;
+
+  /** Guarded by this. */
+  private int minLimit;
+  private int maxLimit;
+  private double limit;
+  private double longRtt;
+  private double shortRtt;
+  private long samples;
+
+  private GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+    this.limit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+  }
+
+  /**
+   * Creates a limit within the specified bounds.
+   * 
+   * @param initialLimit the limit to start with
+   * @param minLimit the lower bound of the limit
+   * @param maxLimit the upper bound of the limit
+   * @return returns the created instance
+   */
+  public static GradientConcurrencyLimit valueOf(int initialLimit, int minLimit, int maxLimit) {
+    if (minLimit <= 0) throw new IllegalArgumentException("minLimit must be positive");
+    if (maxLimit < minLimit) throw new IllegalArgumentException("maxLimit must not be less than minLimit");
+    if (initialLimit < minLimit || initialLimit > maxLimit) 
+      throw new IllegalArgumentException("initialLimit must be in [minLimit, maxLimit]");
+
+    return new GradientConcurrencyLimit(initialLimit, minLimit, maxLimit);
+  }
+
+  /**
+   * Updates the limit with a latency sample.
+   * 
+   * @param rttNanos the measured latency of a task in nanoseconds
+   * @param inFlight the count of tasks running or waiting for their callbacks when the sample is taken
+   * @return returns the updated limit
+   */
+  public synchronized int onSample(long rttNanos, int inFlight) {
+    final double rtt = Math.max(1, rttNanos);
+    ++samples;
+
+    if (samples == 1) {
+      longRtt = rtt;
+      shortRtt = rtt;
+      return limit();
+    }
+
+    /* Warms up the long term average with a faster window. */
+    final long longWindow = Math.min(samples, LONG_WINDOW);
+    longRtt += (rtt - longRtt) / longWindow;
+    shortRtt += (rtt - shortRtt) / SHORT_WINDOW;
+
+    /* After a long lasting latency rise, the baseline drifts up slowly, 
+     * makes it recover faster once the latency comes back. */
+    if (longRtt / shortRtt > 2) {
+      longRtt *= 0.95;
+    }
+
+    if (inFlight < limit / 2) {
+      return limit();
+    }
+
+    final double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+    /* The queue allowance only applies while the latency is tolerable, 
+     * otherwise sqrt(limit) outweighs the back-off of a small limit. */
+    final double queue = gradient < 1.0 ? 0 : Math.sqrt(limit);
+    final double newLimit = limit * gradient + queue;
+    limit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+    limit = Math.max(minLimit, Math.min(maxLimit, limit));
+
+    return limit();
+  }
+
+  /** Returns the current limit. */
+  public synchronized int limit() {
+    return (int) limit;
+  }
+
+  /** Returns the lower bound of the limit. */
+  public synchronized int minLimit() {
+    return minLimit;
+  }
+
+  /** Returns the upper bound of the limit. */
+  public synchronized int maxLimit() {
+    return maxLimit;
+  }
+
+  /** 
+   * Changes the bounds of the limit, the current limit is clamped into them.
+   * 
+   * @param minLimit the lower bound of the limit
+   * @param maxLimit the upper bound of the limit
+   * @return returns the updated limit
+   */
+  public synchronized int bounds(int minLimit, int maxLimit) {
+    if (minLimit <= 0) throw new IllegalArgumentException("minLimit must be positive");
+    if (maxLimit < minLimit) throw new IllegalArgumentException("maxLimit must not be less than minLimit");
+
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = Math.max(minLimit, Math.min(maxLimit, limit));
+    return limit();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("limit: %d [%d, %d], rtt long/short: %.2f/%.2f ms", 
+        (int) limit, minLimit, maxLimit, longRtt / 1e6, shortRtt / 1e6);
+  }
+}
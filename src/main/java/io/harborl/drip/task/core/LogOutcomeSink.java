@@ -0,0 +1,31 @@
+package io.harborl.drip.task.core;
+
+import io.harborl.drip.task.core.utils.Logger;
+
+import java.util.List;
+
+/**
+ * An {@linkplain OutcomeSink} which logs a summary line per batch, and a line per failed task.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class LogOutcomeSink implements OutcomeSink {
+
+  public static final LogOutcomeSink INSTANCE = new LogOutcomeSink();
+
+  private LogOutcomeSink() { }
+
+  @Override
+  public void write(List<Outcome> outcomes) {
+    int failed = 0;
+    for (Outcome outcome : outcomes) {
+      if (outcome.succeeded()) continue;
+
+      ++failed;
+      Logger.err.println("[Outcome] " + outcome);
+    }
+    Logger.out.println("[Outcome] " + (outcomes.size() - failed) + " succeeded, " + failed + " failed.");
+  }
+}
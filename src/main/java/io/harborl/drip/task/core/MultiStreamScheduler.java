@@ -0,0 +1,472 @@
+package io.harborl.drip.task.core;
+
+import io.harborl.drip.task.core.utils.Logger;
+import io.harborl.drip.task.core.utils.Settings;
+import io.harborl.drip.task.core.utils.Util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A scheduler which runs many named {@linkplain TaskStream}s on one shared {@linkplain TaskExecutor}.<br/>
+ * <p/>
+ * Every stream has its own {@linkplain Trigger}, such as a {@linkplain PeriodicTrigger} or
+ * a {@linkplain CronTrigger}, and its own chunk policy, namely the max batch of tasks
+ * submitted at once. A chunk larger than it is submitted batch by batch,
+ * the next batch follows when the previous one completes, so a big chunk of one stream
+ * can't flood the shared executor.
+ * <p/>
+ * Just like the {@linkplain SimpleScheduler}, the rounds of a stream never overlap,
+ * the next round is scheduled by the trigger when the whole chunk completes.
+ * A round doesn't hold a thread while its tasks run, the few scheduler threads only fetch
+ * the chunks, so a slow {@code nextChunk()} only delays the other streams
+ * when all of the scheduler threads are fetching.
+ * <p/>
+ * The settings of a stream are prefixed by its name, {@code $name.batch.max} and
+ * {@code $name.enabled} which pauses or resumes the stream, and the others are delegated
+ * to the stream if it is configurable. The settings without a stream prefix are delegated
+ * to the executor if it is configurable.
+ * <p/>
+ * Usage:
+ * <pre>
+ * MultiStreamScheduler.valueOf(executor, 2)
+ *     .register("email", emailStream, PeriodicTrigger.valueOf(10, TimeUnit.SECONDS), 1000)
+ *     .register("digest", digestStream, CronTrigger.valueOf("0 8 * * *"), 100)
+ *     .start();
+ * </pre>
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class MultiStreamScheduler implements Maintenanceable, Configurable, Diagnosable {
+
+  private final TaskExecutor taskExecutor;
+  private final ScheduledThreadPoolExecutor implService;
+  private final Map<String, Stream> streams = new LinkedHashMap<String, Stream>();
+
+  /** It is used to wait a latch to return in the await() method. */
+  private final CountDownLatch latch = new CountDownLatch(1);
+
+  /** Guards the rounds in progress, which is separated from this to avoid blocking on shutdown. */
+  private final Object roundLock = new Object();
+
+  /** Guarded by roundLock, the count of rounds in progress. */
+  private int activeRounds;
+
+  /** Guarded by roundLock, no more round starts once it's set. */
+  private boolean stopping;
+
+  /** Guarded by this. */
+  private boolean startup;
+  private boolean shutdown;
+
+  private MultiStreamScheduler(TaskExecutor executor, int threads) {
+    this.taskExecutor = executor;
+    this.implService = new ScheduledThreadPoolExecutor(threads, new ThreadFactory() {
+
+      final AtomicInteger counter = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "[MultiStreamScheduler] - fetcher - " + counter.incrementAndGet());
+        thread.setDaemon(false);
+        return thread;
+      }
+
+    });
+    this.implService.setRemoveOnCancelPolicy(true);
+  }
+
+  /**
+   * Creates a scheduler of the shared executor.
+   *
+   * @param executor the executor shared by all of streams
+   * @param threads the count of threads which fetch the chunks
+   * @return returns the created instance
+   */
+  public static MultiStreamScheduler valueOf(TaskExecutor executor, int threads) {
+    Util.GuardsNull(executor, "executor is null");
+    if (threads <= 0) throw new IllegalArgumentException("threads must be positive");
+    return new MultiStreamScheduler(executor, threads);
+  }
+
+  /**
+   * Registers a stream, which must be invoked before start.
+   *
+   * @param name the unique name of stream without dots, which prefixes its settings
+   * @param stream the task stream
+   * @param trigger the trigger of rounds
+   * @param maxBatch the max count of tasks submitted at once
+   * @return returns this instance
+   */
+  public synchronized MultiStreamScheduler register(
+      String name, TaskStream stream, Trigger trigger, int maxBatch) {
+    Util.GuardsNull(name, "name is null");
+    Util.GuardsNull(stream, "stream is null");
+    Util.GuardsNull(trigger, "trigger is null");
+    if (name.length() == 0 || name.indexOf('.') >= 0) throw new IllegalArgumentException("Bad stream name - " + name);
+    if (maxBatch <= 0) throw new IllegalArgumentException("maxBatch must be positive");
+    if (startup) throw new IllegalStateException("Scheduler started already");
+    if (streams.containsKey(name)) throw new IllegalArgumentException("Duplicated stream - " + name);
+
+    streams.put(name, new Stream(name, stream, trigger, maxBatch));
+    return this;
+  }
+
+  /** 
+   * Starts the rounds of all streams. The first round of a {@linkplain PeriodicTrigger} stream runs
+   * immediately, the others are scheduled by their triggers. Unlike the {@linkplain SimpleScheduler},
+   * whose first round waits its {@code initialDelay} (5 units by default), there is no initial delay here.
+   */
+  public synchronized MultiStreamScheduler start() {
+    if (startup) return this;
+
+    for (Stream stream : streams.values()) {
+      stream.scheduleFirst(System.currentTimeMillis());
+    }
+
+    Logger.out.println("Multi-stream scheduler starts successfully with " + streams.size() + " streams.");
+    startup = true;
+    return this;
+  }
+
+  /** Waits to the return of latch. */
+  public MultiStreamScheduler await() {
+    try {
+      this.latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return this;
+  }
+
+  @Override
+  public synchronized void shutdown() {
+    if (shutdown) return;
+
+    /* Cancels the pending rounds, and waits the rounds in progress to complete. */
+    synchronized (roundLock) {
+      stopping = true;
+      for (Stream stream : streams.values()) {
+        if (stream.nextRound != null) stream.nextRound.cancel(false);
+      }
+      while (activeRounds > 0) {
+        try {
+          roundLock.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+    }
+
+    try {
+      this.implService.shutdown();
+      this.implService.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    try {
+      this.taskExecutor.shudownAndAwait(Long.MAX_VALUE, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    /* The rounds have completed, releases the resources of the streams. */
+    for (Stream stream : streams.values()) {
+      if (!(stream.stream instanceof Closeable)) continue;
+      try {
+        ((Closeable) stream.stream).close();
+      } catch (IOException e) {
+        Logger.err.println("[MultiStreamScheduler] [ERROR] - close task stream <" + stream.name + "> failed - " + e);
+      }
+    }
+
+    Logger.out.println("Multi-stream scheduler shotdown successfully.");
+
+    this.latch.countDown();
+    shutdown = true;
+  }
+
+  /** Returns the stream named by the key's prefix, or null if absent. */
+  private Stream stream(String key) {
+    final int dot = key == null ? -1 : key.indexOf('.');
+    return dot < 0 ? null : streams.get(key.substring(0, dot));
+  }
+
+  @Override
+  public String get(String key) {
+    Stream stream = stream(key);
+    if (stream == null) {
+      return taskExecutor instanceof Configurable ? ((Configurable) taskExecutor).get(key) : null;
+    }
+
+    final String setting = key.substring(key.indexOf('.') + 1);
+    if ("batch.max".equals(setting)) {
+      return String.valueOf(stream.maxBatch);
+    } else if ("enabled".equals(setting)) {
+      return String.valueOf(stream.enabled);
+    }
+    return stream.stream instanceof Configurable ? ((Configurable) stream.stream).get(setting) : null;
+  }
+
+  @Override
+  public boolean set(String key, String value) {
+    Stream stream = stream(key);
+    if (stream == null) {
+      return taskExecutor instanceof Configurable && ((Configurable) taskExecutor).set(key, value);
+    }
+
+    final String setting = key.substring(key.indexOf('.') + 1);
+    if ("batch.max".equals(setting)) {
+      stream.maxBatch = Settings.intIn(key, value, 1, Integer.MAX_VALUE);
+      return true;
+    } else if ("enabled".equals(setting)) {
+      if (!"true".equals(value) && !"false".equals(value))
+        throw new IllegalArgumentException(key + " must be true or false - " + value);
+      stream.enabled = Boolean.parseBoolean(value);
+      return true;
+    }
+    return stream.stream instanceof Configurable && ((Configurable) stream.stream).set(setting, value);
+  }
+
+  @Override
+  public Map<String, String> settings() {
+    Map<String, String> settings = new LinkedHashMap<String, String>();
+    for (Stream stream : streams.values()) {
+      settings.put(stream.name + ".batch.max", String.valueOf(stream.maxBatch));
+      settings.put(stream.name + ".enabled", String.valueOf(stream.enabled));
+      if (!(stream.stream instanceof Configurable)) continue;
+
+      for (Map.Entry<String, String> setting : ((Configurable) stream.stream).settings().entrySet()) {
+        settings.put(stream.name + "." + setting.getKey(), setting.getValue());
+      }
+    }
+    if (taskExecutor instanceof Configurable) {
+      settings.putAll(((Configurable) taskExecutor).settings());
+    }
+    return settings;
+  }
+
+  @Override
+  public String info() {
+    StringBuilder info = new StringBuilder("[Multi-stream scheduler] streams: ").append(streams.size());
+    synchronized (roundLock) {
+      info.append(", active rounds: ").append(activeRounds);
+    }
+    for (Stream stream : streams.values()) {
+      info.append("\r\n  <").append(stream.name).append("> ").append(stream);
+    }
+    return info.append("\r\n").append(taskExecutor.info()).toString();
+  }
+
+  @Override
+  public String threads() {
+    return taskExecutor instanceof Diagnosable ? ((Diagnosable) taskExecutor).threads() : "Not diagnosable!";
+  }
+
+  /** A registered stream and its statistics, the fields are written by one round at a time. */
+  private final class Stream {
+    final String name;
+    final TaskStream stream;
+    final Trigger trigger;
+    volatile int maxBatch;
+    volatile boolean enabled = true;
+
+    /** Guarded by roundLock, the pending next round. */
+    ScheduledFuture<?> nextRound;
+
+    /** The tasks of current round which are not submitted yet, and the round start. */
+    List<AyncTask> remaining;
+    int submitted;
+    long roundStart;
+
+    final AtomicLong rounds = new AtomicLong();
+    final AtomicLong fetched = new AtomicLong();
+    final AtomicLong succeeded = new AtomicLong();
+    final AtomicLong failed = new AtomicLong();
+    final AtomicInteger inFlight = new AtomicInteger();
+    volatile long lastRoundMillis;
+    volatile long nextRoundMillis;
+
+    final Runnable round = new Runnable() {
+
+      @Override
+      public void run() {
+        runRound();
+      }
+
+    };
+
+    final Runnable nextBatch = new Runnable() {
+
+      @Override
+      public void run() {
+        submitBatch();
+      }
+
+    };
+
+    Stream(String name, TaskStream stream, Trigger trigger, int maxBatch) {
+      this.name = name;
+      this.stream = stream;
+      this.trigger = trigger;
+      this.maxBatch = maxBatch;
+    }
+
+    /** Schedules the first round, a periodic stream doesn't wait a whole period for it. */
+    void scheduleFirst(long startMillis) {
+      if (trigger instanceof PeriodicTrigger) {
+        schedule(startMillis);
+      } else {
+        scheduleNext(startMillis);
+      }
+    }
+
+    /** Schedules the next round by the trigger. */
+    void scheduleNext(long roundStartMillis) {
+      long next;
+      try {
+        next = trigger.next(roundStartMillis);
+      } catch (Throwable t) {
+        Logger.err.println("[MultiStreamScheduler] [ERROR] - <" + name + "> trigger failed, stream stops - " + t);
+        return;
+      }
+      schedule(next);
+    }
+
+    /** Schedules a round at the specified time. */
+    void schedule(long next) {
+      synchronized (roundLock) {
+        if (stopping) return;
+
+        nextRoundMillis = next;
+        try {
+          nextRound = implService.schedule(
+              round, Math.max(0, next - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException shutdownAlready) { }
+      }
+    }
+
+    /** Fetches a chunk, then submits its first batch. */
+    void runRound() {
+      synchronized (roundLock) {
+        if (stopping) return;
+        ++activeRounds;
+      }
+
+      roundStart = System.currentTimeMillis();
+      rounds.incrementAndGet();
+      List<AyncTask> tasks = null;
+      try {
+        if (enabled) tasks = stream.nextChunk();
+      } catch (Throwable t) {
+        Logger.err.println("[MultiStreamScheduler] [ERROR] - <" + name + "> fetch failed - " + t);
+        t.printStackTrace();
+      }
+
+      if (tasks == null || tasks.isEmpty()) {
+        completeRound();
+        return;
+      }
+
+      fetched.addAndGet(tasks.size());
+      remaining = tasks;
+      submitted = 0;
+      submitBatch();
+    }
+
+    /** Submits the next batch of current round, or completes the round if all of tasks completed. */
+    void submitBatch() {
+      if (submitted == remaining.size()) {
+        remaining = null;
+        completeRound();
+        return;
+      }
+
+      final int from = submitted;
+      final int to = Math.min(remaining.size(), from + maxBatch);
+      final AtomicInteger outstanding = new AtomicInteger(to - from);
+      List<AyncTask> batch = new ArrayList<AyncTask>(to - from);
+      for (AyncTask task : remaining.subList(from, to)) {
+        batch.add(Tasks.whenComplete(task, new Completion() {
+
+          @Override
+          public void succeed() {
+            succeeded.incrementAndGet();
+            completed(outstanding);
+          }
+
+          @Override
+          public void fail(Throwable th) {
+            failed.incrementAndGet();
+            completed(outstanding);
+          }
+
+        }));
+      }
+
+      submitted = to;
+      inFlight.addAndGet(batch.size());
+      try {
+        taskExecutor.submit(batch);
+      } catch (Throwable t) {
+        /* The tasks which are not submitted never complete, so the rest of round is dropped. */
+        Logger.err.println("[MultiStreamScheduler] [ERROR] - <" + name + "> submit failed - " + t);
+        inFlight.addAndGet(-batch.size());
+        remaining = null;
+        completeRound();
+      }
+    }
+
+    /** Marks a task completed, the last one of a batch hands the next batch to a scheduler thread. */
+    void completed(AtomicInteger outstanding) {
+      inFlight.decrementAndGet();
+      if (outstanding.decrementAndGet() != 0) return;
+
+      try {
+        implService.execute(nextBatch);
+      } catch (RejectedExecutionException shutdownAlready) {
+        /* Never happens, the scheduler threads stop after all of rounds complete. */
+        submitBatch();
+      }
+    }
+
+    /** Completes current round, and schedules the next one. */
+    void completeRound() {
+      lastRoundMillis = System.currentTimeMillis() - roundStart;
+      scheduleNext(roundStart);
+
+      synchronized (roundLock) {
+        if (--activeRounds == 0) roundLock.notifyAll();
+      }
+    }
+
+    @Override
+    public String toString() {
+      return trigger + (enabled ? "" : " (paused)")
+          + ", batch max: " + maxBatch
+          + ", rounds: " + rounds.get()
+          + ", fetched: " + fetched.get()
+          + ", succeeded: " + succeeded.get()
+          + ", failed: " + failed.get()
+          + ", in-flight: " + inFlight.get()
+          + ", last round: " + lastRoundMillis + " ms"
+          + ", next round in: " + Math.max(0, nextRoundMillis - System.currentTimeMillis()) + " ms";
+    }
+  }
+}
@@ -12,6 +12,7 @@ import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -37,6 +38,12 @@ import java.util.concurrent.ThreadFactory;
  * When you send a text command 'info', then
  * the info fetch timing event emits. And then, the underlying's info call will be invoked.
  * <p/>
+ * When the underlying is {@linkplain Configurable}, you can send a text command 'get' to list 
+ * all of settings, 'get $key' to read one setting, or 'set $key $value' to change it at runtime.
+ * <p/>
+ * When the underlying is {@linkplain Diagnosable}, you can send a text command 'threads' to list
+ * the tasks running past the watchdog threshold with their aggregated stacks.
+ * <p/>
  * 
  * @author Harbor Luo
  * @since 0.0.1
@@ -174,6 +181,8 @@ public final class NetworkMaintenanceAgent implements Closeable {
      * Implementation:<br/>
      * Invokes the graceful shutdown action when receives a 'shutdown' text command.<br/>
      * Invokes the maintenance info fetch action when receives a 'info' text command.<br/>
+     * Reads or changes the settings when receives a 'get' or 'set' text command.<br/>
+     * Reports the long-running tasks when receives a 'threads' text command.<br/>
      * */
     public void exec() {
       try {
@@ -186,6 +195,13 @@ public final class NetworkMaintenanceAgent implements Closeable {
         } else if (command.trim().equals("info")) {
           Logger.out.println("#=> Hit command - " + command);
           writeLine(underlying.info() + "\r\n");
+        } else if (command.trim().equals("threads")) {
+          Logger.out.println("#=> Hit command - " + command);
+          writeLine((underlying instanceof Diagnosable 
+              ? ((Diagnosable) underlying).threads() : "Not diagnosable!") + "\r\n");
+        } else if (command.trim().startsWith("get") || command.trim().startsWith("set")) {
+          Logger.out.println("#=> Hit command - " + command);
+          writeLine(configure(command.trim().split("\\s+")) + "\r\n");
         } else {
           writeLine("Ouch!\r\n");
           Logger.out.println("#=> Misse command - " + command);
@@ -203,6 +219,37 @@ public final class NetworkMaintenanceAgent implements Closeable {
     }
   }
 
+  /** Handles the 'get' and 'set' command, returns the text response. */
+  private String configure(String[] command) {
+    if (!(underlying instanceof Configurable)) {
+      return "Not configurable!";
+    }
+    Configurable configurable = (Configurable) underlying;
+
+    if (command[0].equals("get") && command.length == 1) {
+      StringBuilder settings = new StringBuilder();
+      for (Map.Entry<String, String> setting : configurable.settings().entrySet()) {
+        if (settings.length() > 0) settings.append("\r\n");
+        settings.append(setting.getKey()).append(" = ").append(setting.getValue());
+      }
+      return settings.toString();
+    } else if (command[0].equals("get") && command.length == 2) {
+      String value = configurable.get(command[1]);
+      return value == null ? "Unknown setting - " + command[1] : command[1] + " = " + value;
+    } else if (command[0].equals("set") && command.length == 3) {
+      try {
+        if (!configurable.set(command[1], command[2])) {
+          return "Unknown setting - " + command[1];
+        }
+      } catch (IllegalArgumentException badValue) {
+        return "Bad value - " + badValue.getMessage();
+      }
+      Logger.out.println("#=> Setting changed - " + command[1] + " = " + command[2]);
+      return command[1] + " = " + configurable.get(command[1]);
+    }
+    return "Usage: get [key] | set key value";
+  }
+
   @Override
   public void close() throws IOException {
     closeGracefully();
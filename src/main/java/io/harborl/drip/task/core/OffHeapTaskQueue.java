@@ -0,0 +1,125 @@
+package io.harborl.drip.task.core;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * A FIFO queue which keeps the serialized tasks in direct memory.<br/>
+ * <p/>
+ * The memory is allocated in fixed size segments on demand, up to the capacity, 
+ * and a drained segment is kept as a spare for the next one, 
+ * so a steady overflow doesn't allocate at all. 
+ * Every record is a length prefix followed by the serialized task.
+ * <p/>
+ * <strong><tt>Note:</tt></strong> It is not thread-safe.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+final class OffHeapTaskQueue {
+
+  private static final int LENGTH_BYTES = 4;
+
+  private final TaskSerializer serializer;
+  private final int segmentSize;
+  private final long capacity;
+  
+  /** The segments in write mode, the head is read from readPosition, the tail is written. */
+  private final ArrayDeque<ByteBuffer> segments = new ArrayDeque<ByteBuffer>();
+  private ByteBuffer spare;
+  private int readPosition;
+  private int count;
+  private long bytes;
+
+  OffHeapTaskQueue(TaskSerializer serializer, int segmentSize, long capacity) {
+    this.serializer = serializer;
+    this.segmentSize = segmentSize;
+    this.capacity = capacity;
+  }
+
+  /** Appends the task, returns false if it is not serializable or the capacity is exhausted. */
+  boolean offer(AyncTask task) {
+    final int size = serializer.sizeOf(task);
+    if (size < 0 || size + LENGTH_BYTES > segmentSize) return false;
+
+    ByteBuffer tail = segments.peekLast();
+    if (tail == null || tail.remaining() < size + LENGTH_BYTES) {
+      if ((long) (segments.size() + 1) * segmentSize > capacity) return false;
+      tail = allocate();
+      segments.addLast(tail);
+    }
+
+    final int start = tail.position();
+    tail.putInt(size);
+    serializer.write(task, tail);
+    if (tail.position() != start + LENGTH_BYTES + size) {
+      throw new IllegalStateException("Serialized size mismatch - " + task.name());
+    }
+
+    ++count;
+    bytes += size + LENGTH_BYTES;
+    return true;
+  }
+
+  /** Removes and returns the head task, or null if the queue is empty. */
+  AyncTask poll() {
+    if (count == 0) return null;
+
+    ByteBuffer head = segments.peekFirst();
+    if (readPosition == head.position()) {
+      /* The rest of head segment is too small to hold the next record. */
+      release(segments.pollFirst());
+      head = segments.peekFirst();
+    }
+
+    final int size = head.getInt(readPosition);
+    ByteBuffer record = head.duplicate();
+    /* Calls through Buffer, the covariant overrides of ByteBuffer don't exist on Java 8. */
+    ((Buffer) record).limit(readPosition + LENGTH_BYTES + size);
+    ((Buffer) record).position(readPosition + LENGTH_BYTES);
+    AyncTask task = serializer.read(record.slice());
+
+    readPosition += LENGTH_BYTES + size;
+    --count;
+    bytes -= size + LENGTH_BYTES;
+
+    if (count == 0) {
+      /* Rewinds the only segment left instead of allocating a new one. */
+      while (segments.size() > 1) release(segments.pollFirst());
+      ((Buffer) segments.peekFirst()).clear();
+      readPosition = 0;
+    }
+    return task;
+  }
+
+  /** Returns a direct segment, reuses the spare one if any. */
+  private ByteBuffer allocate() {
+    ByteBuffer segment = spare;
+    spare = null;
+    return segment != null ? segment : ByteBuffer.allocateDirect(segmentSize);
+  }
+
+  /** Releases a drained segment, keeps it as the spare one. */
+  private void release(ByteBuffer segment) {
+    ((Buffer) segment).clear();
+    spare = segment;
+    readPosition = 0;
+  }
+
+  /** Returns the count of tasks in the queue. */
+  int size() {
+    return count;
+  }
+
+  /** Returns the bytes of tasks in the queue. */
+  long bytes() {
+    return bytes;
+  }
+
+  /** Returns the bytes of allocated segments. */
+  long allocated() {
+    return (long) segments.size() * segmentSize;
+  }
+}
@@ -0,0 +1,98 @@
+package io.harborl.drip.task.core;
+
+/**
+ * The immutable record of a task's completion, which is written by an {@linkplain OutcomeSink}.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class Outcome {
+
+  /** The id of a task which is not {@linkplain Positioned}. */
+  public static final long NO_ID = Long.MIN_VALUE;
+
+  private final long id;
+  private final String name;
+  private final String tenant;
+  private final String failure;
+  private final long timeMillis;
+
+  private Outcome(long id, String name, String tenant, String failure, long timeMillis) {
+    this.id = id;
+    this.name = name;
+    this.tenant = tenant;
+    this.failure = failure;
+    this.timeMillis = timeMillis;
+  }
+
+  /** Creates the outcome of a succeeded task. */
+  public static Outcome succeeded(AyncTask task) {
+    return valueOf(task, null);
+  }
+
+  /** Creates the outcome of a failed task. */
+  public static Outcome failed(AyncTask task, Throwable th) {
+    return valueOf(task, String.valueOf(th));
+  }
+
+  /** Creates the outcome of a succeeded row, which is read from the cursor's current row. */
+  public static Outcome succeeded(ChunkCursor cursor) {
+    return valueOf(Tasks.unwrap(cursor), cursor.name(), null);
+  }
+
+  /** Creates the outcome of a failed row, which is read from the cursor's current row. */
+  public static Outcome failed(ChunkCursor cursor, Throwable th) {
+    return valueOf(Tasks.unwrap(cursor), cursor.name(), String.valueOf(th));
+  }
+
+  private static Outcome valueOf(AyncTask task, String failure) {
+    task = Tasks.unwrap(task);
+    return valueOf(task, task.name(), failure);
+  }
+
+  /** Creates the outcome of a task or a row, which might be {@linkplain Positioned} and {@linkplain Tenanted}. */
+  private static Outcome valueOf(Object task, String name, String failure) {
+    return new Outcome(
+        task instanceof Positioned ? ((Positioned) task).position() : NO_ID,
+        name,
+        task instanceof Tenanted ? ((Tenanted) task).tenant() : null,
+        failure,
+        System.currentTimeMillis());
+  }
+
+  /** Returns the task's position, or {@link #NO_ID} if it has no position. */
+  public long id() {
+    return id;
+  }
+
+  /** Returns the task's name. */
+  public String name() {
+    return name;
+  }
+
+  /** Returns the task's tenant, or null if it has no tenant. */
+  public String tenant() {
+    return tenant;
+  }
+
+  /** Returns whether the task succeeded. */
+  public boolean succeeded() {
+    return failure == null;
+  }
+
+  /** Returns the failure description, or null if the task succeeded. */
+  public String failure() {
+    return failure;
+  }
+
+  /** Returns the completion time in milliseconds. */
+  public long timeMillis() {
+    return timeMillis;
+  }
+
+  @Override
+  public String toString() {
+    return (id == NO_ID ? "" : id + " ") + name + (failure == null ? " succeeded" : " failed - " + failure);
+  }
+}
@@ -0,0 +1,370 @@
+package io.harborl.drip.task.core;
+
+import io.harborl.drip.task.core.utils.Logger;
+import io.harborl.drip.task.core.utils.Util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An OutcomeRecorder collects the {@linkplain Outcome}s of tasks and writes them
+ * in batches to an {@linkplain OutcomeSink}.<br/>
+ * <p/>
+ * Completing a task only appends its outcome to a concurrent buffer.
+ * The buffer is flushed on a background thread with the specified period,
+ * or as soon as it reaches the batch size, in batches of at most the batch size.
+ * So a single round-trip of the sink covers a whole batch of tasks.
+ * <p/>
+ * A {@linkplain TaskChunk} is tracked by its rows, the outcome of a row is read from the cursor,
+ * so the columnar chunk is never materialized for the recording. The tracked {@linkplain Recordable} 
+ * tasks and chunks are notified, so they skip their own fallback reports.
+ * <p/>
+ * A batch which fails to write is kept and retried first at the next flush.
+ * While the sink is down, at most {@code maxBuffered} outcomes are buffered, then the completing
+ * tasks block until the sink takes the buffered ones, which pushes back on the executor and 
+ * so on the scheduler, no outcome is dropped and an outage doesn't exhaust the heap.
+ * {@link #close()} stops the background writer and flushes the rest.
+ * <p/>
+ * Usage:
+ * <pre>
+ * OutcomeRecorder recorder = OutcomeRecorder.valueOf(sink, 1000, 1, TimeUnit.SECONDS);
+ * SimpleScheduler.valueOf(stream, executor, period, unit).record(recorder).start();
+ * </pre>
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class OutcomeRecorder {
+
+  /** The default max count of buffered outcomes in batches. */
+  private static final int DEFAULT_MAX_BATCHES = 100;
+
+  /** The interval of a blocked producer to request a flush again. */
+  private static final long BLOCKED_WAIT_MILLIS = 1000;
+
+  private final OutcomeSink sink;
+  private final int batchSize;
+  private final int maxBuffered;
+
+  /** The outcomes not written yet, and its approximate size. */
+  private final ConcurrentLinkedQueue<Outcome> buffer = new ConcurrentLinkedQueue<Outcome>();
+  private final AtomicInteger buffered = new AtomicInteger();
+
+  /** Whether a size triggered flush is submitted, which coalesces the triggers. */
+  private final AtomicBoolean flushing = new AtomicBoolean();
+
+  private final AtomicLong written = new AtomicLong();
+  private final AtomicLong writeFailures = new AtomicLong();
+  private final AtomicLong blocked = new AtomicLong();
+
+  /** Notified when the written outcomes leave the buffer. */
+  private final Object space = new Object();
+
+  /** Whether it is closed, the producers never block since then. */
+  private volatile boolean closed;
+
+  /** The background thread which writes the outcomes. */
+  private final ScheduledExecutorService writer;
+
+  /** Guarded by this, the batch failed to write, which is retried first. */
+  private List<Outcome> retry;
+
+  private final Runnable flusher = new Runnable() {
+
+    @Override
+    public void run() {
+      flush();
+    }
+
+  };
+
+  /** The listener shared by all of tracked tasks, which doesn't hold any task. */
+  private final TaskListener listener = new TaskListener() {
+
+    @Override
+    public void succeeded(AyncTask task) {
+      record(Outcome.succeeded(task));
+    }
+
+    @Override
+    public void failed(AyncTask task, Throwable th) {
+      record(Outcome.failed(task, th));
+    }
+
+  };
+
+  private OutcomeRecorder(OutcomeSink sink, int batchSize, int maxBuffered) {
+    this.sink = sink;
+    this.batchSize = batchSize;
+    this.maxBuffered = maxBuffered;
+    this.writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "[OutcomeRecorder] - writer - ");
+        thread.setDaemon(true);
+        return thread;
+      }
+
+    });
+  }
+
+  /**
+   * Creates a recorder which flushes with the specified period or batch size,
+   * it buffers at most 100 batches of outcomes.
+   *
+   * @param sink the sink used to write the outcomes
+   * @param batchSize the max count of outcomes per write
+   * @param period the time period to flush
+   * @param unit the time unit used to measure the time period
+   * @return returns the created instance
+   */
+  public static OutcomeRecorder valueOf(OutcomeSink sink, int batchSize, long period, TimeUnit unit) {
+    if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be positive");
+
+    return valueOf(sink, batchSize, 
+        (int) Math.min(Integer.MAX_VALUE, (long) batchSize * DEFAULT_MAX_BATCHES), period, unit);
+  }
+
+  /**
+   * Creates a recorder which flushes with the specified period or batch size.
+   *
+   * @param sink the sink used to write the outcomes
+   * @param batchSize the max count of outcomes per write
+   * @param maxBuffered the max count of buffered outcomes, the producers block beyond it
+   * @param period the time period to flush
+   * @param unit the time unit used to measure the time period
+   * @return returns the created instance
+   */
+  public static OutcomeRecorder valueOf(
+      OutcomeSink sink, int batchSize, int maxBuffered, long period, TimeUnit unit) {
+    Util.GuardsNull(sink, "sink is null");
+    Util.GuardsNull(unit, "unit is null");
+    if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be positive");
+    if (maxBuffered < batchSize) throw new IllegalArgumentException("maxBuffered must not be less than batchSize");
+    if (period <= 0) throw new IllegalArgumentException("period must be positive");
+
+    final OutcomeRecorder recorder = new OutcomeRecorder(sink, batchSize, maxBuffered);
+    recorder.writer.scheduleWithFixedDelay(recorder.flusher, period, period, unit);
+    return recorder;
+  }
+
+  /** 
+   * Returns the tasks which record their outcomes when they complete.
+   * The decorations don't hold the tasks, so they can still be spilled off heap.
+   */
+  public List<AyncTask> track(List<AyncTask> tasks) {
+    List<AyncTask> tracked = new ArrayList<AyncTask>(tasks.size());
+    /* The decoration notifies the Recordable task, even after it is spilled and decorated again. */
+    for (AyncTask task : tasks) {
+      tracked.add(Tasks.whenComplete(task, listener));
+    }
+    return tracked;
+  }
+
+  /** 
+   * Returns the chunk whose rows record their outcomes when they complete,
+   * the outcome is read from the cursor without materializing the row's task.
+   */
+  public TaskChunk track(TaskChunk chunk) {
+    Util.GuardsNull(chunk, "chunk is null");
+    if (chunk instanceof Recordable) ((Recordable) chunk).recorded();
+    return new RecordedChunk(chunk);
+  }
+
+  /** 
+   * Appends an outcome, it triggers a flush once the buffer reaches the batch size.
+   * It blocks while the buffer is full, until the sink takes the buffered outcomes.
+   */
+  public void record(Outcome outcome) {
+    if (buffered.get() >= maxBuffered && !closed) blocked.incrementAndGet();
+    /* Keeps the outcome rather than drops it if interrupted, the buffer is exceeded by one then. */
+    while (buffered.get() >= maxBuffered && !closed && !Thread.currentThread().isInterrupted()) {
+      awaitSpace();
+    }
+
+    final int size = buffered.incrementAndGet();
+    buffer.add(outcome);
+    if (size >= batchSize) requestFlush();
+  }
+
+  /** Waits a while for the buffer to have room, the flush it requests retries the sink. */
+  private void awaitSpace() {
+    requestFlush();
+    synchronized (space) {
+      if (buffered.get() < maxBuffered || closed) return;
+      try {
+        space.wait(BLOCKED_WAIT_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /** Submits a flush to the background writer, the concurrent requests are coalesced. */
+  private void requestFlush() {
+    if (flushing.compareAndSet(false, true)) {
+      try {
+        writer.execute(flusher);
+      } catch (RejectedExecutionException closedAlready) {
+        flushing.set(false);
+      }
+    }
+  }
+
+  /** Writes the buffered outcomes in batches, it stops at the first failed batch. */
+  synchronized void flush() {
+    flushing.set(false);
+
+    if (retry != null && !write(retry)) return;
+    retry = null;
+
+    for (;;) {
+      List<Outcome> batch = new ArrayList<Outcome>(Math.min(batchSize, Math.max(1, buffered.get())));
+      for (Outcome outcome; batch.size() < batchSize && (outcome = buffer.poll()) != null; ) {
+        batch.add(outcome);
+      }
+      if (batch.isEmpty()) return;
+
+      /* The failed batch is still counted, so the retry is bounded as well. */
+      if (!write(batch)) {
+        retry = batch;
+        return;
+      }
+    }
+  }
+
+  /** Writes a batch, returns false if it failed. */
+  private boolean write(List<Outcome> batch) {
+    try {
+      sink.write(batch);
+      buffered.addAndGet(-batch.size());
+      written.addAndGet(batch.size());
+      synchronized (space) {
+        space.notifyAll();
+      }
+      return true;
+    } catch (Throwable t) {
+      writeFailures.incrementAndGet();
+      Logger.err.println("[OutcomeRecorder] [ERROR] - write " + batch.size() + " outcomes failed - " + t);
+      return false;
+    }
+  }
+
+  /** Stops the background writer, writes the rest of outcomes and closes the sink. */
+  public void close() {
+    /* The producers don't wait a writer which has stopped. */
+    closed = true;
+    synchronized (space) {
+      space.notifyAll();
+    }
+    writer.shutdown();
+    try {
+      writer.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+
+    synchronized (this) {
+      if (retry != null || !buffer.isEmpty()) {
+        Logger.err.println("[OutcomeRecorder] [ERROR] - " + buffered.get() 
+            + " outcomes are not written on close.");
+      }
+    }
+
+    if (sink instanceof Closeable) {
+      try {
+        ((Closeable) sink).close();
+      } catch (IOException e) {
+        Logger.err.println("[OutcomeRecorder] [ERROR] - close sink failed - " + e);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "[OutcomeRecorder] buffered: " + buffered.get() + "/" + maxBuffered + ", written: " + written.get()
+        + ", write failures: " + writeFailures.get() + ", blocked: " + blocked.get();
+  }
+
+  /** A forwarding chunk whose cursors record the outcomes of the rows. */
+  private final class RecordedChunk implements TaskChunk {
+    final TaskChunk chunk;
+
+    RecordedChunk(TaskChunk chunk) {
+      this.chunk = chunk;
+    }
+
+    @Override
+    public int size() {
+      return chunk.size();
+    }
+
+    @Override
+    public ChunkCursor cursor() {
+      return new RecordedCursor(chunk.cursor());
+    }
+
+    @Override
+    public AyncTask task(int row) {
+      return Tasks.whenComplete(chunk.task(row), listener);
+    }
+  }
+
+  /** 
+   * A forwarding cursor which records the outcome of current row once, 
+   * even if onFailure() follows a throwing onSucceed().
+   */
+  private final class RecordedCursor extends Tasks.ForwardingCursor {
+
+    /** The row whose outcome is recorded already, the cursor is used by one thread at a time. */
+    int recordedRow = -1;
+
+    RecordedCursor(ChunkCursor cursor) {
+      super(cursor);
+    }
+
+    @Override
+    public ChunkCursor moveTo(int row) {
+      recordedRow = -1;
+      return super.moveTo(row);
+    }
+
+    @Override
+    public void onFailure(Throwable th) {
+      try {
+        delegate.onFailure(th);
+      } finally {
+        if (recordedRow != delegate.row()) {
+          recordedRow = delegate.row();
+          record(Outcome.failed(this, th));
+        }
+      }
+    }
+
+    @Override
+    public void onSucceed() {
+      try {
+        delegate.onSucceed();
+      } finally {
+        if (recordedRow != delegate.row()) {
+          recordedRow = delegate.row();
+          record(Outcome.succeeded(this));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package io.harborl.drip.task.core;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * An OutcomeSink is used to persist the batches of task {@linkplain Outcome}s,
+ * such as a database batch update, a file or a log.<br/>
+ * It is invoked by a single writer thread, and closed on shutdown if it is {@linkplain java.io.Closeable}.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface OutcomeSink {
+
+  /** Writes a batch of outcomes, the whole batch is retried if it throws. */
+  void write(List<Outcome> outcomes) throws IOException;
+}
@@ -0,0 +1,42 @@
+package io.harborl.drip.task.core;
+
+import io.harborl.drip.task.core.utils.Util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@linkplain Trigger} at a fixed rate since the round start, just like the {@linkplain SimpleScheduler}.<br/>
+ * A round taking longer than the period is followed by the next one immediately,
+ * and the first round runs as soon as the {@linkplain MultiStreamScheduler} starts.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class PeriodicTrigger implements Trigger {
+
+  private final long period;
+  private final TimeUnit unit;
+
+  private PeriodicTrigger(long period, TimeUnit unit) {
+    this.period = period;
+    this.unit = unit;
+  }
+
+  /** Creates a trigger with the specified period. */
+  public static PeriodicTrigger valueOf(long period, TimeUnit unit) {
+    Util.GuardsNull(unit, "unit is null");
+    if (period <= 0) throw new IllegalArgumentException("period must be positive");
+    return new PeriodicTrigger(period, unit);
+  }
+
+  @Override
+  public long next(long roundStartMillis) {
+    return roundStartMillis + unit.toMillis(period);
+  }
+
+  @Override
+  public String toString() {
+    return "every " + period + " " + unit.name().toLowerCase();
+  }
+}
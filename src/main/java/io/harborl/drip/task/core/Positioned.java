@@ -0,0 +1,16 @@
+package io.harborl.drip.task.core;
+
+/**
+ * A Positioned task knows its position in the task stream, 
+ * such as the key of task source.<br/>
+ * The positions of a stream must grow with the order of fetch.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface Positioned {
+
+  /** Returns the position of this task in its stream. */
+  long position();
+}
@@ -0,0 +1,16 @@
+package io.harborl.drip.task.core;
+
+/**
+ * A task stream which reads its underlying stream ahead, and holds back some of
+ * the fetched {@linkplain Positioned} tasks, e.g. to reorder them.<br/>
+ * The {@linkplain Checkpointer} never moves the watermark past a held task.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface ReadAhead {
+
+  /** Returns the lowest position of the held tasks, or {@code Long.MAX_VALUE} if none is held. */
+  long lowestHeldPosition();
+}
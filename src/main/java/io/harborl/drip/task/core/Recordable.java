@@ -0,0 +1,15 @@
+package io.harborl.drip.task.core;
+
+/**
+ * A Recordable task or chunk is notified once its outcomes are recorded by a {@linkplain TaskListener},
+ * such as the {@linkplain OutcomeRecorder}, so it can skip its own fallback report, e.g. a log line per task.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface Recordable {
+
+  /** Notifies the outcomes are recorded from now on. */
+  void recorded();
+}
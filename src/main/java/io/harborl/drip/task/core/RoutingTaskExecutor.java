@@ -0,0 +1,190 @@
+package io.harborl.drip.task.core;
+
+import io.harborl.drip.task.core.utils.Util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bulkhead task executor, which routes each task to a named executor.<br/>
+ * <p/>
+ * Every named executor owns its concurrency and queue bounds, 
+ * so a slow downstream only occupies the workers of its own executor
+ * and the tasks of other kinds don't wait behind it.
+ * <p/>
+ * The tasks whose route is unknown go to the fallback executor.
+ * <p/>
+ * The settings of a configurable named executor are prefixed by its name, 
+ * e.g. {@code email.concurrency}.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class RoutingTaskExecutor implements TaskExecutor, Configurable, Diagnosable {
+
+  /** Routes a task by its tag if it is {@linkplain Tagged}, otherwise by its class name. */
+  public static final TaskRouter BY_TAG = new TaskRouter() {
+
+    @Override
+    public String route(AyncTask task) {
+      final AyncTask original = Tasks.unwrap(task);
+      if (original instanceof Tagged) {
+        return ((Tagged) original).tag();
+      }
+      return original.getClass().getSimpleName();
+    }
+
+  };
+
+  private final TaskRouter router;
+  private final Map<String, TaskExecutor> executors;
+  private final String fallback;
+
+  private RoutingTaskExecutor(TaskRouter router, Map<String, TaskExecutor> executors, String fallback) {
+    this.router = router;
+    this.executors = executors;
+    this.fallback = fallback;
+  }
+
+  /**
+   * Creates a routing executor.
+   * 
+   * @param router the router used to choose the executor name of a task
+   * @param executors the executors by name
+   * @param fallback the name of executor used when the route is unknown
+   * @return returns the created instance
+   */
+  public static RoutingTaskExecutor valueOf(
+      TaskRouter router, Map<String, TaskExecutor> executors, String fallback) {
+    Util.GuardsNull(router, "router is null");
+    Util.GuardsNull(executors, "executors is null");
+    if (!executors.containsKey(fallback)) 
+      throw new IllegalArgumentException("Unknown fallback executor - " + fallback);
+
+    return new RoutingTaskExecutor(router, 
+        Collections.unmodifiableMap(new LinkedHashMap<String, TaskExecutor>(executors)), fallback);
+  }
+
+  /** Returns the executor of the task. */
+  private TaskExecutor route(AyncTask task) {
+    TaskExecutor executor = executors.get(router.route(task));
+    return executor == null ? executors.get(fallback) : executor;
+  }
+
+  /** Groups the tasks by executor, and keeps the submission order within a group. */
+  private Map<TaskExecutor, List<AyncTask>> group(List<AyncTask> tasks) {
+    Map<TaskExecutor, List<AyncTask>> groups = new IdentityHashMap<TaskExecutor, List<AyncTask>>();
+    for (AyncTask task : tasks) {
+      TaskExecutor executor = route(task);
+      List<AyncTask> group = groups.get(executor);
+      if (group == null) {
+        group = new ArrayList<AyncTask>();
+        groups.put(executor, group);
+      }
+      group.add(task);
+    }
+    return groups;
+  }
+
+  @Override
+  public void submit(List<AyncTask> tasks) {
+    if (tasks == null || tasks.size() == 0) return;
+
+    for (Map.Entry<TaskExecutor, List<AyncTask>> group : group(tasks).entrySet()) {
+      group.getKey().submit(group.getValue());
+    }
+  }
+
+  @Override
+  public void submit(List<AyncTask> tasks, CountDownLatch latch) {
+    if (tasks == null || tasks.size() == 0) return;
+
+    for (Map.Entry<TaskExecutor, List<AyncTask>> group : group(tasks).entrySet()) {
+      group.getKey().submit(group.getValue(), latch);
+    }
+  }
+
+  @Override
+  public void shudownAndAwait(long timeout, TimeUnit unit) throws InterruptedException {
+    final long start = System.nanoTime();
+    final long nanos = unit.toNanos(timeout);
+    for (TaskExecutor executor : executors.values()) {
+      executor.shudownAndAwait(Math.max(0, nanos - (System.nanoTime() - start)), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (TaskExecutor executor : executors.values()) {
+      size += executor.size();
+    }
+    return size;
+  }
+
+  /** Returns the configurable executor named by the key's prefix, or null if absent. */
+  private Configurable configurable(String key) {
+    final int dot = key == null ? -1 : key.indexOf('.');
+    if (dot < 0) return null;
+
+    TaskExecutor executor = executors.get(key.substring(0, dot));
+    return executor instanceof Configurable ? (Configurable) executor : null;
+  }
+
+  @Override
+  public String get(String key) {
+    Configurable executor = configurable(key);
+    return executor == null ? null : executor.get(key.substring(key.indexOf('.') + 1));
+  }
+
+  @Override
+  public boolean set(String key, String value) {
+    Configurable executor = configurable(key);
+    return executor != null && executor.set(key.substring(key.indexOf('.') + 1), value);
+  }
+
+  @Override
+  public Map<String, String> settings() {
+    Map<String, String> settings = new LinkedHashMap<String, String>();
+    for (Map.Entry<String, TaskExecutor> executor : executors.entrySet()) {
+      if (!(executor.getValue() instanceof Configurable)) continue;
+
+      for (Map.Entry<String, String> setting 
+          : ((Configurable) executor.getValue()).settings().entrySet()) {
+        settings.put(executor.getKey() + "." + setting.getKey(), setting.getValue());
+      }
+    }
+    return settings;
+  }
+
+  @Override
+  public String info() {
+    StringBuilder info = new StringBuilder("[Routing executor] task size: ").append(size());
+    for (Map.Entry<String, TaskExecutor> executor : executors.entrySet()) {
+      info.append("\r\n  <").append(executor.getKey()).append("> ")
+          .append("task size: ").append(executor.getValue().size()).append(", ")
+          .append(executor.getValue().info());
+    }
+    return info.toString();
+  }
+
+  @Override
+  public String threads() {
+    StringBuilder threads = new StringBuilder();
+    for (Map.Entry<String, TaskExecutor> executor : executors.entrySet()) {
+      if (!(executor.getValue() instanceof Diagnosable)) continue;
+      if (threads.length() > 0) threads.append("\r\n");
+      threads.append("<").append(executor.getKey()).append("> ")
+          .append(((Diagnosable) executor.getValue()).threads());
+    }
+    return threads.length() == 0 ? "Not diagnosable!" : threads.toString();
+  }
+
+}
@@ -1,11 +1,21 @@
 package io.harborl.drip.task.core;
 
+import io.harborl.drip.task.core.events.ChunkFetchEvent;
+import io.harborl.drip.task.core.events.ChunkWaitEvent;
+import io.harborl.drip.task.core.events.SchedulerRoundEvent;
 import io.harborl.drip.task.core.utils.Logger;
+import io.harborl.drip.task.core.utils.Settings;
+import io.harborl.drip.task.core.utils.Util;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -16,12 +26,32 @@ import java.util.concurrent.atomic.AtomicInteger;
  *  <p/>
  * It also implements the {@linkplain Maintenanceable} interface, so the instance
  *  is able to return the maintenance info and provide shutdown trigger.
+ *  <p/>
+ * The {@code period} setting can be changed at runtime through the {@linkplain Configurable}
+ *  interface, which takes effect at the next round. The other settings are delegated to 
+ *  the task executor and task stream if they are configurable.
+ *  <p/>
+ * In the drain mode, the next round starts immediately while the stream keeps returning 
+ *  tasks. Once a chunk comes back empty, the idle interval starts from the period and 
+ *  doubles up to {@code idle.max}. A {@linkplain WakeUpSource} stream, or anyone else through 
+ *  {@link #wakeUp()}, can trigger the next round early.
+ *  <p/>
+ * A {@linkplain ChunkTaskStream} hands its chunk in the columnar {@linkplain TaskChunk} form to
+ *  a {@linkplain ChunkTaskExecutor} directly, the outcomes and the checkpoint are tracked by 
+ *  the rows as well.
+ *  <p/>
+ * A round drops its references to the fetched tasks once they are submitted, so the executor,
+ *  e.g. the {@linkplain SpillingTaskExecutor}, decides which of them stay on heap while
+ *  the round waits them to complete.
+ *  <p/>
+ * Every round emits the flight recorder events of {@code io.harborl.drip.*}, 
+ *  which cost nothing but a flag check unless a recording enables them.
  * 
  * @author Harbor Luo
  * @since 0.0.1
  *
  */
-public final class SimpleScheduler implements Maintenanceable {
+public final class SimpleScheduler implements Maintenanceable, Configurable, Diagnosable {
 
   /** A task stream is used to fetch the tasks with adaptive chunk size. */
   private final TaskStream taskStream;
@@ -30,14 +60,27 @@ public final class SimpleScheduler implements Maintenanceable {
   private final TaskExecutor taskExecutor;
   
   /** The underlying time thread pool based scheduler. */
-  private final ScheduledExecutorService implService;
+  private final ScheduledThreadPoolExecutor implService;
   
-  /** The time period to schedule. */
-  private final long period;
+  /** The time period to schedule, it can be changed at runtime. */
+  private volatile long period;
   
   /** The time unit used to measure the time period. */
   private final TimeUnit unit;
   
+  /** The delay of the first round. */
+  private volatile long initialDelay = 5;
+  
+  /** Whether the drain mode is on, and the max idle interval of it. */
+  private volatile boolean drain;
+  private volatile long maxIdle;
+  
+  /** The checkpointer used to persist the stream position, it might be null. */
+  private final Checkpointer checkpointer;
+  
+  /** The recorder of task outcomes, it might be null. */
+  private volatile OutcomeRecorder recorder;
+  
   /** It is used to wait a latch to return in the await() method. */
   private final CountDownLatch latch;
   
@@ -50,18 +93,35 @@ public final class SimpleScheduler implements Maintenanceable {
   /** Guarded by this, which guarantees instance starts only once. */
   private boolean startup;
   
+  /** Guards the scheduling of rounds, which is separated from this to avoid blocking on shutdown. */
+  private final Object roundLock = new Object();
+  
+  /** Guarded by roundLock, the round loop and its pending next execution. */
+  private Runnable round;
+  private ScheduledFuture<?> nextRound;
+  
+  /** 
+   * Guarded by roundLock, whether a round is in progress, whether a wake-up arrives during it, 
+   * and the current idle interval.
+   */
+  private boolean roundRunning;
+  private boolean wakeUpRequested;
+  private long idle;
+  
   private SimpleScheduler(
       TaskStream gather, 
       TaskExecutor executor, 
-      long period, TimeUnit unit) {
+      long period, TimeUnit unit,
+      Checkpointer checkpointer) {
     this.taskStream = gather;
     this.taskExecutor = executor;
     this.latch = new CountDownLatch(1);
     this.period = period;
     this.unit = unit;
+    this.checkpointer = checkpointer;
 
     /* We use the thread pool based scheduler for the underlying implementation. */
-    this.implService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+    this.implService = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
 
       @Override
       public Thread newThread(Runnable r) {
@@ -71,6 +131,10 @@ public final class SimpleScheduler implements Maintenanceable {
       }
 
     });
+    /* The pending next round is dropped on shutdown, just like a periodic task. */
+    this.implService.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    /* The round cancelled by a wake-up doesn't stay in the queue. */
+    this.implService.setRemoveOnCancelPolicy(true);
   }
 
   /** 
@@ -81,7 +145,44 @@ public final class SimpleScheduler implements Maintenanceable {
       TaskStream taskGather, 
       TaskExecutor executor, long period, 
       TimeUnit unit) {
-    return new SimpleScheduler(taskGather, executor, period, unit);
+    return new SimpleScheduler(taskGather, executor, period, unit, null);
+  }
+
+  /** 
+   * Create a new Scheduler instance like above, and the completion of submitted tasks
+   * is tracked by the specified checkpointer, which is closed on shutdown.
+   */
+  public static SimpleScheduler valueOf(
+      TaskStream taskGather, 
+      TaskExecutor executor, long period, 
+      TimeUnit unit, Checkpointer checkpointer) {
+    Util.GuardsNull(checkpointer, "checkpointer is null");
+    return new SimpleScheduler(taskGather, executor, period, unit, checkpointer);
+  }
+
+  /** Changes the delay of the first round, which must be invoked before start. */
+  public synchronized SimpleScheduler initialDelay(long delay) {
+    if (delay < 0) throw new IllegalArgumentException("delay must not be negative");
+    this.initialDelay = delay;
+    return this;
+  }
+
+  /** Turns on the drain mode with the max idle interval, which is measured in the scheduler's time unit. */
+  public SimpleScheduler drain(long maxIdle) {
+    if (maxIdle <= 0) throw new IllegalArgumentException("maxIdle must be positive");
+    this.maxIdle = maxIdle;
+    this.drain = true;
+    return this;
+  }
+
+  /** 
+   * Records the outcomes of tasks through the specified recorder, which is closed on shutdown.<br/>
+   * It must be invoked before start.
+   */
+  public synchronized SimpleScheduler record(OutcomeRecorder recorder) {
+    Util.GuardsNull(recorder, "recorder is null");
+    this.recorder = recorder;
+    return this;
   }
 
   /** Starts the single thread scheduler loop. */
@@ -89,29 +190,68 @@ public final class SimpleScheduler implements Maintenanceable {
     if (startup) return this;
 
     /* 
-     * This method call guarantees that:
+     * Every round schedules the next one at the end, which guarantees that:
      * "If any execution of this task
      * takes longer than its period, then subsequent executions
      * may start late, but will not concurrently execute."
+     * And a changed period takes effect at the next round.
      */
-    implService.scheduleAtFixedRate(new Runnable() {
+    final Runnable loop = new Runnable() {
 
       /** Round counts from 1. */
       final AtomicInteger rounds = new AtomicInteger(1);
 
       @Override
       public void run() {
+        synchronized (roundLock) {
+          /* The future of this round is done, a wake-up from now on waits the round to end. */
+          roundRunning = true;
+          nextRound = null;
+        }
+        final long roundStart = System.nanoTime();
         workingInfo = "[Scheduler] I am busy - gather next chunk - in round #" + rounds;
+        final long round = rounds.get();
+        final SchedulerRoundEvent roundEvent = SchedulerRoundEvent.begin(round);
+        int chunkSize = 0;
         try {
-          List<AyncTask> tasks = taskStream.nextChunk();
-          if (tasks != null && tasks.size() > 0) {
-            CountDownLatch latch = new CountDownLatch(tasks.size());
-            taskExecutor.submit(tasks, latch);
+          final ChunkFetchEvent fetchEvent = ChunkFetchEvent.begin(round);
+          List<AyncTask> tasks = null;
+          TaskChunk taskChunk = null;
+          if (columnar()) {
+            taskChunk = ((ChunkTaskStream) taskStream).nextTaskChunk();
+            chunkSize = taskChunk == null ? 0 : taskChunk.size();
+          } else {
+            tasks = taskStream.nextChunk();
+            chunkSize = tasks == null ? 0 : tasks.size();
+          }
+          if (fetchEvent != null) {
+            fetchEvent.chunkSize = chunkSize;
+            fetchEvent.commit();
+          }
+          if (roundEvent != null) roundEvent.chunkSize = chunkSize;
+
+          if (chunkSize > 0) {
+            CountDownLatch latch = new CountDownLatch(chunkSize);
+            if (taskChunk != null) {
+              if (recorder != null) taskChunk = recorder.track(taskChunk);
+              if (checkpointer != null) taskChunk = checkpointer.track(taskChunk, taskStream);
+              ((ChunkTaskExecutor) taskExecutor).submit(taskChunk, latch);
+            } else {
+              if (recorder != null) tasks = recorder.track(tasks);
+              if (checkpointer != null) tasks = checkpointer.track(tasks, taskStream);
+              taskExecutor.submit(tasks, latch);
+            }
+            /* The spilled tasks must not be reachable from the waiting round. */
+            tasks = null;
+            taskChunk = null;
+            /* Waits all of tasks complete, callback tasks count down on their completion. */
+            final ChunkWaitEvent waitEvent = ChunkWaitEvent.begin(round, chunkSize);
             try {
               latch.await();
             } catch (InterruptedException e) {
               Thread.currentThread().interrupt();
             }
+            if (waitEvent != null) waitEvent.commit();
           }
           /* We suppress all of exceptions just to
            * makes sure the scheduler loop be going-on, no matter what 
@@ -126,9 +266,28 @@ public final class SimpleScheduler implements Maintenanceable {
           t.printStackTrace();
         }
         
-        workingInfo = "[Scheduler] I am idle zZZ - Round #" + rounds.getAndIncrement() + " completed!";
+        if (roundEvent != null) roundEvent.commit();
+        final long delay = scheduleNext(roundStart, chunkSize > 0);
+        workingInfo = "[Scheduler] I am idle zZZ - Round #" + rounds.getAndIncrement() + " completed!"
+            + " Next round in " + TimeUnit.NANOSECONDS.toMillis(delay) + " ms.";
       }
-    }, 5, period, unit);
+    };
+
+    synchronized (roundLock) {
+      round = loop;
+      nextRound = implService.schedule(loop, initialDelay, unit);
+    }
+
+    if (taskStream instanceof WakeUpSource) {
+      ((WakeUpSource) taskStream).wakeUpWith(new Runnable() {
+
+        @Override
+        public void run() {
+          wakeUp();
+        }
+
+      });
+    }
 
     Logger.out.println("Scheduler starts successfully.");
     startup = true;
@@ -136,6 +295,62 @@ public final class SimpleScheduler implements Maintenanceable {
     return this;
   }
 
+  /** Returns true if the round passes the chunk in the columnar form, which needs both sides to support it. */
+  private boolean columnar() {
+    return taskStream instanceof ChunkTaskStream && taskExecutor instanceof ChunkTaskExecutor;
+  }
+
+  /** 
+   * Schedules the next round, returns the delay in nanoseconds.<br/>
+   * It keeps a fixed rate of current period since the round start, or in the drain mode, 
+   * starts immediately after a non-empty chunk and backs off exponentially after an empty one.
+   */
+  private long scheduleNext(long roundStart, boolean fetched) {
+    synchronized (roundLock) {
+      long delay;
+      if (wakeUpRequested) {
+        delay = 0;
+      } else if (!drain) {
+        delay = Math.max(0, unit.toNanos(period) - (System.nanoTime() - roundStart));
+      } else if (fetched) {
+        idle = 0;
+        delay = 0;
+      } else {
+        idle = idle == 0 ? Math.min(period, maxIdle) : Math.min(idle * 2, maxIdle);
+        delay = unit.toNanos(idle);
+      }
+      wakeUpRequested = false;
+      roundRunning = false;
+
+      try {
+        nextRound = implService.schedule(round, delay, TimeUnit.NANOSECONDS);
+      } catch (RejectedExecutionException shutdownAlready) { }
+      return delay;
+    }
+  }
+
+  /** 
+   * Triggers the next round early, for example, when the task source has got new tasks.<br/>
+   * A pending round starts immediately, or a running one is followed by the next immediately.
+   */
+  public void wakeUp() {
+    synchronized (roundLock) {
+      if (roundRunning) {
+        wakeUpRequested = true;
+        return;
+      }
+      if (nextRound == null) return;
+
+      /* Otherwise the pending round has just started, and it fetches after this wake-up anyway. */
+      if (nextRound.cancel(false)) {
+        idle = 0;
+        try {
+          nextRound = implService.schedule(round, 0, unit);
+        } catch (RejectedExecutionException shutdownAlready) { }
+      }
+    }
+  }
+
   /** Waits to the return of latch. */
   public SimpleScheduler await() {
     try {
@@ -164,19 +379,92 @@ public final class SimpleScheduler implements Maintenanceable {
       Thread.currentThread().interrupt();
     }
 
+    /* All of tasks have completed, stores the final position. */
+    if (this.checkpointer != null) this.checkpointer.close();
+    /* Writes the rest of outcomes before the shutdown completes. */
+    if (this.recorder != null) this.recorder.close();
+
+    /* The rounds have completed, releases the resources of the stream. */
+    if (this.taskStream instanceof Closeable) {
+      try {
+        ((Closeable) this.taskStream).close();
+      } catch (IOException e) {
+        Logger.err.println("[SimpleScheduler] [ERROR] - close task stream failed - " + e);
+      }
+    }
+
     Logger.out.println("Scheduler shotdown successfully.");
     
     this.latch.countDown();
     shutdown = true;
   }
 
+  @Override
+  public String get(String key) {
+    if ("period".equals(key)) {
+      return String.valueOf(period);
+    } else if ("drain".equals(key)) {
+      return String.valueOf(drain);
+    } else if ("idle.max".equals(key)) {
+      return String.valueOf(maxIdle);
+    } else if (taskExecutor instanceof Configurable) {
+      String value = ((Configurable) taskExecutor).get(key);
+      if (value != null) return value;
+    }
+    return taskStream instanceof Configurable ? ((Configurable) taskStream).get(key) : null;
+  }
+
+  @Override
+  public boolean set(String key, String value) {
+    if ("period".equals(key)) {
+      period = Settings.longIn(key, value, 1, Integer.MAX_VALUE);
+      return true;
+    } else if ("drain".equals(key)) {
+      if (!"true".equals(value) && !"false".equals(value)) 
+        throw new IllegalArgumentException(key + " must be true or false - " + value);
+      if ("true".equals(value) && maxIdle <= 0) 
+        throw new IllegalArgumentException("idle.max must be set before the drain mode is on");
+      drain = Boolean.parseBoolean(value);
+      return true;
+    } else if ("idle.max".equals(key)) {
+      maxIdle = Settings.longIn(key, value, 1, Integer.MAX_VALUE);
+      return true;
+    } else if (taskExecutor instanceof Configurable && ((Configurable) taskExecutor).set(key, value)) {
+      return true;
+    }
+    return taskStream instanceof Configurable && ((Configurable) taskStream).set(key, value);
+  }
+
+  @Override
+  public Map<String, String> settings() {
+    Map<String, String> settings = new LinkedHashMap<String, String>();
+    settings.put("period", String.valueOf(period));
+    settings.put("drain", String.valueOf(drain));
+    settings.put("idle.max", String.valueOf(maxIdle));
+    if (taskExecutor instanceof Configurable) {
+      settings.putAll(((Configurable) taskExecutor).settings());
+    }
+    if (taskStream instanceof Configurable) {
+      settings.putAll(((Configurable) taskStream).settings());
+    }
+    return settings;
+  }
+
   @Override
   public String info() {
     final int N = this.taskExecutor.size();
+    final OutcomeRecorder recorder = this.recorder;
+    final String executorInfo = "\r\n" + this.taskExecutor.info()
+        + (recorder == null ? "" : "\r\n" + recorder);
     if (N > 0) {
-      return "[Task executor] I am buzy - task size: "  + N;
+      return "[Task executor] I am buzy - task size: "  + N + executorInfo;
     } else {
-      return workingInfo;
+      return workingInfo + executorInfo;
     }
   }
+
+  @Override
+  public String threads() {
+    return taskExecutor instanceof Diagnosable ? ((Diagnosable) taskExecutor).threads() : "Not diagnosable!";
+  }
 }
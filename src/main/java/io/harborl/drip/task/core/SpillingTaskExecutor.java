@@ -0,0 +1,242 @@
+package io.harborl.drip.task.core;
+
+import io.harborl.drip.task.core.utils.Settings;
+import io.harborl.drip.task.core.utils.Util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A task executor decorator, which bounds the backlog held on heap.<br/>
+ * <p/>
+ * At most {@code heap.budget} tasks are handed to the underlying executor at a time.
+ * Above the budget, the tasks are serialized into an off-heap overflow queue 
+ * and read back in FIFO order as the handed ones complete, so a burst of 
+ * large chunks doesn't inflate the heap and no task is dropped.
+ * <p/>
+ * A decorated task, e.g. tracked by the {@linkplain OutcomeRecorder}, is spilled as its original
+ * task, only the listeners of its decorations stay on heap, and it is decorated again when 
+ * it is read back. A task stays on heap if the serializer doesn't support it or the overflow 
+ * capacity is exhausted.
+ * <p/>
+ * A {@linkplain TaskChunk} doesn't hold a task object per row, so it is passed through to
+ * a {@linkplain ChunkTaskExecutor} without counting against the heap budget, 
+ * otherwise its tasks are materialized and bounded as above.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class SpillingTaskExecutor implements ChunkTaskExecutor, Configurable, Diagnosable {
+
+  /** The size of an off-heap segment. */
+  private static final int SEGMENT_SIZE = 4 * 1024 * 1024;
+
+  private final TaskExecutor underlying;
+  
+  /** Guarded by this, the overflow queue and the latches of its tasks. */
+  private final OffHeapTaskQueue overflow;
+  private final ArrayDeque<LatchRun> overflowLatches = new ArrayDeque<LatchRun>();
+  private final ArrayDeque<Object[]> overflowDecorations = new ArrayDeque<Object[]>();
+  
+  /** Guarded by this, the count of tasks handed to the underlying executor. */
+  private int onHeap;
+  
+  /** The max count of tasks handed to the underlying executor, which can be changed at runtime. */
+  private volatile int heapBudget;
+
+  private SpillingTaskExecutor(
+      TaskExecutor underlying, TaskSerializer serializer, int heapBudget, long offHeapCapacity) {
+    this.underlying = underlying;
+    this.heapBudget = heapBudget;
+    this.overflow = new OffHeapTaskQueue(serializer, SEGMENT_SIZE, offHeapCapacity);
+  }
+
+  /**
+   * Creates a spilling executor.
+   * 
+   * @param underlying the executor which executes the tasks
+   * @param serializer the serializer used to move the tasks off heap
+   * @param heapBudget the max count of tasks handed to the underlying executor
+   * @param offHeapCapacity the max bytes of the off-heap overflow
+   * @return returns the created instance
+   */
+  public static SpillingTaskExecutor valueOf(
+      TaskExecutor underlying, TaskSerializer serializer, int heapBudget, long offHeapCapacity) {
+    Util.GuardsNull(underlying, "underlying is null");
+    Util.GuardsNull(serializer, "serializer is null");
+    if (heapBudget <= 0) throw new IllegalArgumentException("heapBudget must be positive");
+    if (offHeapCapacity < 0) throw new IllegalArgumentException("offHeapCapacity must not be negative");
+
+    return new SpillingTaskExecutor(underlying, serializer, heapBudget, offHeapCapacity);
+  }
+
+  @Override
+  public void submit(List<AyncTask> tasks) {
+    submit(tasks, null);
+  }
+
+  @Override
+  public void submit(List<AyncTask> tasks, CountDownLatch latch) {
+    if (tasks == null || tasks.size() == 0) return;
+
+    List<AyncTask> handed = new ArrayList<AyncTask>();
+    synchronized (this) {
+      for (AyncTask task : tasks) {
+        /* Keeps the FIFO order, the later tasks queue behind the spilled ones. */
+        if ((overflow.size() > 0 || onHeap >= heapBudget) && spill(task, latch)) continue;
+
+        ++onHeap;
+        handed.add(tracked(task));
+      }
+    }
+    underlying.submit(handed, latch);
+  }
+
+  @Override
+  public void submit(TaskChunk chunk, CountDownLatch latch) {
+    if (underlying instanceof ChunkTaskExecutor) {
+      ((ChunkTaskExecutor) underlying).submit(chunk, latch);
+    } else {
+      submit(Tasks.materialize(chunk), latch);
+    }
+  }
+
+  /** Spills the task to the overflow queue, returns false if it must stay on heap. Guarded by this. */
+  private boolean spill(AyncTask task, CountDownLatch latch) {
+    /* The serializer only knows the original task, the decorations are kept on heap. */
+    if (!overflow.offer(Tasks.unwrap(task))) return false;
+    overflowDecorations.addLast(Tasks.decorationsOf(task));
+
+    LatchRun last = overflowLatches.peekLast();
+    if (last != null && last.latch == latch) {
+      ++last.count;
+    } else {
+      overflowLatches.addLast(new LatchRun(latch));
+    }
+    return true;
+  }
+
+  /** Returns a task which refills the underlying executor when it completes. */
+  private AyncTask tracked(AyncTask task) {
+    return Tasks.whenComplete(task, new Completion() {
+
+      @Override
+      public void succeed() {
+        refill();
+      }
+
+      @Override
+      public void fail(Throwable th) {
+        refill();
+      }
+
+    });
+  }
+
+  /** Hands the spilled tasks back to the underlying executor as the budget frees up. */
+  private void refill() {
+    CountDownLatch latch = null;
+    List<AyncTask> handed = null;
+    synchronized (this) {
+      --onHeap;
+      if (overflow.size() > 0 && onHeap < heapBudget) {
+        /* Only the tasks of the same latch can be handed in one batch. */
+        LatchRun run = overflowLatches.peekFirst();
+        latch = run.latch;
+        handed = new ArrayList<AyncTask>();
+        while (run.count > 0 && onHeap < heapBudget) {
+          handed.add(tracked(Tasks.redecorate(overflow.poll(), overflowDecorations.pollFirst())));
+          ++onHeap;
+          --run.count;
+        }
+        if (run.count == 0) overflowLatches.pollFirst();
+      }
+      if (overflow.size() == 0 && onHeap == 0) notifyAll();
+    }
+
+    if (handed != null) underlying.submit(handed, latch);
+  }
+
+  @Override
+  public void shudownAndAwait(long timeout, TimeUnit unit) throws InterruptedException {
+    final long start = System.nanoTime();
+    final long nanos = unit.toNanos(timeout);
+
+    /* Drains the overflow before the underlying executor refuses the tasks. */
+    synchronized (this) {
+      long remaining = nanos;
+      while (overflow.size() > 0 && remaining > 0) {
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        remaining = nanos - (System.nanoTime() - start);
+      }
+    }
+    underlying.shudownAndAwait(Math.max(0, nanos - (System.nanoTime() - start)), TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public int size() {
+    int spilled;
+    synchronized (this) {
+      spilled = overflow.size();
+    }
+    return underlying.size() + spilled;
+  }
+
+  @Override
+  public String get(String key) {
+    if ("heap.budget".equals(key)) {
+      return String.valueOf(heapBudget);
+    }
+    return underlying instanceof Configurable ? ((Configurable) underlying).get(key) : null;
+  }
+
+  @Override
+  public boolean set(String key, String value) {
+    if ("heap.budget".equals(key)) {
+      heapBudget = Settings.intIn(key, value, 1, Integer.MAX_VALUE);
+      return true;
+    }
+    return underlying instanceof Configurable && ((Configurable) underlying).set(key, value);
+  }
+
+  @Override
+  public Map<String, String> settings() {
+    Map<String, String> settings = new LinkedHashMap<String, String>();
+    settings.put("heap.budget", String.valueOf(heapBudget));
+    if (underlying instanceof Configurable) {
+      settings.putAll(((Configurable) underlying).settings());
+    }
+    return settings;
+  }
+
+  @Override
+  public String info() {
+    synchronized (this) {
+      return "[Spilling executor] on heap: " + onHeap + "/" + heapBudget
+          + ", spilled: " + overflow.size() 
+          + " (" + overflow.bytes() + " of " + overflow.allocated() + " bytes off heap)"
+          + "\r\n" + underlying.info();
+    }
+  }
+
+  @Override
+  public String threads() {
+    return underlying instanceof Diagnosable ? ((Diagnosable) underlying).threads() : "Not diagnosable!";
+  }
+
+  /** A run of the spilled tasks which share the same latch. */
+  private static final class LatchRun {
+    final CountDownLatch latch;
+    int count = 1;
+
+    LatchRun(CountDownLatch latch) {
+      this.latch = latch;
+    }
+  }
+}
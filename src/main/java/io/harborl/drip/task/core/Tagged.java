@@ -0,0 +1,15 @@
+package io.harborl.drip.task.core;
+
+/**
+ * A Tagged task carries a tag, such as its downstream service, 
+ * which is used to route it to an isolated executor.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface Tagged {
+
+  /** Returns the tag of this task. */
+  String tag();
+}
@@ -0,0 +1,22 @@
+package io.harborl.drip.task.core;
+
+/**
+ * A TaskChunk is a compact, usually columnar, chunk of tasks which doesn't hold 
+ * a task object per row. The rows are read through the {@linkplain ChunkCursor}s,
+ * and the {@linkplain AyncTask}s are only materialized for the legacy paths.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface TaskChunk {
+
+  /** Returns the count of rows. */
+  int size();
+
+  /** Returns a new cursor before the first row, which is used by one thread at a time. */
+  ChunkCursor cursor();
+
+  /** Materializes the task of the row. */
+  AyncTask task(int row);
+}
@@ -17,7 +17,11 @@ public interface TaskExecutor {
   /** Submits the task list to execute. */
   void submit(List<AyncTask> tasks);
   
-  /** Submits the task list to execute and latch the complete status. */
+  /** 
+   * Submits the task list to execute and latch the complete status.<br/>
+   * The latch counts down once per task when it completes, for a {@linkplain CallbackTask}
+   * it happens when the completion is reported rather than the exec() returns.
+   */
   void submit(List<AyncTask> tasks, final CountDownLatch latch);
   
   /** Shutdown and wait it to be completed in a given time period. */
@@ -26,4 +30,7 @@ public interface TaskExecutor {
   /** Returns the task size in processing and pending,
    *  it might be a approximate number. */
   int size();
+  
+  /** Returns the maintenance information, such as the concurrency and queue status. */
+  String info();
 }
@@ -0,0 +1,20 @@
+package io.harborl.drip.task.core;
+
+/**
+ * A TaskListener is notified with the task when it completes.<br/>
+ * Unlike a {@linkplain Completion} per task, a single listener serves all of the tasks
+ * without holding any of them, so a decorated task can still be moved off heap
+ * and decorated again, see {@link Tasks#whenComplete(AyncTask, TaskListener)}.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface TaskListener {
+
+  /** Notifies the task has succeeded. */
+  void succeeded(AyncTask task);
+
+  /** Notifies the task has failed with the specified cause. */
+  void failed(AyncTask task, Throwable th);
+}
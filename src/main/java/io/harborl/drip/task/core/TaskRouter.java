@@ -0,0 +1,14 @@
+package io.harborl.drip.task.core;
+
+/**
+ * A TaskRouter is used to choose the named executor for a task.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface TaskRouter {
+
+  /** Returns the executor name of the task. */
+  String route(AyncTask task);
+}
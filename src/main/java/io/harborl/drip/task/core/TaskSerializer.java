@@ -0,0 +1,22 @@
+package io.harborl.drip.task.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A TaskSerializer is used to move the tasks out of heap and back.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface TaskSerializer {
+
+  /** Returns the serialized size of the task in bytes, or -1 if the task is not supported. */
+  int sizeOf(AyncTask task);
+
+  /** Writes the task at the buffer's position, which writes exactly {@code sizeOf(task)} bytes. */
+  void write(AyncTask task, ByteBuffer buffer);
+
+  /** Reads a task from the buffer's position, which is written by {@link #write(AyncTask, ByteBuffer)}. */
+  AyncTask read(ByteBuffer buffer);
+}
@@ -0,0 +1,291 @@
+package io.harborl.drip.task.core;
+
+import io.harborl.drip.task.core.utils.Logger;
+import io.harborl.drip.task.core.utils.Util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A watchdog of the worker threads, which tracks the start time of every running task,
+ * and samples the stack of a thread whose task runs past the threshold.<br/>
+ * <p/>
+ * A worker marks its task by {@link #enter(Object, long)} and {@link #exit()}, which only
+ * writes a few fields of its own slot, so the tracking costs nothing but the normal tasks.
+ * The watchdog thread wakes up every interval, and samples the stuck threads only,
+ * the stacks of a task are aggregated by their top frames, reset when the thread
+ * moves to the next task.
+ * <p/>
+ * The task name is resolved when it is sampled, so the tracked task might be an
+ * {@linkplain AyncTask}, a {@linkplain ChunkCursor}, or anything else by its {@code toString()}.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class TaskWatchdog {
+
+  /** The top frames which identify a sampled stack. */
+  private static final int MAX_FRAMES = 12;
+
+  /** The distinct stacks kept per task, the rarer ones are counted as others. */
+  private static final int MAX_STACKS = 8;
+
+  private final String name;
+  private volatile long thresholdMillis;
+  private volatile long intervalMillis;
+  private volatile boolean closed;
+
+  private final ConcurrentLinkedQueue<Slot> slots = new ConcurrentLinkedQueue<Slot>();
+  private final ThreadLocal<Slot> current = new ThreadLocal<Slot>() {
+
+    @Override
+    protected Slot initialValue() {
+      Slot slot = new Slot(Thread.currentThread());
+      slots.add(slot);
+      return slot;
+    }
+
+  };
+
+  /** The count of tasks which have run past the threshold. */
+  private final AtomicLong detected = new AtomicLong();
+
+  private TaskWatchdog(String name, long thresholdMillis, long intervalMillis) {
+    this.name = name;
+    this.thresholdMillis = thresholdMillis;
+    this.intervalMillis = intervalMillis;
+  }
+
+  /**
+   * Creates a watchdog and starts its daemon thread.
+   *
+   * @param name the name of the watched workers
+   * @param thresholdMillis the running time after which a task is stuck
+   * @param intervalMillis the interval of the stack sampling
+   * @return returns the started instance
+   */
+  public static TaskWatchdog valueOf(String name, long thresholdMillis, long intervalMillis) {
+    Util.GuardsNull(name, "name is null");
+    if (thresholdMillis <= 0) throw new IllegalArgumentException("thresholdMillis must be positive");
+    if (intervalMillis <= 0) throw new IllegalArgumentException("intervalMillis must be positive");
+
+    final TaskWatchdog watchdog = new TaskWatchdog(name, thresholdMillis, intervalMillis);
+    Thread thread = new Thread(new NamedRunnable("[Watchdog] - %s", name) {
+
+      @Override
+      protected void exec() {
+        watchdog.loop();
+      }
+
+    });
+    thread.setDaemon(true);
+    thread.start();
+    return watchdog;
+  }
+
+  /** Marks the task running on current thread since the start, which is a {@code System.nanoTime()}. */
+  public void enter(Object task, long start) {
+    Slot slot = current.get();
+    slot.task = task;
+    slot.start = start;
+    /* Odd means running, the volatile write publishes the task and the start. */
+    slot.sequence = slot.sequence + 1;
+  }
+
+  /** Marks the task of current thread completed. */
+  public void exit() {
+    Slot slot = current.get();
+    slot.sequence = slot.sequence + 1;
+    slot.task = null;
+  }
+
+  private void loop() {
+    while (!closed) {
+      try {
+        TimeUnit.MILLISECONDS.sleep(intervalMillis);
+        sample();
+      } catch (InterruptedException e) {
+        return;
+      } catch (Throwable th) {
+        /* Keeps the watchdog going-on, it must not die of a task's weird state. */
+        Logger.err.println("[Watchdog] [ERROR] - " + th);
+      }
+    }
+  }
+
+  /** Samples the stacks of the stuck threads, and drops the slots of the dead threads. */
+  private void sample() {
+    final long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    for (Iterator<Slot> it = slots.iterator(); it.hasNext(); ) {
+      Slot slot = it.next();
+      if (!slot.thread.isAlive()) {
+        it.remove();
+        continue;
+      }
+
+      final long sequence = slot.sequence;
+      if ((sequence & 1) == 0) continue;
+      final long start = slot.start;
+      if (System.nanoTime() - start < thresholdNanos) continue;
+
+      final Object task = slot.task;
+      final StackTraceElement[] stack = slot.thread.getStackTrace();
+      /* The task has completed meanwhile, the stack might be the next one's. */
+      if (slot.sequence != sequence) continue;
+
+      slot.sampled(sequence, start, nameOf(task), stack);
+      if (slot.samples == 1) detected.incrementAndGet();
+    }
+  }
+
+  private static String nameOf(Object task) {
+    if (task instanceof AyncTask) return ((AyncTask) task).name();
+    if (task instanceof ChunkCursor) return ((ChunkCursor) task).name();
+    return String.valueOf(task);
+  }
+
+  /** Returns the report of the tasks running past the threshold, the longest first. */
+  public String report() {
+    final long now = System.nanoTime();
+    List<Slot> stuck = new ArrayList<Slot>();
+    for (Slot slot : slots) {
+      synchronized (slot) {
+        if (slot.samples > 0 && slot.sequence == slot.sampledSequence) stuck.add(slot);
+      }
+    }
+    Collections.sort(stuck, new Comparator<Slot>() {
+
+      @Override
+      public int compare(Slot a, Slot b) {
+        return Long.compare(a.sampledStart, b.sampledStart);
+      }
+
+    });
+
+    StringBuilder report = new StringBuilder().append(this);
+    for (Slot slot : stuck) {
+      synchronized (slot) {
+        if (slot.sequence != slot.sampledSequence) continue;
+        report.append("\r\n<").append(slot.thread.getName()).append("> ").append(slot.taskName)
+            .append(" - running ").append(TimeUnit.NANOSECONDS.toMillis(now - slot.sampledStart))
+            .append(" ms, samples: ").append(slot.samples);
+        for (Map.Entry<String, Integer> stack : slot.sortedStacks()) {
+          report.append("\r\n  ").append(stack.getValue()).append(" x").append(stack.getKey());
+        }
+        if (slot.others > 0) report.append("\r\n  ").append(slot.others).append(" x others");
+      }
+    }
+    return report.toString();
+  }
+
+  public long thresholdMillis() {
+    return thresholdMillis;
+  }
+
+  public void thresholdMillis(long thresholdMillis) {
+    if (thresholdMillis <= 0) throw new IllegalArgumentException("thresholdMillis must be positive");
+    this.thresholdMillis = thresholdMillis;
+  }
+
+  public long intervalMillis() {
+    return intervalMillis;
+  }
+
+  public void intervalMillis(long intervalMillis) {
+    if (intervalMillis <= 0) throw new IllegalArgumentException("intervalMillis must be positive");
+    this.intervalMillis = intervalMillis;
+  }
+
+  /** Stops the watchdog thread at its next wake-up. */
+  public void close() {
+    closed = true;
+  }
+
+  @Override
+  public String toString() {
+    int running = 0;
+    int stuck = 0;
+    for (Slot slot : slots) {
+      final long sequence = slot.sequence;
+      if ((sequence & 1) == 0) continue;
+      ++running;
+      synchronized (slot) {
+        if (slot.samples > 0 && slot.sampledSequence == sequence) ++stuck;
+      }
+    }
+    return "[Watchdog] " + name + " threshold: " + thresholdMillis + " ms, interval: " + intervalMillis
+        + " ms, running: " + running + ", stuck: " + stuck + ", detected: " + detected.get();
+  }
+
+  /** The tracking state of a worker thread, whose fields are written by the thread itself. */
+  private static final class Slot {
+    final Thread thread;
+    volatile Object task;
+    volatile long start;
+    /** Incremented on both enter and exit, odd while a task is running. */
+    volatile long sequence;
+
+    /* Guarded by this, the samples of the stuck task. */
+    long sampledSequence;
+    long sampledStart;
+    String taskName;
+    int samples;
+    int others;
+    final Map<String, Integer> stacks = new HashMap<String, Integer>();
+
+    Slot(Thread thread) {
+      this.thread = thread;
+    }
+
+    synchronized void sampled(long sequence, long start, String name, StackTraceElement[] stack) {
+      if (sampledSequence != sequence) {
+        sampledSequence = sequence;
+        sampledStart = start;
+        taskName = name;
+        samples = 0;
+        others = 0;
+        stacks.clear();
+      }
+      ++samples;
+
+      StringBuilder frames = new StringBuilder();
+      for (int i = 0, n = Math.min(MAX_FRAMES, stack.length); i < n; ++i) {
+        frames.append("\r\n    at ").append(stack[i]);
+      }
+      if (stack.length > MAX_FRAMES) frames.append("\r\n    ...");
+
+      final String key = frames.toString();
+      Integer count = stacks.get(key);
+      if (count != null) {
+        stacks.put(key, count + 1);
+      } else if (stacks.size() < MAX_STACKS) {
+        stacks.put(key, 1);
+      } else {
+        ++others;
+      }
+    }
+
+    /** Returns the stacks, the most frequent first. */
+    List<Map.Entry<String, Integer>> sortedStacks() {
+      List<Map.Entry<String, Integer>> sorted = new ArrayList<Map.Entry<String, Integer>>(stacks.entrySet());
+      Collections.sort(sorted, new Comparator<Map.Entry<String, Integer>>() {
+
+        @Override
+        public int compare(Map.Entry<String, Integer> a, Map.Entry<String, Integer> b) {
+          return b.getValue().compareTo(a.getValue());
+        }
+
+      });
+      return sorted;
+    }
+  }
+}
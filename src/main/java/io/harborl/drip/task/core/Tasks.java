@@ -0,0 +1,225 @@
+package io.harborl.drip.task.core;
+
+import io.harborl.drip.task.core.utils.Util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Some utility functions of {@linkplain AyncTask}.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class Tasks {
+
+  private Tasks() { }
+
+  /**
+   * Returns a task which forwards all of calls to the specified task, 
+   * and notifies the listener after the task's own onSucceed()/onFailure().<br/>
+   * The listener is notified only once, even if onFailure() follows a throwing onSucceed().
+   * The returned task is a {@linkplain CallbackTask} if the specified one is.
+   * 
+   * @param task the task to decorate
+   * @param listener the listener notified when the task completes
+   * @return returns the decorated task
+   */
+  public static AyncTask whenComplete(AyncTask task, Completion listener) {
+    Util.GuardsNull(task, "task is null");
+    Util.GuardsNull(listener, "listener is null");
+
+    return listened(task, listener, null);
+  }
+
+  /**
+   * Returns a task which forwards all of calls to the specified task, 
+   * and notifies the listener with the decorated task after its own onSucceed()/onFailure().<br/>
+   * The listener doesn't hold the task, so the decoration survives the serialization 
+   * of the original task, see {@link #decorationsOf(AyncTask)}. The original task is notified
+   * if it is {@linkplain Recordable}, since the listener records its outcome.
+   * 
+   * @param task the task to decorate
+   * @param listener the listener notified when the task completes
+   * @return returns the decorated task
+   */
+  public static AyncTask whenComplete(AyncTask task, TaskListener listener) {
+    Util.GuardsNull(task, "task is null");
+    Util.GuardsNull(listener, "listener is null");
+
+    return listened(task, null, listener);
+  }
+
+  private static AyncTask listened(AyncTask task, Completion completion, TaskListener listener) {
+    if (listener != null) {
+      final AyncTask original = unwrap(task);
+      if (original instanceof Recordable) ((Recordable) original).recorded();
+    }
+    if (task instanceof CallbackTask) {
+      return new ListenedCallbackTask((CallbackTask) task, completion, listener);
+    }
+    return new ListenedTask(task, completion, listener);
+  }
+
+  /** 
+   * Returns the innermost task decorated by {@link #whenComplete(AyncTask, Completion)}, 
+   * or the task itself if it is not decorated. It is used to serialize the original task.
+   */
+  public static AyncTask unwrap(AyncTask task) {
+    while (task instanceof ListenedTask) {
+      task = ((ListenedTask) task).delegate;
+    }
+    return task;
+  }
+
+  /** 
+   * Returns the innermost cursor of the forwarding cursors, e.g. the ones of a chunk tracked by 
+   * the {@linkplain OutcomeRecorder}, which is the chunk's own view of current row.
+   */
+  static ChunkCursor unwrap(ChunkCursor cursor) {
+    while (cursor instanceof ForwardingCursor) {
+      cursor = ((ForwardingCursor) cursor).delegate;
+    }
+    return cursor;
+  }
+
+  /** 
+   * Returns the listeners of the task's decorations from the outermost one, or an empty array 
+   * if it is not decorated. The task is decorated again through {@link #redecorate(AyncTask, Object[])},
+   * e.g. after the original task is serialized and read back.
+   */
+  static Object[] decorationsOf(AyncTask task) {
+    int depth = 0;
+    for (AyncTask t = task; t instanceof ListenedTask; t = ((ListenedTask) t).delegate) ++depth;
+
+    Object[] listeners = new Object[depth];
+    for (int i = 0; i < depth; ++i, task = ((ListenedTask) task).delegate) {
+      ListenedTask listened = (ListenedTask) task;
+      listeners[i] = listened.completion != null ? listened.completion : listened.listener;
+    }
+    return listeners;
+  }
+
+  /** Decorates the original task with the listeners returned by {@link #decorationsOf(AyncTask)}. */
+  static AyncTask redecorate(AyncTask original, Object[] listeners) {
+    AyncTask task = original;
+    for (int i = listeners.length - 1; i >= 0; --i) {
+      task = listeners[i] instanceof Completion 
+          ? listened(task, (Completion) listeners[i], null) : listened(task, null, (TaskListener) listeners[i]);
+    }
+    return task;
+  }
+
+  /** Materializes all of the tasks of the chunk, for the paths which only take {@linkplain AyncTask}s. */
+  public static List<AyncTask> materialize(TaskChunk chunk) {
+    final int size = chunk.size();
+    List<AyncTask> tasks = new ArrayList<AyncTask>(size);
+    for (int row = 0; row < size; ++row) {
+      tasks.add(chunk.task(row));
+    }
+    return tasks;
+  }
+
+  /** A forwarding task which notifies either the completion or the listener when it completes. */
+  static class ListenedTask implements AyncTask {
+    final AyncTask delegate;
+    final Completion completion;
+    final TaskListener listener;
+
+    /** Whether the completion is reported, an executor calls onFailure() if onSucceed() throws. */
+    final AtomicBoolean reported = new AtomicBoolean();
+
+    ListenedTask(AyncTask delegate, Completion completion, TaskListener listener) {
+      this.delegate = delegate;
+      this.completion = completion;
+      this.listener = listener;
+    }
+
+    @Override
+    public void exec() {
+      delegate.exec();
+    }
+
+    @Override
+    public void onFailure(Throwable th) {
+      try {
+        delegate.onFailure(th);
+      } finally {
+        if (reported.compareAndSet(false, true)) {
+          if (completion != null) completion.fail(th); else listener.failed(delegate, th);
+        }
+      }
+    }
+
+    @Override
+    public void onSucceed() {
+      try {
+        delegate.onSucceed();
+      } finally {
+        if (reported.compareAndSet(false, true)) {
+          if (completion != null) completion.succeed(); else listener.succeeded(delegate);
+        }
+      }
+    }
+
+    @Override
+    public String name() {
+      return delegate.name();
+    }
+  }
+
+  /** A forwarding callback task which notifies the listener when it completes. */
+  static final class ListenedCallbackTask extends ListenedTask implements CallbackTask {
+
+    ListenedCallbackTask(CallbackTask delegate, Completion completion, TaskListener listener) {
+      super(delegate, completion, listener);
+    }
+
+    @Override
+    public void exec(Completion completion) {
+      ((CallbackTask) delegate).exec(completion);
+    }
+  }
+
+  /** A cursor which forwards all of calls to the cursor of the decorated chunk. */
+  abstract static class ForwardingCursor implements ChunkCursor {
+    final ChunkCursor delegate;
+
+    ForwardingCursor(ChunkCursor delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public ChunkCursor moveTo(int row) {
+      delegate.moveTo(row);
+      return this;
+    }
+
+    @Override
+    public int row() {
+      return delegate.row();
+    }
+
+    @Override
+    public void exec() {
+      delegate.exec();
+    }
+
+    @Override
+    public void onFailure(Throwable th) {
+      delegate.onFailure(th);
+    }
+
+    @Override
+    public void onSucceed() {
+      delegate.onSucceed();
+    }
+
+    @Override
+    public String name() {
+      return delegate.name();
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package io.harborl.drip.task.core;
+
+/**
+ * A Tenanted task belongs to a tenant, such as the customer of a drip campaign,
+ * which is used to share the throughput fairly across tenants.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface Tenanted {
+
+  /** Returns the tenant of this task, or null if it has no tenant. */
+  String tenant();
+}
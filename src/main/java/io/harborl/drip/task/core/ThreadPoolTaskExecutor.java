@@ -1,22 +1,66 @@
 package io.harborl.drip.task.core;
 
+import io.harborl.drip.task.core.events.TaskExecEvent;
+import io.harborl.drip.task.core.events.TaskQueueEvent;
+import io.harborl.drip.task.core.utils.Settings;
+
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A thread pool based task executor implementation.
  * It used the {@link ThreadPoolExecutor} as the underlying executor
  * and provides a graceful shutdown method.
+ * <p/>
+ * A {@linkplain CallbackTask} only occupies a worker thread while it is starting,
+ * its completion is tracked through the callback, so the thread returns to the pool
+ * during the whole round-trip.
+ * <p/>
+ * With a {@linkplain GradientConcurrencyLimit}, at most {@code limit} tasks run or wait for
+ * their callbacks at a time, a worker thread waits for a permit before it starts the next task.
+ * The pool size follows the limit, which is updated by the latency of every completed task
+ * along with the count of the tasks in use, the queued ones are not counted.
+ * <p/>
+ * A task which can't be queued, because the bounded queue is full or the executor has shut down,
+ * is rejected: it fails with a {@code RejectedExecutionException} and counts down the latch,
+ * the submitter never runs it, so a slow pool never blocks the others' submission.
+ * <p/>
+ * A {@linkplain TaskChunk} is run in ranges of rows, each range takes one queue slot and 
+ * reads its rows through one cursor, so no task object is created per row.
+ * <p/>
+ * A {@linkplain TaskWatchdog} tracks the running tasks, the stacks of the ones running past 
+ * {@code watchdog.threshold} milliseconds are sampled every {@code watchdog.interval} milliseconds,
+ * which are reported through the {@linkplain Diagnosable} interface.
+ * <p/>
+ * Settings: {@code concurrency} for a fixed concurrent level, 
+ * {@code concurrency.min} and {@code concurrency.max} for the adaptive limit's bounds,
+ * {@code watchdog.threshold} and {@code watchdog.interval} for the watchdog.
  * 
  * @author Harbor Luo
  * @since 0.0.1
  *
  */
-public final class ThreadPoolTaskExecutor implements TaskExecutor {
+public final class ThreadPoolTaskExecutor implements ChunkTaskExecutor, Configurable, Diagnosable {
+
+  /** The upper bound of the concurrent level which can be set at runtime. */
+  private static final int MAX_CONCURRENCY = 4096;
+
+  /** The ranges of a chunk per worker thread, which balances the uneven rows, and the max rows of a range. */
+  private static final int RANGES_PER_THREAD = 4;
+  private static final int MAX_RANGE = 256;
+
+  /** The default running time after which a task is stuck, and the stack sampling interval. */
+  private static final long WATCHDOG_THRESHOLD_MILLIS = 10000;
+  private static final long WATCHDOG_INTERVAL_MILLIS = 1000;
 
   /** 
    * Thanks to bellow thread pool based underlying executor provided by Doug Lea,<br/>
@@ -24,24 +68,75 @@ public final class ThreadPoolTaskExecutor implements TaskExecutor {
    */
   private final ThreadPoolExecutor implService;
   
+  /** The adaptive concurrency limit, it might be null for a fixed concurrent level. */
+  private final GradientConcurrencyLimit limit;
+
+  /** The watchdog of the running tasks. */
+  private final TaskWatchdog watchdog;
+  
+  /** Guarded by this, the count of started callback tasks which are not completed yet. */
+  private int inFlight;
+
+  /** Guarded by this, the count of tasks running or waiting for their callbacks, only counted with a limit. */
+  private int inUse;
+
+  /** The count of tasks rejected by the full queue or the shutdown. */
+  private final AtomicLong rejected = new AtomicLong();
+  
   /** Constructs a instance with the specified concurrent level. */
   public ThreadPoolTaskExecutor(int concurentLevel) {
-    this.implService = (ThreadPoolExecutor)Executors.newFixedThreadPool(concurentLevel, new ThreadFactory() {
+    this(concurentLevel, Integer.MAX_VALUE, null);
+  }
 
-      @Override
-      public Thread newThread(Runnable r) {
-        Thread thread = new Thread(r, "[Task Executor] - consumer - ");
-        thread.setDaemon(false);
-        return thread;
-      }
+  /** Constructs a instance whose concurrent level adapts to the specified limit. */
+  public ThreadPoolTaskExecutor(GradientConcurrencyLimit limit) {
+    this(limit.limit(), Integer.MAX_VALUE, limit);
+  }
 
-    });
+  /** 
+   * Constructs a instance with the specified concurrent level and a bounded queue.
+   * When the queue is full, the new tasks are rejected rather than blocking the submitter,
+   * which isolates a slow pool from the others sharing the submitting thread.
+   */
+  public ThreadPoolTaskExecutor(int concurentLevel, int queueCapacity) {
+    this(concurentLevel, queueCapacity, null);
+  }
+
+  private ThreadPoolTaskExecutor(
+      int concurentLevel, int queueCapacity, GradientConcurrencyLimit limit) {
+    this.limit = limit;
+    this.watchdog = TaskWatchdog.valueOf("[Task Executor]", WATCHDOG_THRESHOLD_MILLIS, WATCHDOG_INTERVAL_MILLIS);
+    this.implService = new ThreadPoolExecutor(concurentLevel, concurentLevel,
+        0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(queueCapacity),
+        new ThreadFactory() {
+
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "[Task Executor] - consumer - ");
+            thread.setDaemon(false);
+            return thread;
+          }
+
+      });
   }
 
   @Override
   public void shudownAndAwait(long timeout, TimeUnit unit) throws InterruptedException {
+    final long start = System.nanoTime();
+    final long nanos = unit.toNanos(timeout);
     implService.shutdown();
     implService.awaitTermination(timeout, unit);
+    watchdog.close();
+    
+    /* The workers have gone, but the started callback tasks might be still in flight. */
+    synchronized (this) {
+      long remaining = nanos - (System.nanoTime() - start);
+      while (inFlight > 0 && remaining > 0) {
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        remaining = nanos - (System.nanoTime() - start);
+      }
+    }
   }
 
   @Override
@@ -49,19 +144,7 @@ public final class ThreadPoolTaskExecutor implements TaskExecutor {
     if (tasks == null || tasks.size() == 0) return;
     
     for (final AyncTask task : tasks) {
-      implService.execute(new NamedRunnable("[Task Executor] - consumer - %s", task.name()) {
-
-        @Override
-        public void exec() {
-          try {
-            task.exec();
-            task.onSucceed();
-          } catch (Throwable th) {
-            task.onFailure(th);
-          }
-        }
-
-      });
+      execute(task, null);
     }
   }
   
@@ -70,27 +153,314 @@ public final class ThreadPoolTaskExecutor implements TaskExecutor {
     if (tasks == null || tasks.size() == 0) return;
     
     for (final AyncTask task : tasks) {
-      implService.execute(new NamedRunnable("[Task Executor] - consumer - %s", task.name()) {
-
-        @Override
-        public void exec() {
-          try {
-            task.exec();
-            task.onSucceed();
-          } catch (Throwable th) {
-            task.onFailure(th);
-          } finally {
-            latch.countDown();
+      execute(task, latch);
+    }
+  }
+
+  @Override
+  public void submit(final TaskChunk chunk, final CountDownLatch latch) {
+    final int size = chunk == null ? 0 : chunk.size();
+    if (size == 0) return;
+
+    final int range = Math.max(1, Math.min(MAX_RANGE, size / (implService.getCorePoolSize() * RANGES_PER_THREAD)));
+    for (int from = 0; from < size; from += range) {
+      final int first = from;
+      final int last = Math.min(size, from + range);
+      try {
+        implService.execute(new NamedRunnable("[Task Executor] - consumer - rows %d-%d", first, last - 1) {
+
+          @Override
+          public void exec() {
+            ChunkCursor cursor = chunk.cursor();
+            for (int row = first; row < last; ++row) {
+              execute(cursor.moveTo(row), latch);
+            }
           }
+
+        });
+      } catch (RejectedExecutionException e) {
+        ChunkCursor cursor = chunk.cursor();
+        for (int row = first; row < last; ++row) {
+          rejected(cursor.moveTo(row), latch, e);
         }
+      }
+    }
+  }
 
-      });
+  /** Executes the row of the cursor, counts down the latch when it completes. */
+  private void execute(ChunkCursor cursor, CountDownLatch latch) {
+    acquire();
+    final long start = System.nanoTime();
+    final TaskExecEvent event = TaskExecEvent.recording() ? TaskExecEvent.begin(cursor.name(), false) : null;
+    boolean succeeded = false;
+    watchdog.enter(cursor, start);
+    try {
+      cursor.exec();
+      succeeded = true;
+      cursor.onSucceed();
+    } catch (Throwable th) {
+      succeeded = false;
+      cursor.onFailure(th);
+    } finally {
+      watchdog.exit();
+      sample(start, release());
+      if (event != null) event.finish(succeeded);
+      if (latch != null) latch.countDown();
+    }
+  }
+
+  /** Executes a single task, counts down the latch if any when the task completes. */
+  private void execute(final AyncTask task, final CountDownLatch latch) {
+    final TaskQueueEvent queued = TaskQueueEvent.recording() ? TaskQueueEvent.begin(task.name()) : null;
+    try {
+      implService.execute(newRunnable(task, latch, queued));
+    } catch (RejectedExecutionException e) {
+      rejected(task, latch, e);
+    }
+  }
+
+  /** Fails the task which can't be queued, and counts down the latch as it completes. */
+  private void rejected(AyncTask task, CountDownLatch latch, RejectedExecutionException e) {
+    rejected.incrementAndGet();
+    try {
+      task.onFailure(e);
+    } catch (Throwable ignored) {
+    } finally {
+      if (latch != null) latch.countDown();
+    }
+  }
+
+  /** Fails the row which can't be queued, and counts down the latch as it completes. */
+  private void rejected(ChunkCursor cursor, CountDownLatch latch, RejectedExecutionException e) {
+    rejected.incrementAndGet();
+    try {
+      cursor.onFailure(e);
+    } catch (Throwable ignored) {
+    } finally {
+      if (latch != null) latch.countDown();
+    }
+  }
+
+  /** Returns the runnable which executes the task in the pool. */
+  private NamedRunnable newRunnable(final AyncTask task, final CountDownLatch latch, final TaskQueueEvent queued) {
+    return new NamedRunnable("[Task Executor] - consumer - %s", task.name()) {
+
+      @Override
+      public void exec() {
+        if (queued != null) queued.commit();
+
+        acquire();
+        final long start = System.nanoTime();
+        if (task instanceof CallbackTask) {
+          start((CallbackTask) task, latch, start);
+          return;
+        }
+
+        final TaskExecEvent event = TaskExecEvent.recording() ? TaskExecEvent.begin(task.name(), false) : null;
+        boolean succeeded = false;
+        watchdog.enter(task, start);
+        try {
+          task.exec();
+          succeeded = true;
+          task.onSucceed();
+        } catch (Throwable th) {
+          succeeded = false;
+          task.onFailure(th);
+        } finally {
+          watchdog.exit();
+          sample(start, release());
+          if (event != null) event.finish(succeeded);
+          if (latch != null) latch.countDown();
+        }
+      }
+
+    };
+  }
+
+  /** Starts a callback task, the latch counts down when the completion is reported. */
+  private void start(final CallbackTask task, final CountDownLatch latch, final long start) {
+    synchronized (this) {
+      ++inFlight;
+    }
+
+    final TaskExecEvent event = TaskExecEvent.recording() ? TaskExecEvent.begin(task.name(), true) : null;
+    Completion completion = new Completion() {
+      final AtomicBoolean reported = new AtomicBoolean();
+
+      @Override
+      public void succeed() {
+        if (!reported.compareAndSet(false, true)) return;
+        try {
+          task.onSucceed();
+        } finally {
+          if (event != null) event.finish(true);
+          completed(latch, start);
+        }
+      }
+
+      @Override
+      public void fail(Throwable th) {
+        if (!reported.compareAndSet(false, true)) return;
+        try {
+          task.onFailure(th);
+        } finally {
+          if (event != null) event.finish(false);
+          completed(latch, start);
+        }
+      }
+
+    };
+
+    /* Only the starting is watched, the thread returns to the pool during the round-trip. */
+    watchdog.enter(task, start);
+    try {
+      task.exec(completion);
+    } catch (Throwable th) {
+      completion.fail(th);
+    } finally {
+      watchdog.exit();
+    }
+  }
+
+  /** Marks a callback task completed. */
+  private void completed(CountDownLatch latch, long start) {
+    synchronized (this) {
+      if (--inFlight == 0) notifyAll();
+    }
+    sample(start, release());
+    if (latch != null) latch.countDown();
+  }
+
+  /** Waits for a permit of the limit to start a task, it returns immediately without a limit. */
+  private void acquire() {
+    if (limit == null) return;
+
+    synchronized (this) {
+      while (inUse >= limit.limit()) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          /* Still starts the task, since it is taken from the queue already. */
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+      ++inUse;
+    }
+  }
+
+  /** Returns the permit of a completed task, returns the count of tasks in use including it. */
+  private int release() {
+    if (limit == null) return 0;
+
+    synchronized (this) {
+      /* Wakes up the shutdown as well, which waits on the same monitor. */
+      notifyAll();
+      return inUse--;
+    }
+  }
+
+  /** Feeds the latency of a completed task to the limit, and resizes the pool if it changes. */
+  private void sample(long start, int inUse) {
+    if (limit == null) return;
+
+    final int newLimit = limit.onSample(System.nanoTime() - start, inUse);
+    if (newLimit != implService.getCorePoolSize()) {
+      resize(newLimit);
+    }
+  }
+
+  /** Resizes the pool, the core size must never exceed the maximum size. */
+  private synchronized void resize(int poolSize) {
+    if (poolSize > implService.getMaximumPoolSize()) {
+      implService.setMaximumPoolSize(poolSize);
+      implService.setCorePoolSize(poolSize);
+    } else {
+      implService.setCorePoolSize(poolSize);
+      implService.setMaximumPoolSize(poolSize);
     }
   }
 
   @Override
   public int size() {
-    return implService.getQueue().size() + implService.getActiveCount();
+    int callbacks;
+    synchronized (this) {
+      callbacks = inFlight;
+    }
+    return implService.getQueue().size() + implService.getActiveCount() + callbacks;
+  }
+
+  @Override
+  public String get(String key) {
+    if ("concurrency".equals(key)) {
+      return String.valueOf(limit == null ? implService.getCorePoolSize() : limit.limit());
+    } else if (limit != null && "concurrency.min".equals(key)) {
+      return String.valueOf(limit.minLimit());
+    } else if (limit != null && "concurrency.max".equals(key)) {
+      return String.valueOf(limit.maxLimit());
+    } else if ("watchdog.threshold".equals(key)) {
+      return String.valueOf(watchdog.thresholdMillis());
+    } else if ("watchdog.interval".equals(key)) {
+      return String.valueOf(watchdog.intervalMillis());
+    }
+    return null;
+  }
+
+  @Override
+  public boolean set(String key, String value) {
+    if ("concurrency".equals(key)) {
+      if (limit != null) 
+        throw new IllegalArgumentException("concurrency is adaptive, sets concurrency.min or concurrency.max instead");
+      resize(Settings.intIn(key, value, 1, MAX_CONCURRENCY));
+      return true;
+    } else if (limit != null && "concurrency.min".equals(key)) {
+      resize(limit.bounds(Settings.intIn(key, value, 1, limit.maxLimit()), limit.maxLimit()));
+      return true;
+    } else if (limit != null && "concurrency.max".equals(key)) {
+      resize(limit.bounds(limit.minLimit(), Settings.intIn(key, value, limit.minLimit(), MAX_CONCURRENCY)));
+      return true;
+    } else if ("watchdog.threshold".equals(key)) {
+      watchdog.thresholdMillis(Settings.longIn(key, value, 1, Integer.MAX_VALUE));
+      return true;
+    } else if ("watchdog.interval".equals(key)) {
+      watchdog.intervalMillis(Settings.longIn(key, value, 10, Integer.MAX_VALUE));
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public Map<String, String> settings() {
+    Map<String, String> settings = new LinkedHashMap<String, String>();
+    settings.put("concurrency", get("concurrency"));
+    if (limit != null) {
+      settings.put("concurrency.min", get("concurrency.min"));
+      settings.put("concurrency.max", get("concurrency.max"));
+    }
+    settings.put("watchdog.threshold", get("watchdog.threshold"));
+    settings.put("watchdog.interval", get("watchdog.interval"));
+    return settings;
+  }
+
+  @Override
+  public String info() {
+    int callbacks, used;
+    synchronized (this) {
+      callbacks = inFlight;
+      used = inUse;
+    }
+    return "[Task executor] pool size: " + implService.getCorePoolSize()
+        + ", active: " + implService.getActiveCount()
+        + ", pending: " + implService.getQueue().size()
+        + ", in-flight callbacks: " + callbacks
+        + (limit == null ? "" : ", in use: " + used)
+        + ", rejected: " + rejected.get()
+        + (limit == null ? "" : ", adaptive " + limit);
+  }
+
+  @Override
+  public String threads() {
+    return watchdog.report();
   }
 
 }
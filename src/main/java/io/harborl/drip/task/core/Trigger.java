@@ -0,0 +1,14 @@
+package io.harborl.drip.task.core;
+
+/**
+ * A Trigger decides when the next round of a stream starts.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface Trigger {
+
+  /** Returns the time in milliseconds of the next round, which follows the round started at the specified time. */
+  long next(long roundStartMillis);
+}
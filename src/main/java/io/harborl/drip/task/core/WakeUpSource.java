@@ -0,0 +1,16 @@
+package io.harborl.drip.task.core;
+
+/**
+ * A WakeUpSource is a task stream which knows when new tasks arrive, 
+ * such as a stream fed by a message queue or a database notification.
+ * The scheduler registers a hook on start, which triggers the next fetch early.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface WakeUpSource {
+
+  /** Registers the hook which is invoked when new tasks arrive. */
+  void wakeUpWith(Runnable hook);
+}
@@ -0,0 +1,34 @@
+package io.harborl.drip.task.core.codec;
+
+import io.harborl.drip.task.core.AyncTask;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A TaskCodec encodes the type specific payload of a task, 
+ * the common header is written by {@linkplain TaskCodecs}.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface TaskCodec<T extends AyncTask> {
+
+  /** Returns the type tag, which must be unique within a registry. */
+  int tag();
+
+  /** Returns the task type. */
+  Class<T> type();
+
+  /** Returns the id of the task, e.g. the one generated by {@code IDs}. */
+  long id(T task);
+
+  /** Returns the payload size of the task in bytes. */
+  int payloadSize(T task);
+
+  /** Writes the payload at the buffer's position, which writes exactly {@code payloadSize(task)} bytes. */
+  void encode(T task, ByteBuffer buffer);
+
+  /** Materializes a task from the view. */
+  T decode(TaskView view);
+}
@@ -0,0 +1,100 @@
+package io.harborl.drip.task.core.codec;
+
+import io.harborl.drip.task.core.AyncTask;
+import io.harborl.drip.task.core.TaskSerializer;
+import io.harborl.drip.task.core.utils.Util;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A registry of {@linkplain TaskCodec}s, which maps the type tags and task types to codecs.<br/>
+ * <p/>
+ * It is the single serialization path of tasks, every feature which moves tasks 
+ * off heap or across processes shares it through the {@linkplain TaskSerializer} interface. 
+ * The record layout is described in {@linkplain TaskView}.
+ * <p/>
+ * The registry is immutable once it is created, so it is thread-safe.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class TaskCodecs implements TaskSerializer {
+
+  private final Map<Integer, TaskCodec<?>> byTag;
+  private final Map<Class<?>, TaskCodec<?>> byType;
+
+  private TaskCodecs(Map<Integer, TaskCodec<?>> byTag, Map<Class<?>, TaskCodec<?>> byType) {
+    this.byTag = byTag;
+    this.byType = byType;
+  }
+
+  /** Creates a registry of the specified codecs, the tags and types must be unique. */
+  public static TaskCodecs valueOf(TaskCodec<?>... codecs) {
+    Map<Integer, TaskCodec<?>> byTag = new HashMap<Integer, TaskCodec<?>>();
+    Map<Class<?>, TaskCodec<?>> byType = new HashMap<Class<?>, TaskCodec<?>>();
+    for (TaskCodec<?> codec : codecs) {
+      Util.GuardsNull(codec, "codec is null");
+      if (codec.tag() < 0) throw new IllegalArgumentException("Negative tag - " + codec.tag());
+      if (byTag.put(codec.tag(), codec) != null) 
+        throw new IllegalArgumentException("Duplicated tag - " + codec.tag());
+      if (byType.put(codec.type(), codec) != null) 
+        throw new IllegalArgumentException("Duplicated type - " + codec.type());
+    }
+    return new TaskCodecs(byTag, byType);
+  }
+
+  /** Returns the codec of the task's exact type, or null if it is not registered. */
+  @SuppressWarnings("unchecked")
+  private <T extends AyncTask> TaskCodec<T> codecOf(T task) {
+    return task == null ? null : (TaskCodec<T>) byType.get(task.getClass());
+  }
+
+  /** Returns the codec of the tag, or null if it is not registered. */
+  public TaskCodec<?> codecOf(int tag) {
+    return byTag.get(tag);
+  }
+
+  @Override
+  public int sizeOf(AyncTask task) {
+    TaskCodec<AyncTask> codec = codecOf(task);
+    return codec == null ? -1 : TaskView.sizeOf(codec.tag(), codec.payloadSize(task));
+  }
+
+  @Override
+  public void write(AyncTask task, ByteBuffer buffer) {
+    TaskCodec<AyncTask> codec = codecOf(task);
+    if (codec == null) throw new IllegalArgumentException("Unregistered task type - " + task.getClass());
+
+    final int payloadSize = codec.payloadSize(task);
+    buffer.put(TaskView.VERSION);
+    Varints.put(buffer, codec.tag());
+    buffer.putLong(codec.id(task));
+    Varints.put(buffer, payloadSize);
+
+    final int payloadStart = buffer.position();
+    codec.encode(task, buffer);
+    if (buffer.position() - payloadStart != payloadSize) {
+      throw new IllegalStateException("Payload size mismatch - " + codec.type());
+    }
+  }
+
+  @Override
+  public AyncTask read(ByteBuffer buffer) {
+    TaskView view = new TaskView().wrap(buffer, buffer.position());
+    AyncTask task = decode(view);
+    /* Calls through Buffer, the covariant overrides of ByteBuffer don't exist on Java 8. */
+    ((Buffer) buffer).position(buffer.position() + view.length());
+    return task;
+  }
+
+  /** Materializes the task of the view. */
+  public AyncTask decode(TaskView view) {
+    TaskCodec<?> codec = byTag.get(view.tag());
+    if (codec == null) throw new IllegalArgumentException("Unregistered task tag - " + view.tag());
+    return codec.decode(view);
+  }
+}
@@ -0,0 +1,87 @@
+package io.harborl.drip.task.core.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A flyweight reader of an encoded task record, which reads the fields 
+ * in place without materializing the task. It can be re-wrapped over 
+ * another record, so one view is enough to scan a whole buffer.<br/>
+ * <p/>
+ * The record layout is:
+ * <pre>
+ * +---------+-------------+----------+----------------+---------+
+ * | version | tag         | id       | payload length | payload |
+ * | 1 byte  | varint      | 8 bytes  | varint         | ...     |
+ * +---------+-------------+----------+----------------+---------+
+ * </pre>
+ * The id takes fixed 8 bytes, because the domain bits of {@code IDs} are the high ones.
+ * <p/>
+ * <strong><tt>Note:</tt></strong> It is not thread-safe.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class TaskView {
+
+  /** The current version of record layout. */
+  public static final byte VERSION = 1;
+
+  private ByteBuffer buffer;
+  private int offset;
+  private int tagSize;
+  private int payloadOffset;
+  private int payloadLength;
+
+  /** Wraps the record at the specified offset of the buffer, returns this view. */
+  public TaskView wrap(ByteBuffer buffer, int offset) {
+    final byte version = buffer.get(offset);
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unsupported task record version - " + version);
+    }
+
+    this.buffer = buffer;
+    this.offset = offset;
+    this.tagSize = Varints.sizeAt(buffer, offset + 1);
+
+    final int lengthOffset = offset + 1 + tagSize + 8;
+    this.payloadLength = (int) Varints.get(buffer, lengthOffset);
+    this.payloadOffset = lengthOffset + Varints.sizeAt(buffer, lengthOffset);
+    return this;
+  }
+
+  /** Returns the type tag. */
+  public int tag() {
+    return (int) Varints.get(buffer, offset + 1);
+  }
+
+  /** Returns the task id. */
+  public long id() {
+    return buffer.getLong(offset + 1 + tagSize);
+  }
+
+  /** Returns the underlying buffer. */
+  public ByteBuffer buffer() {
+    return buffer;
+  }
+
+  /** Returns the absolute index of payload in the buffer. */
+  public int payloadOffset() {
+    return payloadOffset;
+  }
+
+  /** Returns the payload length. */
+  public int payloadLength() {
+    return payloadLength;
+  }
+
+  /** Returns the whole record length, the next record starts at {@code offset + length()}. */
+  public int length() {
+    return payloadOffset + payloadLength - offset;
+  }
+
+  /** Returns the encoded size of a record with the specified tag and payload size. */
+  static int sizeOf(int tag, int payloadSize) {
+    return 1 + Varints.sizeOf(tag) + 8 + Varints.sizeOf(payloadSize) + payloadSize;
+  }
+}
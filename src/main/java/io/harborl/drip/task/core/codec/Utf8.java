@@ -0,0 +1,77 @@
+package io.harborl.drip.task.core.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Writes the strings into buffers as UTF-8 without the intermediate byte arrays.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class Utf8 {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private Utf8() { }
+
+  /** Returns the UTF-8 encoded length of the string, an unpaired surrogate takes 1 byte as '?'. */
+  public static int sizeOf(String string) {
+    int size = 0;
+    for (int i = 0, n = string.length(); i < n; ++i) {
+      final char c = string.charAt(i);
+      if (c < 0x80) {
+        size += 1;
+      } else if (c < 0x800) {
+        size += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(string.charAt(i + 1))) {
+        size += 4;
+        ++i;
+      } else if (Character.isSurrogate(c)) {
+        size += 1;
+      } else {
+        size += 3;
+      }
+    }
+    return size;
+  }
+
+  /** Writes the string at the buffer's position, which writes exactly {@code sizeOf(string)} bytes. */
+  public static void put(ByteBuffer buffer, String string) {
+    for (int i = 0, n = string.length(); i < n; ++i) {
+      final char c = string.charAt(i);
+      if (c < 0x80) {
+        buffer.put((byte) c);
+      } else if (c < 0x800) {
+        buffer.put((byte) (0xC0 | (c >> 6)));
+        buffer.put((byte) (0x80 | (c & 0x3F)));
+      } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(string.charAt(i + 1))) {
+        final int cp = Character.toCodePoint(c, string.charAt(++i));
+        buffer.put((byte) (0xF0 | (cp >> 18)));
+        buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+        buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+        buffer.put((byte) (0x80 | (cp & 0x3F)));
+      } else if (Character.isSurrogate(c)) {
+        buffer.put((byte) '?');
+      } else {
+        buffer.put((byte) (0xE0 | (c >> 12)));
+        buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+        buffer.put((byte) (0x80 | (c & 0x3F)));
+      }
+    }
+  }
+
+  /** Reads a string of the specified length at the specified index. */
+  public static String get(ByteBuffer buffer, int index, int length) {
+    if (buffer.hasArray()) {
+      return new String(buffer.array(), buffer.arrayOffset() + index, length, UTF_8);
+    }
+
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; ++i) {
+      bytes[i] = buffer.get(index + i);
+    }
+    return new String(bytes, UTF_8);
+  }
+}
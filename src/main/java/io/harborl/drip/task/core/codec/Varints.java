@@ -0,0 +1,66 @@
+package io.harborl.drip.task.core.codec;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * The unsigned LEB128 variable length integer encoding, 
+ * which takes one byte for each 7 bits of the value.<br/>
+ * <p/>
+ * The absolute readers don't move the buffer's position, which is used by the flyweight views.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class Varints {
+
+  private Varints() { }
+
+  /** Returns the encoded size of the value, a negative value takes 10 bytes. */
+  public static int sizeOf(long value) {
+    int size = 1;
+    while ((value & ~0x7FL) != 0) {
+      value >>>= 7;
+      ++size;
+    }
+    return size;
+  }
+
+  /** Writes the value at the buffer's position. */
+  public static void put(ByteBuffer buffer, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  /** Reads a value at the buffer's position. */
+  public static long get(ByteBuffer buffer) {
+    final long value = get(buffer, buffer.position());
+    /* Calls through Buffer, the covariant overrides of ByteBuffer don't exist on Java 8. */
+    ((Buffer) buffer).position(buffer.position() + sizeAt(buffer, buffer.position()));
+    return value;
+  }
+
+  /** Reads a value at the specified index. */
+  public static long get(ByteBuffer buffer, int index) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      final byte b = buffer.get(index++);
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) return value;
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+
+  /** Returns the size of the encoded value at the specified index. */
+  public static int sizeAt(ByteBuffer buffer, int index) {
+    int size = 1;
+    while (buffer.get(index++) < 0) {
+      if (++size > 10) throw new IllegalArgumentException("Malformed varint");
+    }
+    return size;
+  }
+}
@@ -0,0 +1,40 @@
+package io.harborl.drip.task.core.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event of a {@code TaskStream.nextChunk()} call.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+@Name("io.harborl.drip.ChunkFetch")
+@Label("Chunk Fetch")
+@Category({"Drip Task", "Scheduler"})
+@Description("Fetches the next chunk from the task stream")
+public final class ChunkFetchEvent extends Event {
+
+  private static final EventType TYPE = EventType.getEventType(ChunkFetchEvent.class);
+
+  @Label("Round")
+  public long round;
+
+  @Label("Chunk Size")
+  public int chunkSize;
+
+  /** Begins an event of the fetch, returns null when it is not recorded. */
+  public static ChunkFetchEvent begin(long round) {
+    if (!TYPE.isEnabled()) return null;
+
+    ChunkFetchEvent event = new ChunkFetchEvent();
+    event.round = round;
+    event.begin();
+    return event;
+  }
+}
@@ -0,0 +1,41 @@
+package io.harborl.drip.task.core.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event of the scheduler waiting a submitted chunk to complete.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+@Name("io.harborl.drip.ChunkWait")
+@Label("Chunk Wait")
+@Category({"Drip Task", "Scheduler"})
+@Description("The scheduler waits all of tasks of the chunk to complete")
+public final class ChunkWaitEvent extends Event {
+
+  private static final EventType TYPE = EventType.getEventType(ChunkWaitEvent.class);
+
+  @Label("Round")
+  public long round;
+
+  @Label("Chunk Size")
+  public int chunkSize;
+
+  /** Begins an event of the wait, returns null when it is not recorded. */
+  public static ChunkWaitEvent begin(long round, int chunkSize) {
+    if (!TYPE.isEnabled()) return null;
+
+    ChunkWaitEvent event = new ChunkWaitEvent();
+    event.round = round;
+    event.chunkSize = chunkSize;
+    event.begin();
+    return event;
+  }
+}
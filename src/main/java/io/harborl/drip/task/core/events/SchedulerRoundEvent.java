@@ -0,0 +1,41 @@
+package io.harborl.drip.task.core.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event of a whole scheduler round, 
+ * from fetching the chunk to all of its tasks complete.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+@Name("io.harborl.drip.SchedulerRound")
+@Label("Scheduler Round")
+@Category({"Drip Task", "Scheduler"})
+@Description("A scheduler round, from fetching the chunk to all of its tasks complete")
+public final class SchedulerRoundEvent extends Event {
+
+  private static final EventType TYPE = EventType.getEventType(SchedulerRoundEvent.class);
+
+  @Label("Round")
+  public long round;
+
+  @Label("Chunk Size")
+  public int chunkSize;
+
+  /** Begins an event of the round, returns null when it is not recorded. */
+  public static SchedulerRoundEvent begin(long round) {
+    if (!TYPE.isEnabled()) return null;
+
+    SchedulerRoundEvent event = new SchedulerRoundEvent();
+    event.round = round;
+    event.begin();
+    return event;
+  }
+}
@@ -0,0 +1,58 @@
+package io.harborl.drip.task.core.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event of a task execution, it begins when a worker 
+ * starts the task and ends when the task completes, for a callback task
+ * it ends when the completion is reported.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+@Name("io.harborl.drip.TaskExec")
+@Label("Task Execution")
+@Category({"Drip Task", "Task"})
+@Description("A task execution, from the start to the completion")
+public final class TaskExecEvent extends Event {
+
+  private static final EventType TYPE = EventType.getEventType(TaskExecEvent.class);
+
+  @Label("Task Name")
+  public String taskName;
+
+  @Label("Callback")
+  @Description("Whether the task completes through a callback")
+  public boolean callback;
+
+  @Label("Succeeded")
+  public boolean succeeded;
+
+  /** Returns whether the event is recorded, which saves building the task name when it's not. */
+  public static boolean recording() {
+    return TYPE.isEnabled();
+  }
+
+  /** Begins an event of the started task, returns null when it is not recorded. */
+  public static TaskExecEvent begin(String taskName, boolean callback) {
+    if (!TYPE.isEnabled()) return null;
+
+    TaskExecEvent event = new TaskExecEvent();
+    event.taskName = taskName;
+    event.callback = callback;
+    event.begin();
+    return event;
+  }
+
+  /** Ends the event with the outcome and commits it. */
+  public void finish(boolean succeeded) {
+    this.succeeded = succeeded;
+    commit();
+  }
+}
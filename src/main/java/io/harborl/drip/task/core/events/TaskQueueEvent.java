@@ -0,0 +1,43 @@
+package io.harborl.drip.task.core.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event of a task waiting in the executor queue,
+ * it begins when the task is enqueued and ends when a worker starts it.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+@Name("io.harborl.drip.TaskQueue")
+@Label("Task Queue Wait")
+@Category({"Drip Task", "Task"})
+@Description("A task waits in the executor queue, from the enqueue to the start")
+public final class TaskQueueEvent extends Event {
+
+  private static final EventType TYPE = EventType.getEventType(TaskQueueEvent.class);
+
+  @Label("Task Name")
+  public String taskName;
+
+  /** Returns whether the event is recorded, which saves building the task name when it's not. */
+  public static boolean recording() {
+    return TYPE.isEnabled();
+  }
+
+  /** Begins an event of the enqueued task, returns null when it is not recorded. */
+  public static TaskQueueEvent begin(String taskName) {
+    if (!TYPE.isEnabled()) return null;
+
+    TaskQueueEvent event = new TaskQueueEvent();
+    event.taskName = taskName;
+    event.begin();
+    return event;
+  }
+}
@@ -0,0 +1,172 @@
+package io.harborl.drip.task.core.remote;
+
+import io.harborl.drip.task.core.codec.Utf8;
+import io.harborl.drip.task.core.codec.Varints;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * The frames of the remote worker protocol.<br/>
+ * <p/>
+ * Every frame is length prefixed, the length counts the type and the body:
+ * <pre>
+ * +---------+--------+------+
+ * | length  | type   | body |
+ * | 4 bytes | 1 byte | ...  |
+ * +---------+--------+------+
+ * </pre>
+ * The bodies are:
+ * <ul>
+ *   <li><strong>HELLO</strong> (scheduler to worker): the random nonce of {@value #NONCE_BYTES} bytes,
+ *   it is the first frame of a connection.</li>
+ *   <li><strong>AUTH</strong> (worker to scheduler): the HMAC-SHA256 of the nonce keyed by the shared secret,
+ *   the scheduler drops the connection unless it matches, no task is sent before.</li>
+ *   <li><strong>BATCH</strong> (scheduler to worker): 8 bytes batch id, 4 bytes count,
+ *   then per task 8 bytes sequence followed by the task record of {@code TaskView}.</li>
+ *   <li><strong>ACK</strong> (worker to scheduler): 8 bytes batch id, 4 bytes count of the received tasks.</li>
+ *   <li><strong>RESULT</strong> (worker to scheduler): 4 bytes count, then per task 8 bytes sequence,
+ *   1 byte status, and a varint length prefixed UTF-8 message if the task failed.</li>
+ *   <li><strong>HEARTBEAT</strong> (both directions): empty.</li>
+ * </ul>
+ * The sequence is assigned by the scheduler, so a task reassigned to another worker keeps its sequence.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+final class Frames {
+
+  static final byte BATCH = 1;
+  static final byte ACK = 2;
+  static final byte RESULT = 3;
+  static final byte HEARTBEAT = 4;
+  static final byte HELLO = 5;
+  static final byte AUTH = 6;
+
+  static final byte SUCCEEDED = 0;
+  static final byte FAILED = 1;
+
+  /** The upper bound of a frame, which protects the reader from a corrupted length. */
+  static final int MAX_LENGTH = 64 * 1024 * 1024;
+
+  /** The bytes of the handshake's nonce and proof. */
+  static final int NONCE_BYTES = 16;
+  static final int PROOF_BYTES = 32;
+
+  private static final int HEADER_BYTES = 4 + 1;
+
+  private Frames() { }
+
+  /** Allocates a frame of the type with the body size, whose header is written already. */
+  static ByteBuffer allocate(byte type, int bodySize) {
+    if (bodySize + 1 > MAX_LENGTH) throw new IllegalArgumentException("Frame too large - " + bodySize);
+
+    ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + bodySize);
+    frame.putInt(1 + bodySize);
+    frame.put(type);
+    return frame;
+  }
+
+  /** Returns a heartbeat frame. */
+  static ByteBuffer heartbeat() {
+    return allocate(HEARTBEAT, 0);
+  }
+
+  /** Returns a hello frame with the nonce. */
+  static ByteBuffer hello(byte[] nonce) {
+    ByteBuffer frame = allocate(HELLO, NONCE_BYTES);
+    frame.put(nonce);
+    return frame;
+  }
+
+  /** Returns an auth frame with the proof of the nonce. */
+  static ByteBuffer auth(byte[] proof) {
+    ByteBuffer frame = allocate(AUTH, PROOF_BYTES);
+    frame.put(proof);
+    return frame;
+  }
+
+  /** Returns the proof of the nonce, which is the HMAC-SHA256 keyed by the shared secret. */
+  static byte[] proof(byte[] secret, byte[] nonce) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+      return mac.doFinal(nonce);
+    } catch (GeneralSecurityException e) {
+      /* Every Java platform supports HmacSHA256. */
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Returns an ack frame. */
+  static ByteBuffer ack(long batchId, int count) {
+    ByteBuffer frame = allocate(ACK, 8 + 4);
+    frame.putLong(batchId);
+    frame.putInt(count);
+    return frame;
+  }
+
+  /** Returns the encoded size of a result with the failure message, which is null if succeeded. */
+  static int resultSize(String message) {
+    if (message == null) return 8 + 1;
+    final int size = Utf8.sizeOf(message);
+    return 8 + 1 + Varints.sizeOf(size) + size;
+  }
+
+  /** Writes a result, the message is null if the task succeeded. */
+  static void putResult(ByteBuffer frame, long sequence, String message) {
+    frame.putLong(sequence);
+    if (message == null) {
+      frame.put(SUCCEEDED);
+    } else {
+      frame.put(FAILED);
+      Varints.put(frame, Utf8.sizeOf(message));
+      Utf8.put(frame, message);
+    }
+  }
+
+  /** Reads the message of a failed result at the frame's position. */
+  static String getMessage(ByteBuffer frame) {
+    final int length = (int) Varints.get(frame);
+    final String message = Utf8.get(frame, frame.position(), length);
+    /* Calls through Buffer, the covariant overrides of ByteBuffer don't exist on Java 8. */
+    ((Buffer) frame).position(frame.position() + length);
+    return message;
+  }
+
+  /** Writes the whole frame, which is filled up to its position. */
+  static void write(OutputStream out, ByteBuffer frame) throws IOException {
+    out.write(frame.array(), 0, frame.position());
+  }
+
+  /**
+   * Reads a frame, returns the buffer positioned at the type byte.
+   *
+   * @throws IOException throws when the stream is closed or the length is corrupted
+   */
+  static ByteBuffer read(DataInputStream in) throws IOException {
+    return read(in, MAX_LENGTH);
+  }
+
+  /**
+   * Reads a frame no longer than the max length, e.g. of the handshake before the peer is trusted.
+   *
+   * @throws IOException throws when the stream is closed or the length is corrupted
+   */
+  static ByteBuffer read(DataInputStream in, int maxLength) throws IOException {
+    final int length = in.readInt();
+    if (length < 1 || length > maxLength) throw new IOException("Bad frame length - " + length);
+
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return ByteBuffer.wrap(bytes);
+  }
+}
@@ -0,0 +1,706 @@
+package io.harborl.drip.task.core.remote;
+
+import io.harborl.drip.task.core.AyncTask;
+import io.harborl.drip.task.core.Configurable;
+import io.harborl.drip.task.core.Diagnosable;
+import io.harborl.drip.task.core.TaskExecutor;
+import io.harborl.drip.task.core.Tasks;
+import io.harborl.drip.task.core.codec.TaskCodecs;
+import io.harborl.drip.task.core.utils.Logger;
+import io.harborl.drip.task.core.utils.Settings;
+import io.harborl.drip.task.core.utils.Util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A task executor which dispatches the tasks to the {@linkplain RemoteWorker} processes.<br/>
+ * <p/>
+ * The workers connect to the listening port, which binds the loopback address unless another one
+ * is specified, and prove the shared secret in a handshake before they get any task.
+ * Then the tasks are encoded by the {@linkplain TaskCodecs} and sent in batches to the least loaded worker,
+ * at most {@code window} tasks in flight per worker.
+ * The batches are pipelined, the worker acks a batch on receipt and streams the results back
+ * as the tasks complete. The protocol is described in {@linkplain Frames}.
+ * <p/>
+ * Only the exec() runs on the worker, the onSucceed()/onFailure() run in this process
+ * when the result arrives, so a decorated task such as the checkpoint tracked one works as usual.
+ * <p/>
+ * Both sides send heartbeats, a worker which has been silent for {@code worker.timeout} milliseconds,
+ * or whose connection breaks, is dropped and its tasks in flight are reassigned to the front of backlog.
+ * Thus a task is executed at least once. The tasks which can't be encoded,
+ * and the backlog while no worker has joined for {@code worker.timeout}, run on the local executor.
+ * The tasks still incomplete when the shutdown times out fail, so their latches never wait forever.
+ * <p/>
+ * The settings {@code batch.size}, {@code window} and {@code worker.timeout} can be changed at runtime,
+ * the others are delegated to the local executor if it is configurable.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class RemoteTaskExecutor implements TaskExecutor, Configurable, Diagnosable {
+
+  /** The interval of heartbeats, which is shared by the workers. */
+  static final long HEARTBEAT_MILLIS = 1000;
+
+  /** The max bytes of a batch, a single larger task is still sent alone. */
+  private static final int MAX_BATCH_BYTES = 1024 * 1024;
+
+  private final TaskCodecs codecs;
+  private final TaskExecutor local;
+  private final byte[] secret;
+  private final ServerSocket serverSocket;
+  private final Thread acceptor;
+  private final Thread dispatcher;
+  private final ScheduledExecutorService monitor;
+
+  private final LinkedBlockingDeque<Pending> backlog = new LinkedBlockingDeque<Pending>();
+  private final List<WorkerLink> links = new CopyOnWriteArrayList<WorkerLink>();
+
+  /** Notified when a worker joins or leaves, or when the tasks complete. */
+  private final Object capacity = new Object();
+
+  private final AtomicLong sequences = new AtomicLong();
+  private final AtomicLong batchIds = new AtomicLong();
+  private final AtomicLong succeeded = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong reassigned = new AtomicLong();
+  private final AtomicLong ranLocally = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+
+  /** The nonces of the handshakes. */
+  private final SecureRandom random = new SecureRandom();
+
+  private volatile int batchSize = 256;
+  private volatile int window = 4096;
+  private volatile long workerTimeout = 5000;
+
+  /** The last time when a worker was connected, or when this executor started. */
+  private volatile long lastConnected = System.nanoTime();
+
+  private volatile boolean closed;
+
+  private RemoteTaskExecutor(
+      TaskCodecs codecs, TaskExecutor local, InetAddress bindAddress, int port, byte[] secret) throws IOException {
+    this.codecs = codecs;
+    this.local = local;
+    this.secret = secret;
+    this.serverSocket = new ServerSocket(port, 0, bindAddress);
+
+    this.acceptor = new Thread(new Runnable() {
+
+      @Override
+      public void run() {
+        accept();
+      }
+
+    }, "[RemoteTaskExecutor] - acceptor");
+    this.acceptor.setDaemon(true);
+
+    this.dispatcher = new Thread(new Runnable() {
+
+      @Override
+      public void run() {
+        dispatch();
+      }
+
+    }, "[RemoteTaskExecutor] - dispatcher");
+    this.dispatcher.setDaemon(true);
+
+    this.monitor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "[RemoteTaskExecutor] - heartbeat monitor");
+        thread.setDaemon(true);
+        return thread;
+      }
+
+    });
+  }
+
+  /**
+   * Creates a remote executor and starts listening for the workers on the loopback address.
+   *
+   * @param codecs the codecs used to encode the tasks
+   * @param local the executor of the tasks which can't run remotely
+   * @param port the listening port of workers
+   * @param secret the secret shared with the workers
+   * @return returns the created instance
+   * @throws IOException throws when the network listening failed
+   */
+  public static RemoteTaskExecutor valueOf(TaskCodecs codecs, TaskExecutor local, int port, String secret)
+      throws IOException {
+    return valueOf(codecs, local, InetAddress.getLoopbackAddress(), port, secret);
+  }
+
+  /**
+   * Creates a remote executor and starts listening for the workers.
+   *
+   * @param codecs the codecs used to encode the tasks
+   * @param local the executor of the tasks which can't run remotely
+   * @param bindAddress the local address to listen on
+   * @param port the listening port of workers
+   * @param secret the secret shared with the workers
+   * @return returns the created instance
+   * @throws IOException throws when the network listening failed
+   */
+  public static RemoteTaskExecutor valueOf(
+      TaskCodecs codecs, TaskExecutor local, InetAddress bindAddress, int port, String secret) throws IOException {
+    Util.GuardsNull(codecs, "codecs is null");
+    Util.GuardsNull(local, "local is null");
+    Util.GuardsNull(bindAddress, "bindAddress is null");
+    Util.GuardsNull(secret, "secret is null");
+    if (secret.isEmpty()) throw new IllegalArgumentException("secret is empty");
+
+    final RemoteTaskExecutor executor = 
+        new RemoteTaskExecutor(codecs, local, bindAddress, port, secret.getBytes(Charset.forName("UTF-8")));
+    executor.acceptor.start();
+    executor.dispatcher.start();
+    executor.monitor.scheduleWithFixedDelay(new Runnable() {
+
+      @Override
+      public void run() {
+        executor.heartbeat();
+      }
+
+    }, HEARTBEAT_MILLIS, HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+    return executor;
+  }
+
+  /** Returns the listening port of workers, which is the bound one if the port was 0. */
+  int port() {
+    return serverSocket.getLocalPort();
+  }
+
+  /** Accepts the workers until closed, a worker joins once its reader has authenticated it. */
+  private void accept() {
+    while (!closed) {
+      try {
+        Socket socket = serverSocket.accept();
+        socket.setTcpNoDelay(true);
+        final WorkerLink link = new WorkerLink(socket);
+
+        Thread reader = new Thread(link, "[RemoteTaskExecutor] - worker reader - " + link.name);
+        reader.setDaemon(true);
+        reader.start();
+      } catch (IOException e) {
+        if (!closed) Logger.err.println("[RemoteTaskExecutor] Accept failed - " + e);
+      }
+    }
+  }
+
+  /** 
+   * Sends the backlog in batches until closed, it is the only consumer of backlog.<br/>
+   * A batch which fails to be encoded or framed runs on the local executor, the loop goes on.
+   */
+  private void dispatch() {
+    while (!closed) {
+      List<Pending> batch = null;
+      try {
+        Pending first = backlog.poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) continue;
+        batch = new ArrayList<Pending>();
+        batch.add(first);
+
+        WorkerLink link = awaitLink();
+        if (link == null) {
+          backlog.addFirst(first);
+          batch = null;
+          if (!closed) runLocally();
+          continue;
+        }
+
+        int bytes = first.size;
+        final int limit = Math.min(batchSize, link.room());
+        while (batch.size() < limit) {
+          Pending next = backlog.poll();
+          if (next == null) break;
+          if (bytes + next.size > MAX_BATCH_BYTES) {
+            backlog.addFirst(next);
+            break;
+          }
+          batch.add(next);
+          bytes += next.size;
+        }
+        link.send(batch, bytes);
+      } catch (InterruptedException closedAlready) {
+        Thread.currentThread().interrupt();
+        if (batch != null) backlog.addAll(batch);
+        return;
+      } catch (RuntimeException e) {
+        Logger.err.println("[RemoteTaskExecutor] [ERROR] - dispatch failed, " 
+            + (batch == null ? 0 : batch.size()) + " tasks run locally - " + e);
+        if (batch != null) runLocally(batch);
+      }
+    }
+  }
+
+  /**
+   * Waits for the least loaded worker which has room,
+   * returns null if closed or no worker has been connected for the timeout.
+   */
+  private WorkerLink awaitLink() throws InterruptedException {
+    synchronized (capacity) {
+      while (!closed) {
+        WorkerLink chosen = null;
+        for (WorkerLink link : links) {
+          if (link.room() > 0 && (chosen == null || link.inFlight.size() < chosen.inFlight.size())) {
+            chosen = link;
+          }
+        }
+        if (chosen != null) return chosen;
+
+        if (links.isEmpty()) {
+          final long idle = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastConnected);
+          if (idle >= workerTimeout) return null;
+          capacity.wait(Math.min(HEARTBEAT_MILLIS, workerTimeout - idle));
+        } else {
+          lastConnected = System.nanoTime();
+          capacity.wait(HEARTBEAT_MILLIS);
+        }
+      }
+      return null;
+    }
+  }
+
+  /** Hands the backlog to the local executor, because no worker is connected. */
+  private void runLocally() {
+    List<Pending> drained = new ArrayList<Pending>();
+    backlog.drainTo(drained);
+    if (drained.isEmpty()) return;
+
+    Logger.err.println("[RemoteTaskExecutor] No worker, " + drained.size() + " tasks run locally.");
+    runLocally(drained);
+  }
+
+  /** Hands the tasks to the local executor in order. */
+  private void runLocally(List<Pending> pendings) {
+    ranLocally.addAndGet(pendings.size());
+
+    /* Keeps the order, each run of the tasks sharing a latch is submitted together. */
+    List<AyncTask> run = new ArrayList<AyncTask>();
+    CountDownLatch latch = pendings.get(0).latch;
+    for (Pending pending : pendings) {
+      if (pending.latch != latch) {
+        submitLocally(run, latch);
+        run = new ArrayList<AyncTask>();
+        latch = pending.latch;
+      }
+      run.add(pending.task);
+    }
+    submitLocally(run, latch);
+  }
+
+  private void submitLocally(List<AyncTask> tasks, CountDownLatch latch) {
+    if (latch == null) {
+      local.submit(tasks);
+    } else {
+      local.submit(tasks, latch);
+    }
+  }
+
+  /** Sends the heartbeats, and drops the workers which have been silent for the timeout. */
+  private void heartbeat() {
+    final long now = System.nanoTime();
+    for (WorkerLink link : links) {
+      if (TimeUnit.NANOSECONDS.toMillis(now - link.lastSeen) > workerTimeout) {
+        link.close("timed out");
+      } else {
+        link.write(Frames.heartbeat());
+      }
+    }
+  }
+
+  /** Wakes up the dispatcher and the shutdown waiting. */
+  private void signal() {
+    synchronized (capacity) {
+      capacity.notifyAll();
+    }
+  }
+
+  /** Runs the callbacks of a task whose result arrives, the failure is null if it succeeded. */
+  private void complete(Pending pending, Throwable failure) {
+    try {
+      try {
+        if (failure == null) {
+          pending.task.onSucceed();
+          succeeded.incrementAndGet();
+          return;
+        }
+      } catch (Throwable th) {
+        failure = th;
+      }
+      failed.incrementAndGet();
+      pending.task.onFailure(failure);
+    } catch (Throwable th) {
+      Logger.err.println("[RemoteTaskExecutor] Callback of " + pending.task.name() + " failed - " + th);
+    } finally {
+      if (pending.latch != null) pending.latch.countDown();
+    }
+  }
+
+  @Override
+  public void submit(List<AyncTask> tasks) {
+    submit(tasks, null);
+  }
+
+  @Override
+  public void submit(List<AyncTask> tasks, CountDownLatch latch) {
+    if (tasks == null || tasks.size() == 0) return;
+
+    List<AyncTask> unsupported = null;
+    for (AyncTask task : tasks) {
+      final AyncTask original = Tasks.unwrap(task);
+      final int size = closed ? -1 : codecs.sizeOf(original);
+      if (size < 0) {
+        if (unsupported == null) unsupported = new ArrayList<AyncTask>();
+        unsupported.add(task);
+        continue;
+      }
+      backlog.add(new Pending(sequences.incrementAndGet(), task, original, 8 + size, latch));
+    }
+
+    if (unsupported != null) submitLocally(unsupported, latch);
+  }
+
+  @Override
+  public void shudownAndAwait(long timeout, TimeUnit unit) throws InterruptedException {
+    final long start = System.nanoTime();
+    final long nanos = unit.toNanos(timeout);
+
+    synchronized (capacity) {
+      long remaining = nanos - (System.nanoTime() - start);
+      while (remoteSize() > 0 && remaining > 0) {
+        TimeUnit.NANOSECONDS.timedWait(capacity, Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(HEARTBEAT_MILLIS)));
+        remaining = nanos - (System.nanoTime() - start);
+      }
+    }
+
+    closed = true;
+    try {
+      serverSocket.close();
+    } catch (IOException ignored) { }
+    List<WorkerLink> closing = new ArrayList<WorkerLink>(links);
+    for (WorkerLink link : closing) {
+      link.close(null);
+    }
+    monitor.shutdownNow();
+    /* The closed links unblock a dispatcher which is writing. */
+    dispatcher.interrupt();
+    dispatcher.join(HEARTBEAT_MILLIS);
+
+    /* The incomplete tasks fail, so their latches don't wait forever. */
+    List<Pending> abandoned = new ArrayList<Pending>();
+    backlog.drainTo(abandoned);
+    for (WorkerLink link : closing) {
+      for (Map.Entry<Long, Pending> first; (first = link.inFlight.pollFirstEntry()) != null; ) {
+        abandoned.add(first.getValue());
+      }
+    }
+    if (!abandoned.isEmpty()) {
+      Logger.err.println("[RemoteTaskExecutor] Shutdown with " + abandoned.size() + " remote tasks incomplete, they fail.");
+      final IllegalStateException cause = new IllegalStateException("Shutdown before the remote task completed");
+      for (Pending pending : abandoned) {
+        complete(pending, cause);
+      }
+    }
+
+    local.shudownAndAwait(Math.max(0, nanos - (System.nanoTime() - start)), TimeUnit.NANOSECONDS);
+  }
+
+  /** Returns the count of tasks in backlog and in flight. */
+  private int remoteSize() {
+    int size = backlog.size();
+    for (WorkerLink link : links) {
+      size += link.inFlight.size();
+    }
+    return size;
+  }
+
+  @Override
+  public int size() {
+    return remoteSize() + local.size();
+  }
+
+  @Override
+  public String get(String key) {
+    if ("batch.size".equals(key)) {
+      return String.valueOf(batchSize);
+    } else if ("window".equals(key)) {
+      return String.valueOf(window);
+    } else if ("worker.timeout".equals(key)) {
+      return String.valueOf(workerTimeout);
+    }
+    return local instanceof Configurable ? ((Configurable) local).get(key) : null;
+  }
+
+  @Override
+  public boolean set(String key, String value) {
+    if ("batch.size".equals(key)) {
+      batchSize = Settings.intIn(key, value, 1, 65536);
+      return true;
+    } else if ("window".equals(key)) {
+      window = Settings.intIn(key, value, 1, Integer.MAX_VALUE);
+      signal();
+      return true;
+    } else if ("worker.timeout".equals(key)) {
+      workerTimeout = Settings.longIn(key, value, 2 * HEARTBEAT_MILLIS, Integer.MAX_VALUE);
+      return true;
+    }
+    return local instanceof Configurable && ((Configurable) local).set(key, value);
+  }
+
+  @Override
+  public Map<String, String> settings() {
+    Map<String, String> settings = new LinkedHashMap<String, String>();
+    settings.put("batch.size", String.valueOf(batchSize));
+    settings.put("window", String.valueOf(window));
+    settings.put("worker.timeout", String.valueOf(workerTimeout));
+    if (local instanceof Configurable) {
+      settings.putAll(((Configurable) local).settings());
+    }
+    return settings;
+  }
+
+  @Override
+  public String info() {
+    StringBuilder info = new StringBuilder("[Remote executor] workers: ").append(links.size())
+        .append(", backlog: ").append(backlog.size())
+        .append(", succeeded: ").append(succeeded.get())
+        .append(", failed: ").append(failed.get())
+        .append(", reassigned: ").append(reassigned.get())
+        .append(", ran locally: ").append(ranLocally.get())
+        .append(", rejected: ").append(rejected.get());
+    for (WorkerLink link : links) {
+      info.append("\r\n  <").append(link.name).append("> in-flight: ").append(link.inFlight.size())
+          .append(", batches: ").append(link.batches.get())
+          .append(", acked: ").append(link.acked.get());
+    }
+    return info.append("\r\n").append(local.info()).toString();
+  }
+
+  /** Reports the local executor's threads, the workers' tasks run in their own processes. */
+  @Override
+  public String threads() {
+    return local instanceof Diagnosable ? ((Diagnosable) local).threads() : "Not diagnosable!";
+  }
+
+  /** A task waiting for dispatch or its result. */
+  private static final class Pending {
+    final long sequence;
+    final AyncTask task;
+    final AyncTask original;
+    final int size;
+    final CountDownLatch latch;
+
+    Pending(long sequence, AyncTask task, AyncTask original, int size, CountDownLatch latch) {
+      this.sequence = sequence;
+      this.task = task;
+      this.original = original;
+      this.size = size;
+      this.latch = latch;
+    }
+  }
+
+  /** The connection of a worker, which runs as the reader of its frames. */
+  private final class WorkerLink implements Runnable {
+    final String name;
+    final Socket socket;
+    final DataInputStream in;
+    final OutputStream out;
+
+    /** The tasks in flight by sequence, which are reassigned in order if the worker is lost. */
+    final ConcurrentSkipListMap<Long, Pending> inFlight = new ConcurrentSkipListMap<Long, Pending>();
+    final AtomicBoolean dropped = new AtomicBoolean();
+    final AtomicLong batches = new AtomicLong();
+    final AtomicLong acked = new AtomicLong();
+    volatile long lastSeen = System.nanoTime();
+
+    WorkerLink(Socket socket) throws IOException {
+      this.name = String.valueOf(socket.getRemoteSocketAddress());
+      this.socket = socket;
+      this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      this.out = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    /** Returns the count of tasks which can be sent. */
+    int room() {
+      return dropped.get() ? 0 : window - inFlight.size();
+    }
+
+    /** Encodes and sends a batch, the body bytes are the sum of the task sizes. */
+    void send(List<Pending> batch, int bytes) {
+      /* The tasks are in flight only after the whole batch is encoded, a failure leaves them to the caller. */
+      ByteBuffer frame = Frames.allocate(Frames.BATCH, 8 + 4 + bytes);
+      frame.putLong(batchIds.incrementAndGet());
+      frame.putInt(batch.size());
+      for (Pending pending : batch) {
+        frame.putLong(pending.sequence);
+        codecs.write(pending.original, frame);
+      }
+      for (Pending pending : batch) {
+        inFlight.put(pending.sequence, pending);
+      }
+
+      batches.incrementAndGet();
+      write(frame);
+      /* The link might be dropped before the tasks are put in flight. */
+      if (dropped.get()) reassign();
+    }
+
+    /** Writes and flushes a frame, drops the link if it fails. */
+    void write(ByteBuffer frame) {
+      try {
+        synchronized (out) {
+          Frames.write(out, frame);
+          out.flush();
+        }
+      } catch (IOException e) {
+        close("write failed - " + e);
+      }
+    }
+
+    /** 
+     * Authenticates the worker by the proof of a fresh nonce, the worker joins if it matches.
+     * The handshake must complete within the worker timeout, and its frames are tiny.
+     */
+    boolean handshake() {
+      try {
+        byte[] nonce = new byte[Frames.NONCE_BYTES];
+        random.nextBytes(nonce);
+        socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, workerTimeout));
+        synchronized (out) {
+          Frames.write(out, Frames.hello(nonce));
+          out.flush();
+        }
+
+        ByteBuffer frame = Frames.read(in, 1 + Frames.PROOF_BYTES);
+        if (frame.get() != Frames.AUTH || frame.remaining() != Frames.PROOF_BYTES) {
+          throw new IOException("Bad handshake frame");
+        }
+        byte[] proof = new byte[Frames.PROOF_BYTES];
+        frame.get(proof);
+        if (!MessageDigest.isEqual(proof, Frames.proof(secret, nonce))) {
+          throw new IOException("Bad proof of the secret");
+        }
+        socket.setSoTimeout(0);
+      } catch (IOException e) {
+        dropped.set(true);
+        rejected.incrementAndGet();
+        try {
+          socket.close();
+        } catch (IOException ignored) { }
+        if (!closed) Logger.err.println("[RemoteTaskExecutor] Worker " + name + " rejected - " + e);
+        return false;
+      }
+
+      lastSeen = System.nanoTime();
+      links.add(this);
+      lastConnected = System.nanoTime();
+      Logger.out.println("[RemoteTaskExecutor] Worker " + name + " joined.");
+      signal();
+
+      /* The shutdown might have closed the links before this one joined. */
+      if (closed) close(null);
+      return true;
+    }
+
+    @Override
+    public void run() {
+      if (!handshake()) return;
+
+      try {
+        while (!dropped.get()) {
+          ByteBuffer frame = Frames.read(in);
+          lastSeen = System.nanoTime();
+
+          final byte type = frame.get();
+          if (type == Frames.RESULT) {
+            onResult(frame);
+          } else if (type == Frames.ACK) {
+            frame.getLong();
+            acked.addAndGet(frame.getInt());
+          } else if (type != Frames.HEARTBEAT) {
+            throw new IOException("Unknown frame type - " + type);
+          }
+        }
+      } catch (IOException e) {
+        close("read failed - " + e);
+      } catch (RuntimeException e) {
+        close("bad frame - " + e);
+      }
+    }
+
+    /** Completes the tasks of a result frame, the late results of the reassigned tasks are ignored. */
+    private void onResult(ByteBuffer frame) {
+      final int count = frame.getInt();
+      for (int i = 0; i < count; ++i) {
+        final long sequence = frame.getLong();
+        final byte status = frame.get();
+        final String message = status == Frames.FAILED ? Frames.getMessage(frame) : null;
+
+        Pending pending = inFlight.remove(sequence);
+        if (pending == null) continue;
+
+        complete(pending, message == null ? null
+            : new IllegalStateException("Failed on worker " + name + " - " + message));
+      }
+      signal();
+    }
+
+    /** Drops the link, the tasks in flight are reassigned unless the reason is null on shutdown. */
+    void close(String reason) {
+      if (!dropped.compareAndSet(false, true)) return;
+
+      links.remove(this);
+      try {
+        socket.close();
+      } catch (IOException ignored) { }
+
+      if (reason != null) {
+        final int count = reassign();
+        Logger.err.println("[RemoteTaskExecutor] Worker " + name + " lost, " + reason
+            + ", " + count + " tasks reassigned.");
+      }
+      signal();
+    }
+
+    /** Moves the tasks in flight back to the front of backlog in order, returns the count. */
+    int reassign() {
+      if (closed) return 0;
+
+      int count = 0;
+      for (Map.Entry<Long, Pending> last; (last = inFlight.pollLastEntry()) != null; ++count) {
+        backlog.addFirst(last.getValue());
+      }
+      reassigned.addAndGet(count);
+      return count;
+    }
+  }
+}
@@ -0,0 +1,310 @@
+package io.harborl.drip.task.core.remote;
+
+import io.harborl.drip.task.core.AyncTask;
+import io.harborl.drip.task.core.CallbackTask;
+import io.harborl.drip.task.core.Completion;
+import io.harborl.drip.task.core.TaskExecutor;
+import io.harborl.drip.task.core.codec.TaskCodecs;
+import io.harborl.drip.task.core.codec.TaskView;
+import io.harborl.drip.task.core.utils.Logger;
+import io.harborl.drip.task.core.utils.Util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A worker process side of the {@linkplain RemoteTaskExecutor}, which executes
+ * the tasks received from the scheduler process and reports the results.<br/>
+ * <p/>
+ * The worker proves the secret shared with the scheduler before it gets any task,
+ * see {@linkplain Frames}. The received batch is acked at once and submitted to the local executor.
+ * The acks and the results are written by a single writer thread, which gathers
+ * all of the results completed meanwhile into one frame, and sends a heartbeat when it's idle.
+ * Only the exec() of tasks runs here, the callbacks run in the scheduler process.
+ * <p/>
+ * The worker stops when the connection breaks, or the scheduler has been silent for the timeout.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class RemoteWorker implements Closeable {
+
+  /** The max count of results in one frame. */
+  private static final int MAX_RESULTS = 1024;
+
+  private final String host;
+  private final int port;
+  private final byte[] secret;
+  private final TaskCodecs codecs;
+  private final TaskExecutor executor;
+  private final long timeoutMillis;
+
+  private final LinkedBlockingQueue<Outgoing> outbox = new LinkedBlockingQueue<Outgoing>();
+
+  private volatile Socket socket;
+  private volatile long lastSeen;
+  private volatile boolean closed;
+
+  private RemoteWorker(
+      String host, int port, byte[] secret, TaskCodecs codecs, TaskExecutor executor, long timeoutMillis) {
+    this.host = host;
+    this.port = port;
+    this.secret = secret;
+    this.codecs = codecs;
+    this.executor = executor;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  /**
+   * Creates a worker.
+   *
+   * @param host the host of the scheduler process
+   * @param port the worker port of the scheduler process
+   * @param secret the secret shared with the scheduler process
+   * @param codecs the codecs used to decode the tasks
+   * @param executor the executor which executes the tasks
+   * @param timeoutMillis the max silent milliseconds of the scheduler
+   * @return returns the created instance
+   */
+  public static RemoteWorker valueOf(
+      String host, int port, String secret, TaskCodecs codecs, TaskExecutor executor, long timeoutMillis) {
+    Util.GuardsNull(host, "host is null");
+    Util.GuardsNull(secret, "secret is null");
+    Util.GuardsNull(codecs, "codecs is null");
+    Util.GuardsNull(executor, "executor is null");
+    if (timeoutMillis <= RemoteTaskExecutor.HEARTBEAT_MILLIS)
+      throw new IllegalArgumentException("timeout must be greater than the heartbeat interval");
+
+    return new RemoteWorker(host, port, secret.getBytes(Charset.forName("UTF-8")), codecs, executor, timeoutMillis);
+  }
+
+  /**
+   * Connects to the scheduler and runs the tasks, it blocks until the connection is lost or closed.
+   *
+   * @throws IOException throws when the connection fails or breaks
+   */
+  public void run() throws IOException {
+    socket = new Socket(host, port);
+    socket.setTcpNoDelay(true);
+    final OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+    final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    try {
+      handshake(in, out);
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+    lastSeen = System.nanoTime();
+    Logger.out.println("[RemoteWorker] Connected to " + host + ":" + port);
+
+    Thread writer = new Thread(new Runnable() {
+
+      @Override
+      public void run() {
+        write(out);
+      }
+
+    }, "[RemoteWorker] - writer");
+    writer.setDaemon(true);
+    writer.start();
+
+    try {
+      while (!closed) {
+        ByteBuffer frame = Frames.read(in);
+        lastSeen = System.nanoTime();
+
+        final byte type = frame.get();
+        if (type == Frames.BATCH) {
+          onBatch(frame);
+        } else if (type != Frames.HEARTBEAT) {
+          throw new IOException("Unknown frame type - " + type);
+        }
+      }
+    } catch (IOException e) {
+      if (!closed) throw e;
+    } finally {
+      close();
+      writer.interrupt();
+    }
+  }
+
+  /** Answers the scheduler's nonce with the proof of the secret, the scheduler drops the connection if it is wrong. */
+  private void handshake(DataInputStream in, OutputStream out) throws IOException {
+    socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, timeoutMillis));
+    ByteBuffer frame = Frames.read(in, 1 + Frames.NONCE_BYTES);
+    if (frame.get() != Frames.HELLO || frame.remaining() != Frames.NONCE_BYTES) {
+      throw new IOException("Bad handshake frame");
+    }
+    byte[] nonce = new byte[Frames.NONCE_BYTES];
+    frame.get(nonce);
+
+    Frames.write(out, Frames.auth(Frames.proof(secret, nonce)));
+    out.flush();
+    socket.setSoTimeout(0);
+  }
+
+  /** Acks the batch, then submits its tasks. */
+  private void onBatch(ByteBuffer frame) {
+    final long batchId = frame.getLong();
+    final int count = frame.getInt();
+
+    List<AyncTask> tasks = new ArrayList<AyncTask>(count);
+    TaskView view = new TaskView();
+    int offset = frame.position();
+    for (int i = 0; i < count; ++i) {
+      final long sequence = frame.getLong(offset);
+      view.wrap(frame, offset + 8);
+      offset += 8 + view.length();
+
+      AyncTask task = codecs.decode(view);
+      tasks.add(task instanceof CallbackTask
+          ? new ReportingCallbackTask(sequence, (CallbackTask) task) : new ReportingTask(sequence, task));
+    }
+
+    outbox.add(Outgoing.ack(batchId, count));
+    executor.submit(tasks);
+  }
+
+  /** Writes the acks and the batched results, or the heartbeat when it's idle, until closed. */
+  private void write(OutputStream out) {
+    List<Outgoing> drained = new ArrayList<Outgoing>();
+    try {
+      while (!closed) {
+        Outgoing first = outbox.poll(RemoteTaskExecutor.HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+        if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastSeen) > timeoutMillis) {
+          Logger.err.println("[RemoteWorker] Scheduler timed out.");
+          break;
+        }
+        if (first == null) {
+          Frames.write(out, Frames.heartbeat());
+          out.flush();
+          continue;
+        }
+
+        drained.clear();
+        drained.add(first);
+        outbox.drainTo(drained, MAX_RESULTS - 1);
+
+        int results = 0;
+        int bytes = 0;
+        for (Outgoing outgoing : drained) {
+          if (outgoing.ack) {
+            Frames.write(out, Frames.ack(outgoing.id, outgoing.count));
+          } else {
+            ++results;
+            bytes += Frames.resultSize(outgoing.message);
+          }
+        }
+
+        if (results > 0) {
+          ByteBuffer frame = Frames.allocate(Frames.RESULT, 4 + bytes);
+          frame.putInt(results);
+          for (Outgoing outgoing : drained) {
+            if (!outgoing.ack) Frames.putResult(frame, outgoing.id, outgoing.message);
+          }
+          Frames.write(out, frame);
+        }
+        out.flush();
+      }
+    } catch (InterruptedException closedAlready) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      if (!closed) Logger.err.println("[RemoteWorker] Write failed - " + e);
+    } finally {
+      close();
+    }
+  }
+
+  /** Closes the connection, the tasks running here are re-executed elsewhere by the scheduler. */
+  @Override
+  public void close() {
+    closed = true;
+    Socket current = socket;
+    if (current == null) return;
+
+    try {
+      current.close();
+    } catch (IOException ignored) { }
+  }
+
+  /** An ack or a result waiting to be written. */
+  private static final class Outgoing {
+    final boolean ack;
+    /** The batch id of an ack, or the sequence of a result. */
+    final long id;
+    final int count;
+    /** The failure message, or null if the task succeeded. */
+    final String message;
+
+    private Outgoing(boolean ack, long id, int count, String message) {
+      this.ack = ack;
+      this.id = id;
+      this.count = count;
+      this.message = message;
+    }
+
+    static Outgoing ack(long batchId, int count) {
+      return new Outgoing(true, batchId, count, null);
+    }
+
+    static Outgoing result(long sequence, String message) {
+      return new Outgoing(false, sequence, 0, message);
+    }
+  }
+
+  /** A task which reports the result instead of running the callbacks. */
+  private class ReportingTask implements AyncTask {
+    final long sequence;
+    final AyncTask delegate;
+
+    ReportingTask(long sequence, AyncTask delegate) {
+      this.sequence = sequence;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void exec() {
+      delegate.exec();
+    }
+
+    @Override
+    public void onFailure(Throwable th) {
+      outbox.add(Outgoing.result(sequence, String.valueOf(th)));
+    }
+
+    @Override
+    public void onSucceed() {
+      outbox.add(Outgoing.result(sequence, null));
+    }
+
+    @Override
+    public String name() {
+      return delegate.name();
+    }
+  }
+
+  /** A callback task which reports the result instead of running the callbacks. */
+  private final class ReportingCallbackTask extends ReportingTask implements CallbackTask {
+
+    ReportingCallbackTask(long sequence, CallbackTask delegate) {
+      super(sequence, delegate);
+    }
+
+    @Override
+    public void exec(Completion completion) {
+      ((CallbackTask) delegate).exec(completion);
+    }
+  }
+}
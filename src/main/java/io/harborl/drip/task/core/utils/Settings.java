@@ -0,0 +1,34 @@
+package io.harborl.drip.task.core.utils;
+
+/**
+ * Some utility functions used to parse and validate the text settings.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class Settings {
+
+  private Settings() { }
+
+  /** Parses an integer setting and makes sure it is in [min, max]. */
+  public static int intIn(String key, String value, int min, int max) {
+    final long parsed = longIn(key, value, min, max);
+    return (int) parsed;
+  }
+
+  /** Parses a long setting and makes sure it is in [min, max]. */
+  public static long longIn(String key, String value, long min, long max) {
+    final long parsed;
+    try {
+      parsed = Long.parseLong(value.trim());
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException(key + " must be a number - " + value);
+    }
+
+    if (parsed < min || parsed > max) {
+      throw new IllegalArgumentException(key + " must be in [" + min + ", " + max + "] - " + value);
+    }
+    return parsed;
+  }
+}
@@ -1,12 +1,21 @@
 package io.harborl.drip.task.server;
 
+import io.harborl.drip.task.core.GradientConcurrencyLimit;
+import io.harborl.drip.task.core.LogOutcomeSink;
 import io.harborl.drip.task.core.NetworkMaintenanceAgent;
+import io.harborl.drip.task.core.OutcomeRecorder;
 import io.harborl.drip.task.core.SimpleScheduler;
+import io.harborl.drip.task.core.SpillingTaskExecutor;
+import io.harborl.drip.task.core.TaskExecutor;
 import io.harborl.drip.task.core.ThreadPoolTaskExecutor;
+import io.harborl.drip.task.core.codec.TaskCodecs;
+import io.harborl.drip.task.core.remote.RemoteTaskExecutor;
 import io.harborl.drip.task.core.utils.Logger;
+import io.harborl.drip.task.task.email.EmailTaskCodec;
 import io.harborl.drip.task.task.email.EmailTaskStream;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.util.concurrent.TimeUnit;
 
 
@@ -20,6 +29,8 @@ import java.util.concurrent.TimeUnit;
  * [1]>$ java -cp $CLASSPATH com.homethy.drip.mail.task.server.Bootstrap $port $period > bootstrap.log &
  * [2]>$ echo "info" | nc localhost $port
  * [3]>$ echo "shutdown" | nc localhost $port
+ * [4]>$ echo "set period 10" | nc localhost $port
+ * [5]>$ DRIP_WORKER_SECRET=$secret java -cp $CLASSPATH io.harborl.drip.task.server.Bootstrap $port $period $workerPort $bindAddress > bootstrap.log &
  * </pre>
  * 
  * <h5>Explanation of above code:</h5>
@@ -27,6 +38,10 @@ import java.util.concurrent.TimeUnit;
  *   <li>Launch the jvm server process using 'Java' dev tool with specified entrance and args.</li>
  *   <li>Fetch the maintenance info through a TCP text based request.</li>
  *   <li>Shutdown the server <em>gracefully</em> through a TCP text based request.</li>
+ *   <li>Change the scheduler period at runtime, 'get' lists all of the settings.</li>
+ *   <li>Launch with a worker port, the tasks are dispatched to the {@linkplain WorkerBootstrap} processes
+ *   which share the secret of {@code DRIP_WORKER_SECRET}. The worker port listens on the loopback address 
+ *   unless a bind address is given.</li>
  * </ol>
  * 
  * <h5>Note</h5> 
@@ -42,27 +57,62 @@ import java.util.concurrent.TimeUnit;
  */
 public final class Bootstrap {
   
+  /** The upper bound of the adaptive concurrency, the tasks are I/O bound. */
+  private static final int MAX_CONCURRENCY = 256;
+  
+  /** The max count of pending tasks on heap, the rest of backlog spills off heap. */
+  private static final int HEAP_BUDGET = 100000;
+  
+  /** The max bytes of the spilled backlog. */
+  private static final long OFF_HEAP_CAPACITY = 512L * 1024 * 1024;
+  
+  /** The max count of task outcomes per write. */
+  private static final int OUTCOME_BATCH_SIZE = 1000;
+  
   public static void main(String[] args) {
     
-    /* Currently, we don't support to scale out the task execution to another process or machine.
-     * But many solutions can reach above goal easily, 
-     * for example, using tasks sharding through task gather.
-     * Or splitting the task source to mulit-partitions then one task gather per partition. */
+    /* The task execution scales out to the worker processes when a worker port is given,
+     * the scheduling still happens in this single process. */
     if (args.length < 2) {
-      System.out.println("Usage: command [Port] [Period seconds] <Sharding/Shardings>");
+      System.out.println("Usage: command [Port] [Period seconds] <Worker port> <Worker bind address>");
       System.exit(-1);
     }
     
     final int PORT = Integer.valueOf(args[0]);
     final int PERIOD = Integer.valueOf(args[1]);
+    final int WORKER_PORT = args.length > 2 ? Integer.valueOf(args[2]) : -1;
+    final String WORKER_BIND_ADDRESS = args.length > 3 ? args[3] : null;
+    final String WORKER_SECRET = System.getenv("DRIP_WORKER_SECRET");
+    if (WORKER_PORT > 0 && (WORKER_SECRET == null || WORKER_SECRET.isEmpty())) {
+      System.out.println("The worker port needs the shared secret of the DRIP_WORKER_SECRET environment variable.");
+      System.exit(-1);
+    }
+
+    /* Creates a scheduler and start it. 
+     * The concurrency starts with a CPU-bound rule of thumb, then adapts to the task latency. */
+    final int INITIAL_CONCURRENCY = Runtime.getRuntime().availableProcessors() + 1;
+    final TaskCodecs codecs = TaskCodecs.valueOf(EmailTaskCodec.INSTANCE);
+    TaskExecutor executor = new ThreadPoolTaskExecutor(
+        GradientConcurrencyLimit.valueOf(INITIAL_CONCURRENCY, 1, Math.max(INITIAL_CONCURRENCY, MAX_CONCURRENCY)));
+    if (WORKER_PORT > 0) {
+      /* The local executor runs the tasks only when no worker is connected. */
+      try {
+        executor = RemoteTaskExecutor.valueOf(codecs, executor, 
+            WORKER_BIND_ADDRESS == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(WORKER_BIND_ADDRESS), 
+            WORKER_PORT, WORKER_SECRET);
+      } catch (IOException e) {
+        e.printStackTrace();
+        System.exit(-1);
+      }
+    }
 
-    /* Creates a scheduler and start it. */
     SimpleScheduler scheduler = SimpleScheduler.valueOf(
         EmailTaskStream.newInstance(),
-        new ThreadPoolTaskExecutor(Runtime.getRuntime().availableProcessors() + 1),
+        SpillingTaskExecutor.valueOf(executor, codecs, HEAP_BUDGET, OFF_HEAP_CAPACITY),
         PERIOD,
         TimeUnit.SECONDS
-      ).start();
+      ).record(OutcomeRecorder.valueOf(LogOutcomeSink.INSTANCE, OUTCOME_BATCH_SIZE, 1, TimeUnit.SECONDS))
+       .start();
 
     try {
       /* Delegates scheduler's 'maintenance' relevant actions to a NetworkMaintenanceAgent. */
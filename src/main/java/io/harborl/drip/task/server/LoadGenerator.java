@@ -0,0 +1,177 @@
+package io.harborl.drip.task.server;
+
+import io.harborl.drip.task.core.GradientConcurrencyLimit;
+import io.harborl.drip.task.core.SimpleScheduler;
+import io.harborl.drip.task.core.TaskExecutor;
+import io.harborl.drip.task.core.ThreadPoolTaskExecutor;
+import io.harborl.drip.task.core.utils.Logger;
+import io.harborl.drip.task.task.synthetic.Distribution;
+import io.harborl.drip.task.task.synthetic.LatencyHistogram;
+import io.harborl.drip.task.task.synthetic.LoadStats;
+import io.harborl.drip.task.task.synthetic.SyntheticTaskStream;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Java's command line main entrance of the synthetic load generation, which drives 
+ * the whole pipeline of {@linkplain SimpleScheduler}, {@linkplain TaskExecutor} and task callbacks
+ * with a {@linkplain SyntheticTaskStream}.
+ * <p/>
+ * 
+ * <h5>Usage:</h5>
+ * <pre>
+ * [1]>$ java -cp $CLASSPATH io.harborl.drip.task.server.LoadGenerator rate=5000 exec=20 duration=60
+ * </pre>
+ * 
+ * <h5>Options:</h5>
+ * <ul>
+ *   <li>rate: the arrival rate of tasks per second, 1000 by default.</li>
+ *   <li>chunk: the max chunk size, 1000 by default.</li>
+ *   <li>period: the scheduler period in milliseconds, 100 by default.</li>
+ *   <li>exec: the mean execution time of a task in milliseconds, 5 by default.</li>
+ *   <li>dist: the distribution of execution time, fixed, uniform or exponential (default).</li>
+ *   <li>failure: the failure rate of tasks, 0.01 by default.</li>
+ *   <li>concurrency: a fixed concurrent level, or adaptive (default).</li>
+ *   <li>duration: the run time in seconds, 30 by default.</li>
+ *   <li>report: the report interval in seconds, 1 by default.</li>
+ * </ul>
+ * 
+ * Without any option it runs with the defaults, {@code --help} lists the options with their defaults.
+ * 
+ * It reports the throughput, the queue depth, the backlog of arrived tasks and 
+ * the GC time every interval, and the latency percentiles at the end.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class LoadGenerator {
+
+  /** The upper bound of the adaptive concurrency. */
+  private static final int MAX_CONCURRENCY = 1024;
+
+  public static void main(String[] args) throws InterruptedException {
+    final Map<String, String> options = new LinkedHashMap<String, String>();
+    options.put("rate", "1000");
+    options.put("chunk", "1000");
+    options.put("period", "100");
+    options.put("exec", "5");
+    options.put("dist", "exponential");
+    options.put("failure", "0.01");
+    options.put("concurrency", "adaptive");
+    options.put("duration", "30");
+    options.put("report", "1");
+
+    for (String arg : args) {
+      if ("--help".equals(arg)) {
+        System.out.println("Usage: command [option=value ...], options and defaults: " + options);
+        System.exit(0);
+      }
+      final int eq = arg.indexOf('=');
+      if (eq < 0 || !options.containsKey(arg.substring(0, eq))) {
+        System.out.println("Usage: command [option=value ...], options and defaults: " + options);
+        System.exit(-1);
+      }
+      options.put(arg.substring(0, eq), arg.substring(eq + 1));
+    }
+
+    final LoadStats stats = new LoadStats();
+    final SyntheticTaskStream stream = SyntheticTaskStream.valueOf(
+        Double.parseDouble(options.get("rate")),
+        Integer.parseInt(options.get("chunk")),
+        Distribution.valueOf(options.get("dist").toUpperCase()),
+        (long) (Double.parseDouble(options.get("exec")) * 1000),
+        Double.parseDouble(options.get("failure")),
+        stats);
+
+    final int CPUS = Runtime.getRuntime().availableProcessors();
+    final TaskExecutor executor = "adaptive".equals(options.get("concurrency"))
+        ? new ThreadPoolTaskExecutor(GradientConcurrencyLimit.valueOf(CPUS + 1, 1, MAX_CONCURRENCY))
+        : new ThreadPoolTaskExecutor(Integer.parseInt(options.get("concurrency")));
+
+    final long duration = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("duration")));
+    final long report = TimeUnit.SECONDS.toMillis(Long.parseLong(options.get("report")));
+
+    System.out.println("# Load generation - " + options);
+    System.out.println(String.format("# %8s %12s %10s %10s %10s %10s", 
+        "time(s)", "tasks/s", "depth", "backlog", "p99(ms)", "gc(ms)"));
+
+    final SimpleScheduler scheduler = SimpleScheduler.valueOf(
+        stream, executor, Long.parseLong(options.get("period")), TimeUnit.MILLISECONDS).start();
+
+    final long start = System.nanoTime();
+    final long startGcTime = gcTime();
+    final long startGcCount = gcCount();
+    long lastCompleted = 0;
+    long lastGcTime = startGcTime;
+    long maxDepth = 0;
+    long sumDepth = 0;
+    int samples = 0;
+
+    while (System.nanoTime() - start < duration) {
+      Thread.sleep(report);
+
+      final long completed = stats.completed();
+      final long gcTime = gcTime();
+      final int depth = executor.size();
+      maxDepth = Math.max(maxDepth, depth);
+      sumDepth += depth;
+      ++samples;
+
+      System.out.println(String.format("  %8.1f %12.1f %10d %10d %10.2f %10d",
+          (System.nanoTime() - start) / 1e9,
+          (completed - lastCompleted) * 1000.0 / report,
+          depth,
+          stream.backlog(),
+          stats.latencies().percentile(99) / 1000.0,
+          gcTime - lastGcTime));
+
+      lastCompleted = completed;
+      lastGcTime = gcTime;
+    }
+
+    final double elapsed = (System.nanoTime() - start) / 1e9;
+    final long completed = stats.completed();
+    scheduler.shutdown();
+
+    final LatencyHistogram latencies = stats.latencies();
+    final long gcTime = gcTime() - startGcTime;
+    System.out.println("# Summary");
+    System.out.println(String.format("  completed: %d (failed: %d) of submitted: %d, backlog: %d",
+        stats.completed(), stats.failed(), stats.submitted(), stream.backlog()));
+    System.out.println(String.format("  sustained throughput: %.1f tasks/s", completed / elapsed));
+    System.out.println(String.format("  latency (ms) p50: %.2f, p90: %.2f, p99: %.2f, p99.9: %.2f, max: %.2f",
+        latencies.percentile(50) / 1000.0, latencies.percentile(90) / 1000.0, 
+        latencies.percentile(99) / 1000.0, latencies.percentile(99.9) / 1000.0,
+        latencies.percentile(100) / 1000.0));
+    System.out.println(String.format("  queue depth avg: %.1f, max: %d",
+        samples == 0 ? 0.0 : (double) sumDepth / samples, maxDepth));
+    System.out.println(String.format("  gc: %d collections, %d ms (%.2f%% of wall time)",
+        gcCount() - startGcCount, gcTime, gcTime / 10.0 / elapsed));
+    System.out.println("  " + executor.info());
+
+    Logger.dismissAll();
+  }
+
+  /** Returns the accumulated collection time of all collectors in milliseconds. */
+  private static long gcTime() {
+    long time = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      time += Math.max(0, gc.getCollectionTime());
+    }
+    return time;
+  }
+
+  /** Returns the accumulated collection count of all collectors. */
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, gc.getCollectionCount());
+    }
+    return count;
+  }
+}
@@ -0,0 +1,87 @@
+package io.harborl.drip.task.server;
+
+import io.harborl.drip.task.core.GradientConcurrencyLimit;
+import io.harborl.drip.task.core.ThreadPoolTaskExecutor;
+import io.harborl.drip.task.core.codec.TaskCodecs;
+import io.harborl.drip.task.core.remote.RemoteWorker;
+import io.harborl.drip.task.core.utils.Logger;
+import io.harborl.drip.task.task.email.EmailTaskCodec;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Java's command line main entrance of a remote worker process,
+ * which executes the tasks dispatched by a {@linkplain Bootstrap} started with a worker port.
+ * <p/>
+ *
+ * <h5>Usage:</h5>
+ * <pre>
+ * [1]>$ export DRIP_WORKER_SECRET=$secret
+ * [2]>$ java -cp $CLASSPATH io.harborl.drip.task.server.Bootstrap $port $period $workerPort > bootstrap.log &
+ * [3]>$ java -cp $CLASSPATH io.harborl.drip.task.server.WorkerBootstrap localhost $workerPort > worker1.log &
+ * [4]>$ java -cp $CLASSPATH io.harborl.drip.task.server.WorkerBootstrap localhost $workerPort > worker2.log &
+ * </pre>
+ *
+ * The worker proves the secret of {@code DRIP_WORKER_SECRET} to the scheduler before it gets any task.
+ *
+ * The worker runs until the connection breaks, its unfinished tasks are reassigned to the other workers.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class WorkerBootstrap {
+
+  /** The upper bound of the adaptive concurrency, the tasks are I/O bound. */
+  private static final int MAX_CONCURRENCY = 256;
+
+  /** The max silent milliseconds of the scheduler. */
+  private static final long TIMEOUT_MILLIS = 5000;
+
+  public static void main(String[] args) {
+    if (args.length < 2) {
+      System.out.println("Usage: command [Scheduler host] [Scheduler worker port]");
+      System.exit(-1);
+    }
+
+    final String HOST = args[0];
+    final int PORT = Integer.valueOf(args[1]);
+    final String SECRET = System.getenv("DRIP_WORKER_SECRET");
+    if (SECRET == null || SECRET.isEmpty()) {
+      System.out.println("The worker needs the shared secret of the DRIP_WORKER_SECRET environment variable.");
+      System.exit(-1);
+    }
+
+    final int INITIAL_CONCURRENCY = Runtime.getRuntime().availableProcessors() + 1;
+    final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor(
+        GradientConcurrencyLimit.valueOf(INITIAL_CONCURRENCY, 1, Math.max(INITIAL_CONCURRENCY, MAX_CONCURRENCY)));
+
+    final RemoteWorker worker = RemoteWorker.valueOf(
+        HOST, PORT, SECRET, TaskCodecs.valueOf(EmailTaskCodec.INSTANCE), executor, TIMEOUT_MILLIS);
+
+    /* The scheduler reassigns the tasks of a lost worker, so it just disconnects. */
+    Runtime.getRuntime().addShutdownHook(new Thread() {
+        @Override
+        public void run() {
+          worker.close();
+        }
+    });
+
+    try {
+      /* Main thread blocks here. */
+      worker.run();
+    } catch (IOException e) {
+      e.printStackTrace();
+    } finally {
+      try {
+        executor.shudownAndAwait(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      Logger.dismissAll();
+      System.exit(0);
+    }
+  }
+
+}
@@ -1,6 +1,10 @@
 package io.harborl.drip.task.task.email;
 
 import io.harborl.drip.task.core.AyncTask;
+import io.harborl.drip.task.core.Positioned;
+import io.harborl.drip.task.core.Recordable;
+import io.harborl.drip.task.core.Tenanted;
+import io.harborl.drip.task.core.utils.IDs;
 import io.harborl.drip.task.core.utils.Logger;
 import io.harborl.drip.task.core.utils.Util;
 
@@ -12,38 +16,97 @@ import java.util.concurrent.atomic.AtomicInteger;
  * <br/>
  * It also provides to email sending function through
  * the underlying suitable mail service selected by msg type.
+ * <br/>
+ * A task of a drip campaign carries the campaign id and the step (message) id of the campaign,
+ * which are distinct from the tenant, namely the customer who owns the campaign.
+ * <br/>
+ * The status is logged per task, unless it is recorded in batches by an {@code OutcomeRecorder}.
  * 
  * @author Harbor Luo
  * @version 0.0.1
  *
  */
-public class EmailTask implements AyncTask {
+public class EmailTask implements AyncTask, Positioned, Tenanted, Recordable {
 
   static final AtomicInteger idInc = new AtomicInteger();
+  private final long id;
   private final String name;
+  private final String tenant;
+  private final String campaign;
+  private final String step;
   
-  private EmailTask(String task) {
+  /** Whether the status is recorded by an {@code OutcomeRecorder}, otherwise it is logged. */
+  private volatile boolean recorded;
+  
+  private EmailTask(long id, String task, String tenant, String campaign, String step) {
+    this.id = id;
     this.name = task;
+    this.tenant = tenant;
+    this.campaign = campaign;
+    this.step = step;
   }
 
   public static EmailTask valueOf(String task) {
+    return valueOf(IDs.MAIL.gen(), task);
+  }
+
+  /** Creates a task with the specified id, such as the key of the task source. */
+  public static EmailTask valueOf(long id, String task) {
+    return valueOf(id, task, null);
+  }
+
+  /** Creates a task with the specified id and the tenant, such as the customer of campaign. */
+  public static EmailTask valueOf(long id, String task, String tenant) {
+    return valueOf(id, task, tenant, null, null);
+  }
+
+  /** 
+   * Creates a task of a campaign's step, the tenant, the campaign and the step might be null.
+   * 
+   * @param id the task's id, such as the key of the task source
+   * @param task the task's name, namely the recipient
+   * @param tenant the customer who owns the campaign
+   * @param campaign the campaign's id
+   * @param step the id of the campaign's step (message)
+   * @return returns the created instance
+   */
+  public static EmailTask valueOf(long id, String task, String tenant, String campaign, String step) {
     Util.GuardsNull(task, "task is null");
-    return new EmailTask(task);
+    return new EmailTask(id, task, tenant, campaign, step);
   }
 
   @Override
   public void exec() {
-    Logger.out.println("Sending - " + this.name);
+    send(this.name);
+  }
+
+  /** Sends the mail of the task, which is shared with the columnar {@linkplain EmailTaskChunk}. */
+  static void send(String name) {
+    Logger.out.println("Sending - " + name);
+  }
+  
+  /** Logs the status of the task, which is shared with the columnar {@linkplain EmailTaskChunk}. */
+  static void log(String name, Throwable failure) {
+    if (failure == null) {
+      Logger.out.println(name + " send mail successed.");
+    } else {
+      Logger.out.println(name + " send mail failed! - " + failure);
+    }
   }
   
   @Override
   public void onFailure(Throwable th) {
-    Logger.out.println(name + " send mail failed!");
+    if (!recorded) log(this.name, th);
   }
 
   @Override
   public void onSucceed() {
-    Logger.out.println(name + " send mail successed.");
+    if (!recorded) log(this.name, null);
+  }
+
+  @Override
+  public void recorded() {
+    this.recorded = true;
   }
 
   @Override
@@ -51,4 +114,31 @@ public class EmailTask implements AyncTask {
     return this.name;
   }
 
+  /** Returns the Task's id. */
+  public long id() {
+    return this.id;
+  }
+
+  /** Returns the Task's tenant, or null if it has no tenant. */
+  @Override
+  public String tenant() {
+    return this.tenant;
+  }
+
+  /** Returns the Task's campaign id, or null if it isn't a campaign's task. */
+  public String campaign() {
+    return this.campaign;
+  }
+
+  /** Returns the id of the Task's step (message) in the campaign, or null if it has no step. */
+  public String step() {
+    return this.step;
+  }
+
+  /** The id is the position, which is the key of task source. */
+  @Override
+  public long position() {
+    return this.id;
+  }
+
 }
@@ -0,0 +1,294 @@
+package io.harborl.drip.task.task.email;
+
+import io.harborl.drip.task.core.AyncTask;
+import io.harborl.drip.task.core.ChunkCursor;
+import io.harborl.drip.task.core.Positioned;
+import io.harborl.drip.task.core.Recordable;
+import io.harborl.drip.task.core.TaskChunk;
+import io.harborl.drip.task.core.Tenanted;
+import io.harborl.drip.task.core.utils.Util;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A columnar chunk of Drip mail's tasks.<br/>
+ * <p/>
+ * The columns are:
+ * <ul>
+ *   <li>the ids in a {@code long[]};</li>
+ *   <li>the names in one UTF-8 byte arena, with the start offsets in an {@code int[]};</li>
+ *   <li>the tenants, the campaigns and the steps dictionary encoded, each has the codes in an
+ *   {@code int[]} (-1 for none) and the distinct values in a small dictionary, since a chunk
+ *   usually has a few campaigns.</li>
+ * </ul>
+ * So a row takes 24 bytes plus its name bytes, rather than an {@code EmailTask},
+ * a {@code String}, its {@code char[]} and a list slot. The name is only decoded when
+ * a cursor reads it, which is a short-lived object.
+ * <p/>
+ * It is immutable once built, the cursors can read it concurrently. The status of a row is logged
+ * just like the {@linkplain EmailTask}, unless the chunk is recorded by an {@code OutcomeRecorder}.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class EmailTaskChunk implements TaskChunk, Recordable {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  public static final EmailTaskChunk EMPTY = builder(0).build();
+
+  private final int size;
+  private final long[] ids;
+  private final int[] nameOffsets;
+  private final byte[] names;
+  private final int[] tenantCodes;
+  private final String[] tenants;
+  private final int[] campaignCodes;
+  private final String[] campaigns;
+  private final int[] stepCodes;
+  private final String[] steps;
+
+  /** Whether the status of the rows is recorded by an {@code OutcomeRecorder}, otherwise it is logged. */
+  private volatile boolean recorded;
+
+  private EmailTaskChunk(int size, long[] ids, int[] nameOffsets, byte[] names, 
+      int[] tenantCodes, String[] tenants, int[] campaignCodes, String[] campaigns, int[] stepCodes, String[] steps) {
+    this.size = size;
+    this.ids = ids;
+    this.nameOffsets = nameOffsets;
+    this.names = names;
+    this.tenantCodes = tenantCodes;
+    this.tenants = tenants;
+    this.campaignCodes = campaignCodes;
+    this.campaigns = campaigns;
+    this.stepCodes = stepCodes;
+    this.steps = steps;
+  }
+
+  /** Returns a builder with the expected count of rows. */
+  public static Builder builder(int expectedRows) {
+    return new Builder(Math.max(1, expectedRows));
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /** Returns the id of the row. */
+  public long id(int row) {
+    return ids[row];
+  }
+
+  /** Returns the name of the row, which is decoded from the arena. */
+  public String name(int row) {
+    return new String(names, nameOffsets[row], nameOffsets[row + 1] - nameOffsets[row], UTF_8);
+  }
+
+  /** Returns the tenant of the row, or null if it has no tenant. */
+  public String tenant(int row) {
+    final int code = tenantCodes[row];
+    return code < 0 ? null : tenants[code];
+  }
+
+  /** Returns the campaign of the row, or null if it has no campaign. */
+  public String campaign(int row) {
+    final int code = campaignCodes[row];
+    return code < 0 ? null : campaigns[code];
+  }
+
+  /** Returns the campaign's step of the row, or null if it has no step. */
+  public String step(int row) {
+    final int code = stepCodes[row];
+    return code < 0 ? null : steps[code];
+  }
+
+  /** Returns the bytes retained by the columns, which is roughly the chunk's heap size. */
+  public long bytes() {
+    return ids.length * 8L + nameOffsets.length * 4L + names.length 
+        + (tenantCodes.length + campaignCodes.length + stepCodes.length) * 4L;
+  }
+
+  @Override
+  public void recorded() {
+    this.recorded = true;
+  }
+
+  @Override
+  public EmailCursor cursor() {
+    return new EmailCursor();
+  }
+
+  @Override
+  public AyncTask task(int row) {
+    return EmailTask.valueOf(ids[row], name(row), tenant(row), campaign(row), step(row));
+  }
+
+  /** 
+   * The cursor over the rows, which runs a row just like the {@linkplain EmailTask}.
+   * Its position and tenant are the current row's, which are read by the {@linkplain io.harborl.drip.task.core.Outcome}.
+   */
+  public final class EmailCursor implements ChunkCursor, Positioned, Tenanted {
+    private int row = -1;
+
+    private EmailCursor() { }
+
+    @Override
+    public EmailCursor moveTo(int row) {
+      if (row < 0 || row >= size) throw new IndexOutOfBoundsException("row " + row + " of " + size);
+      this.row = row;
+      return this;
+    }
+
+    @Override
+    public int row() {
+      return row;
+    }
+
+    /** Returns the id of current row. */
+    public long id() {
+      return ids[row];
+    }
+
+    /** Returns the position of current row, which is the id just like the {@linkplain EmailTask}. */
+    @Override
+    public long position() {
+      return ids[row];
+    }
+
+    /** Returns the tenant of current row, or null if it has no tenant. */
+    @Override
+    public String tenant() {
+      return EmailTaskChunk.this.tenant(row);
+    }
+
+    /** Returns the campaign of current row, or null if it has no campaign. */
+    public String campaign() {
+      return EmailTaskChunk.this.campaign(row);
+    }
+
+    /** Returns the campaign's step of current row, or null if it has no step. */
+    public String step() {
+      return EmailTaskChunk.this.step(row);
+    }
+
+    @Override
+    public String name() {
+      return EmailTaskChunk.this.name(row);
+    }
+
+    @Override
+    public void exec() {
+      EmailTask.send(name());
+    }
+
+    @Override
+    public void onFailure(Throwable th) {
+      if (!recorded) EmailTask.log(name(), th);
+    }
+
+    @Override
+    public void onSucceed() {
+      if (!recorded) EmailTask.log(name(), null);
+    }
+  }
+
+  /**
+   * The builder of a chunk, which appends the rows to the growing columns.<br/>
+   * <strong><tt>Note:</tt></strong> It is not thread-safe.
+   */
+  public static final class Builder {
+    private int size;
+    private long[] ids;
+    private int[] nameOffsets;
+    private byte[] names;
+    private int[] tenantCodes;
+    private int[] campaignCodes;
+    private int[] stepCodes;
+    private final Dictionary tenants = new Dictionary();
+    private final Dictionary campaigns = new Dictionary();
+    private final Dictionary steps = new Dictionary();
+
+    private Builder(int expectedRows) {
+      this.ids = new long[expectedRows];
+      this.nameOffsets = new int[expectedRows + 1];
+      this.names = new byte[expectedRows * 16];
+      this.tenantCodes = new int[expectedRows];
+      this.campaignCodes = new int[expectedRows];
+      this.stepCodes = new int[expectedRows];
+    }
+
+    /** Appends a row without campaign, the tenant might be null. */
+    public Builder add(long id, String name, String tenant) {
+      return add(id, name, tenant, null, null);
+    }
+
+    /** Appends a row of a campaign's step, the tenant, the campaign and the step might be null. */
+    public Builder add(long id, String name, String tenant, String campaign, String step) {
+      Util.GuardsNull(name, "name is null");
+      if (size == ids.length) {
+        final int capacity = size + (size >> 1) + 1;
+        ids = Arrays.copyOf(ids, capacity);
+        nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+        tenantCodes = Arrays.copyOf(tenantCodes, capacity);
+        campaignCodes = Arrays.copyOf(campaignCodes, capacity);
+        stepCodes = Arrays.copyOf(stepCodes, capacity);
+      }
+
+      final byte[] bytes = name.getBytes(UTF_8);
+      final int offset = nameOffsets[size];
+      if (offset + bytes.length > names.length) {
+        names = Arrays.copyOf(names, Math.max(offset + bytes.length, names.length + (names.length >> 1)));
+      }
+      System.arraycopy(bytes, 0, names, offset, bytes.length);
+
+      ids[size] = id;
+      nameOffsets[size + 1] = offset + bytes.length;
+      tenantCodes[size] = tenants.code(tenant);
+      campaignCodes[size] = campaigns.code(campaign);
+      stepCodes[size] = steps.code(step);
+      ++size;
+      return this;
+    }
+
+    /** Returns the built chunk, the columns are trimmed to the size. */
+    public EmailTaskChunk build() {
+      return new EmailTaskChunk(size,
+          Arrays.copyOf(ids, size),
+          Arrays.copyOf(nameOffsets, size + 1),
+          Arrays.copyOf(names, nameOffsets[size]),
+          Arrays.copyOf(tenantCodes, size), tenants.values(),
+          Arrays.copyOf(campaignCodes, size), campaigns.values(),
+          Arrays.copyOf(stepCodes, size), steps.values());
+    }
+  }
+
+  /** The distinct values of a dictionary encoded column, a value's code is its index. */
+  private static final class Dictionary {
+    private final List<String> values = new ArrayList<String>();
+    private final Map<String, Integer> index = new HashMap<String, Integer>();
+
+    /** Returns the code of the value, or -1 if it is null. */
+    int code(String value) {
+      if (value == null) return -1;
+
+      Integer code = index.get(value);
+      if (code == null) {
+        code = values.size();
+        values.add(value);
+        index.put(value, code);
+      }
+      return code;
+    }
+
+    String[] values() {
+      return values.toArray(new String[values.size()]);
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package io.harborl.drip.task.task.email;
+
+import io.harborl.drip.task.core.codec.TaskCodec;
+import io.harborl.drip.task.core.codec.TaskView;
+import io.harborl.drip.task.core.codec.Utf8;
+import io.harborl.drip.task.core.codec.Varints;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The {@linkplain TaskCodec} of the Drip mail's task.<br/>
+ * <p/>
+ * The payload is the name, a varint length followed by the UTF-8 bytes, and then the optional
+ * tenant, campaign and step, each is a varint of its length plus one followed by the UTF-8 bytes,
+ * or a zero for null. The trailing nulls are omitted, so a payload of only the name decodes to
+ * a task without tenant, campaign and step.
+ * The static readers are used to read the fields from a {@linkplain TaskView} in place.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class EmailTaskCodec implements TaskCodec<EmailTask> {
+
+  /** The type tag of the Drip mail's task. */
+  public static final int TAG = 1;
+
+  public static final EmailTaskCodec INSTANCE = new EmailTaskCodec();
+
+  private EmailTaskCodec() { }
+
+  @Override
+  public int tag() {
+    return TAG;
+  }
+
+  @Override
+  public Class<EmailTask> type() {
+    return EmailTask.class;
+  }
+
+  @Override
+  public long id(EmailTask task) {
+    return task.id();
+  }
+
+  /** The indexes of the optional fields which follow the name. */
+  private static final int TENANT = 0;
+  private static final int CAMPAIGN = 1;
+  private static final int STEP = 2;
+
+  @Override
+  public int payloadSize(EmailTask task) {
+    final String[] optionals = optionals(task);
+    int size = stringSize(task.name());
+    for (String optional : optionals) {
+      size += optional == null ? 1 : optionalSize(optional);
+    }
+    return size;
+  }
+
+  @Override
+  public void encode(EmailTask task, ByteBuffer buffer) {
+    putString(buffer, task.name());
+    for (String optional : optionals(task)) {
+      if (optional == null) {
+        Varints.put(buffer, 0);
+      } else {
+        Varints.put(buffer, Utf8.sizeOf(optional) + 1);
+        Utf8.put(buffer, optional);
+      }
+    }
+  }
+
+  @Override
+  public EmailTask decode(TaskView view) {
+    return EmailTask.valueOf(view.id(), name(view), tenant(view), campaign(view), step(view));
+  }
+
+  /** Returns the optional fields up to the last non-null one. */
+  private static String[] optionals(EmailTask task) {
+    final String[] optionals = { task.tenant(), task.campaign(), task.step() };
+    int count = optionals.length;
+    while (count > 0 && optionals[count - 1] == null) --count;
+    return count == optionals.length ? optionals : Arrays.copyOf(optionals, count);
+  }
+
+  /** Returns the encoded size of a length prefixed string. */
+  private static int stringSize(String string) {
+    final int size = Utf8.sizeOf(string);
+    return Varints.sizeOf(size) + size;
+  }
+
+  /** Returns the encoded size of a non-null optional string. */
+  private static int optionalSize(String string) {
+    final int size = Utf8.sizeOf(string);
+    return Varints.sizeOf(size + 1) + size;
+  }
+
+  /** Writes a length prefixed string. */
+  private static void putString(ByteBuffer buffer, String string) {
+    Varints.put(buffer, Utf8.sizeOf(string));
+    Utf8.put(buffer, string);
+  }
+
+  /** Returns the UTF-8 length of the name in place. */
+  public static int nameLength(TaskView view) {
+    return (int) Varints.get(view.buffer(), view.payloadOffset());
+  }
+
+  /** Materializes the name only. */
+  public static String name(TaskView view) {
+    return getString(view.buffer(), view.payloadOffset());
+  }
+
+  /** Materializes the tenant only, returns null if it is absent. */
+  public static String tenant(TaskView view) {
+    return optional(view, TENANT);
+  }
+
+  /** Materializes the campaign only, returns null if it is absent. */
+  public static String campaign(TaskView view) {
+    return optional(view, CAMPAIGN);
+  }
+
+  /** Materializes the step only, returns null if it is absent. */
+  public static String step(TaskView view) {
+    return optional(view, STEP);
+  }
+
+  /** Skips to the optional field of the specified index in place, returns null if it is absent. */
+  private static String optional(TaskView view, int field) {
+    final ByteBuffer buffer = view.buffer();
+    final int nameOffset = view.payloadOffset();
+    final int end = nameOffset + view.payloadLength();
+    int offset = nameOffset + Varints.sizeAt(buffer, nameOffset) + nameLength(view);
+    for (int i = 0; offset < end; ++i) {
+      final int length = (int) Varints.get(buffer, offset);
+      final int start = offset + Varints.sizeAt(buffer, offset);
+      if (i == field) return length == 0 ? null : Utf8.get(buffer, start, length - 1);
+      offset = start + Math.max(0, length - 1);
+    }
+    return null;
+  }
+
+  /** Reads a length prefixed string at the specified index. */
+  private static String getString(ByteBuffer buffer, int index) {
+    final int length = (int) Varints.get(buffer, index);
+    return Utf8.get(buffer, index + Varints.sizeAt(buffer, index), length);
+  }
+}
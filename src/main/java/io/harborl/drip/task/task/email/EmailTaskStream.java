@@ -1,21 +1,43 @@
 package io.harborl.drip.task.task.email;
 
 import io.harborl.drip.task.core.AyncTask;
+import io.harborl.drip.task.core.ChunkTaskStream;
+import io.harborl.drip.task.core.Configurable;
+import io.harborl.drip.task.core.TaskChunk;
 import io.harborl.drip.task.core.TaskStream;
 import io.harborl.drip.task.core.utils.Logger;
+import io.harborl.drip.task.core.utils.Settings;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * The domain based definition of a Drip mail's task stream 
+ * The domain based definition of a Drip mail's task stream
  * which is used to fetch the tasks with a adaptive chunk size.<br/>
- * 
+ * <p/>
+ * The tasks are fetched into a columnar {@linkplain EmailTaskChunk} for the executors which read
+ * the chunks, the {@link #nextChunk()} fills up the task objects directly for the others.
+ * <p/>
+ * The {@code chunk.size} (the max tasks of a fetch) and {@code fetch.size} (the rows per
+ * round-trip of the source) settings can be changed at runtime, which take effect at the next fetch.
+ *
  * @author Harbor Luo
  * @since 0.0.1
  *
  */
-public class EmailTaskStream implements TaskStream {
+public class EmailTaskStream implements ChunkTaskStream, Configurable {
+
+  /** The default max tasks of a fetch, which is the initial capacity of a larger chunk as well. */
+  private static final int CHUNK_ROWS = 1024;
+
+  /** The upper bound of the chunk size and fetch size which can be set at runtime. */
+  private static final int MAX_CHUNK_SIZE = 1000000;
+
+  /** The settings which can be changed at runtime. */
+  private volatile int chunkSize = CHUNK_ROWS;
+  private volatile int fetchSize = CHUNK_ROWS;
 
   private EmailTaskStream() {
     Logger.out.println("$> new task stream - ");
@@ -25,13 +47,54 @@ public class EmailTaskStream implements TaskStream {
     return new EmailTaskStream();
   }
 
+  @Override
+  public TaskChunk nextTaskChunk() {
+    final int chunkSize = this.chunkSize;
+    EmailTaskChunk.Builder chunk = EmailTaskChunk.builder(Math.min(chunkSize, CHUNK_ROWS));
+
+    // Fills up at most chunkSize rows here, fetchSize rows per round-trip, e.g. chunk.add(id, name, tenant, campaign, step).
+
+    return chunk.build();
+  }
+
   @Override
   public List<AyncTask> nextChunk() {
-    List<AyncTask> ayncTasks = new ArrayList<AyncTask>();
+    final int chunkSize = this.chunkSize;
+    List<AyncTask> ayncTasks = new ArrayList<AyncTask>(Math.min(chunkSize, CHUNK_ROWS));
+
+    // Fills up at most chunkSize tasks here, fetchSize rows per round-trip.
 
-    // Fills up the task here.
-    
     return ayncTasks;
   }
 
+  @Override
+  public String get(String key) {
+    if ("chunk.size".equals(key)) {
+      return String.valueOf(chunkSize);
+    } else if ("fetch.size".equals(key)) {
+      return String.valueOf(fetchSize);
+    }
+    return null;
+  }
+
+  @Override
+  public boolean set(String key, String value) {
+    if ("chunk.size".equals(key)) {
+      chunkSize = Settings.intIn(key, value, 1, MAX_CHUNK_SIZE);
+      return true;
+    } else if ("fetch.size".equals(key)) {
+      fetchSize = Settings.intIn(key, value, 1, MAX_CHUNK_SIZE);
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public Map<String, String> settings() {
+    Map<String, String> settings = new LinkedHashMap<String, String>();
+    settings.put("chunk.size", get("chunk.size"));
+    settings.put("fetch.size", get("fetch.size"));
+    return settings;
+  }
+
 }
@@ -0,0 +1,91 @@
+package io.harborl.drip.task.task.email;
+
+import io.harborl.drip.task.core.Outcome;
+import io.harborl.drip.task.core.OutcomeSink;
+import io.harborl.drip.task.core.utils.Util;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+/**
+ * An {@linkplain OutcomeSink} which updates the status of Drip mail's tasks in a batch.<br/>
+ * <p/>
+ * The update must take the status ({@code SUCCEEDED} or {@code FAILED}), the failure 
+ * (null if succeeded) and the task key as its parameters in order, e.g.
+ * <pre>
+ * UPDATE drip_email_task SET status = ?, failure = ? WHERE id = ?
+ * </pre>
+ * A batch is executed in one transaction, the outcomes without a key are skipped.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class JdbcEmailOutcomeSink implements OutcomeSink {
+
+  private final DataSource dataSource;
+  private final String update;
+
+  private JdbcEmailOutcomeSink(DataSource dataSource, String update) {
+    this.dataSource = dataSource;
+    this.update = update;
+  }
+
+  /** Creates a sink with the specified data source and the update statement. */
+  public static JdbcEmailOutcomeSink valueOf(DataSource dataSource, String update) {
+    Util.GuardsNull(dataSource, "dataSource is null");
+    Util.GuardsNull(update, "update is null");
+    return new JdbcEmailOutcomeSink(dataSource, update);
+  }
+
+  @Override
+  public void write(List<Outcome> outcomes) throws IOException {
+    try {
+      executeBatch(outcomes);
+    } catch (SQLException e) {
+      throw new IOException("Update outcomes failed", e);
+    }
+  }
+
+  private void executeBatch(List<Outcome> outcomes) throws SQLException {
+    Connection connection = dataSource.getConnection();
+    try {
+      final boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try {
+        PreparedStatement statement = connection.prepareStatement(update);
+        try {
+          for (Outcome outcome : outcomes) {
+            if (outcome.id() == Outcome.NO_ID) continue;
+
+            statement.setString(1, outcome.succeeded() ? "SUCCEEDED" : "FAILED");
+            if (outcome.succeeded()) {
+              statement.setNull(2, Types.VARCHAR);
+            } else {
+              statement.setString(2, outcome.failure());
+            }
+            statement.setLong(3, outcome.id());
+            statement.addBatch();
+          }
+          statement.executeBatch();
+          connection.commit();
+        } finally {
+          statement.close();
+        }
+      } catch (SQLException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(autoCommit);
+      }
+    } finally {
+      connection.close();
+    }
+  }
+}
@@ -0,0 +1,338 @@
+package io.harborl.drip.task.task.email;
+
+import io.harborl.drip.task.core.AyncTask;
+import io.harborl.drip.task.core.Configurable;
+import io.harborl.drip.task.core.TaskStream;
+import io.harborl.drip.task.core.utils.Logger;
+import io.harborl.drip.task.core.utils.Settings;
+import io.harborl.drip.task.core.utils.Util;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+/**
+ * A relational table backed Drip mail's task stream.<br/>
+ * <p/>
+ * It reads the table through keyset (seek) pagination rather than OFFSET,
+ * the query must select the task key and task name as the first two columns,
+ * take the last seen key as its only parameter and order by the key ascending, e.g.
+ * <pre>
+ * SELECT id, recipient FROM drip_email_task WHERE id > ? ORDER BY id
+ * </pre>
+ * The tenant, the campaign and the campaign's step are read from the columns of explicit labels,
+ * see {@link #tenantColumn(String)}, {@link #campaignColumn(String)} and {@link #stepColumn(String)}, e.g.
+ * <pre>
+ * JdbcEmailTaskStream.valueOf(ds, 
+ *     "SELECT id, recipient, customer, campaign_id, step_id FROM drip_email_task WHERE id > ? ORDER BY id", 
+ *     1000, 1000).tenantColumn("customer").campaignColumn("campaign_id").stepColumn("step_id");
+ * </pre>
+ * A page is limited by {@code setMaxRows}, and the rows are streamed through 
+ * a forward-only cursor with the configured fetch size.
+ * <p/>
+ * The next page is prefetched on a background thread as soon as the current one 
+ * is handed out, so {@link #nextChunk()} rarely blocks. An empty page isn't prefetched
+ * again, the next round queries the table directly for the fresh rows.
+ * <p/>
+ * The {@code chunk.size} and {@code fetch.size} settings can be changed at runtime, 
+ * which take effect at the next fetch.
+ * <p/>
+ * {@link #close()} cancels the prefetch and stops the background thread, which releases
+ * its connection, the scheduler invokes it on shutdown.
+ * <p/>
+ * <strong><tt>Note:</tt></strong> It is not thread-safe, which is expected to be
+ * driven by the single thread scheduler.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class JdbcEmailTaskStream implements TaskStream, Configurable, Closeable {
+
+  /** The upper bound of the page size which can be set at runtime. */
+  private static final int MAX_PAGE_SIZE = 1000000;
+
+  /** The max seconds to wait the prefetch in progress to release its connection on close. */
+  private static final int CLOSE_TIMEOUT_SECONDS = 10;
+
+  private final DataSource dataSource;
+  private final String query;
+  
+  /** The page size and fetch size, which can be changed at runtime. */
+  private volatile int pageSize;
+  private volatile int fetchSize;
+  
+  /** The single background thread used to prefetch the next page. */
+  private final ExecutorService prefetcher;
+  
+  /** The key of the last task handed out. */
+  private long lastKey;
+  
+  /** The prefetched next page, or null if there is no page in fetching. */
+  private Future<Page> nextPage;
+
+  private volatile boolean closed;
+
+  /** The label of the tenant column, or null if the tasks have no tenant. */
+  private volatile String tenantColumn;
+
+  /** The labels of the campaign and step columns, or null if the tasks have none. */
+  private volatile String campaignColumn;
+  private volatile String stepColumn;
+
+  private JdbcEmailTaskStream(
+      DataSource dataSource, String query, 
+      int pageSize, int fetchSize, long fromKey) {
+    this.dataSource = dataSource;
+    this.query = query;
+    this.pageSize = pageSize;
+    this.fetchSize = fetchSize;
+    this.lastKey = fromKey;
+    this.prefetcher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "[JdbcEmailTaskStream] - prefetcher - ");
+        thread.setDaemon(true);
+        return thread;
+      }
+
+    });
+  }
+
+  /**
+   * Creates a stream which reads the whole table from the beginning.
+   * 
+   * @param dataSource the data source of task table
+   * @param query the keyset query with the last seen key as its only parameter
+   * @param pageSize the max rows of a page, namely the chunk size
+   * @param fetchSize the fetch size hint of the cursor
+   * @return returns the created instance
+   */
+  public static JdbcEmailTaskStream valueOf(
+      DataSource dataSource, String query, int pageSize, int fetchSize) {
+    return valueOf(dataSource, query, pageSize, fetchSize, Long.MIN_VALUE);
+  }
+
+  /**
+   * Creates a stream which reads the table from the rows after the specified key.
+   * 
+   * @param dataSource the data source of task table
+   * @param query the keyset query with the last seen key as its only parameter
+   * @param pageSize the max rows of a page, namely the chunk size
+   * @param fetchSize the fetch size hint of the cursor
+   * @param fromKey the exclusive key to start with
+   * @return returns the created instance
+   */
+  public static JdbcEmailTaskStream valueOf(
+      DataSource dataSource, String query, 
+      int pageSize, int fetchSize, long fromKey) {
+    Util.GuardsNull(dataSource, "dataSource is null");
+    Util.GuardsNull(query, "query is null");
+    if (pageSize <= 0) throw new IllegalArgumentException("pageSize must be positive");
+    if (fetchSize < 0 && fetchSize != Integer.MIN_VALUE) 
+      throw new IllegalArgumentException("fetchSize must not be negative");
+
+    return new JdbcEmailTaskStream(dataSource, query, pageSize, fetchSize, fromKey);
+  }
+
+  /** 
+   * Reads the tenant of tasks from the column of the specified label, returns this stream.
+   * It should be set before the first fetch.
+   */
+  public JdbcEmailTaskStream tenantColumn(String label) {
+    Util.GuardsNull(label, "label is null");
+    this.tenantColumn = label;
+    return this;
+  }
+
+  /** 
+   * Reads the campaign of tasks from the column of the specified label, returns this stream.
+   * It should be set before the first fetch.
+   */
+  public JdbcEmailTaskStream campaignColumn(String label) {
+    Util.GuardsNull(label, "label is null");
+    this.campaignColumn = label;
+    return this;
+  }
+
+  /** 
+   * Reads the campaign's step of tasks from the column of the specified label, returns this stream.
+   * It should be set before the first fetch.
+   */
+  public JdbcEmailTaskStream stepColumn(String label) {
+    Util.GuardsNull(label, "label is null");
+    this.stepColumn = label;
+    return this;
+  }
+
+  @Override
+  public List<AyncTask> nextChunk() {
+    if (closed) return Collections.emptyList();
+
+    Future<Page> current = nextPage != null ? nextPage : prefetch(lastKey);
+    nextPage = null;
+
+    Page page;
+    try {
+      page = current.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Collections.emptyList();
+    } catch (ExecutionException e) {
+      /* The next round retries from the same key. */
+      Logger.err.println("[JdbcEmailTaskStream] [ERROR] - fetch page failed - " + e.getCause());
+      return Collections.emptyList();
+    }
+
+    if (page.tasks.isEmpty()) return page.tasks;
+
+    lastKey = page.lastKey;
+    nextPage = prefetch(lastKey);
+    return page.tasks;
+  }
+
+  /** Submits a fetch of the page after the specified key to the background thread. */
+  private Future<Page> prefetch(final long afterKey) {
+    return prefetcher.submit(new Callable<Page>() {
+
+      @Override
+      public Page call() throws SQLException {
+        return fetch(afterKey);
+      }
+
+    });
+  }
+
+  /** Fetches the page after the specified key through a streaming cursor. */
+  private Page fetch(long afterKey) throws SQLException {
+    final int pageSize = this.pageSize;
+    final String tenantColumn = this.tenantColumn;
+    final String campaignColumn = this.campaignColumn;
+    final String stepColumn = this.stepColumn;
+    Connection connection = dataSource.getConnection();
+    try {
+      /* Some drivers (e.g. PostgreSQL) only stream the rows inside of a transaction. */
+      boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try {
+        PreparedStatement statement = connection.prepareStatement(
+            query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+          statement.setFetchSize(fetchSize);
+          statement.setMaxRows(pageSize);
+          statement.setLong(1, afterKey);
+
+          List<AyncTask> tasks = new ArrayList<AyncTask>(pageSize);
+          long key = afterKey;
+          ResultSet rs = statement.executeQuery();
+          try {
+            final int tenant = tenantColumn == null ? -1 : rs.findColumn(tenantColumn);
+            final int campaign = campaignColumn == null ? -1 : rs.findColumn(campaignColumn);
+            final int step = stepColumn == null ? -1 : rs.findColumn(stepColumn);
+            while (rs.next()) {
+              key = rs.getLong(1);
+              tasks.add(EmailTask.valueOf(key, rs.getString(2), 
+                  tenant < 0 ? null : rs.getString(tenant),
+                  campaign < 0 ? null : rs.getString(campaign),
+                  step < 0 ? null : rs.getString(step)));
+            }
+          } finally {
+            rs.close();
+          }
+          return new Page(tasks, key);
+        } finally {
+          statement.close();
+          connection.rollback();
+        }
+      } finally {
+        connection.setAutoCommit(autoCommit);
+      }
+    } finally {
+      connection.close();
+    }
+  }
+
+  /**
+   * Cancels the prefetch and stops the background thread, waits a while for the fetch
+   * in progress to return its connection.
+   */
+  @Override
+  public void close() {
+    if (closed) return;
+    closed = true;
+
+    if (nextPage != null) nextPage.cancel(true);
+    nextPage = null;
+    prefetcher.shutdownNow();
+    try {
+      if (!prefetcher.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        Logger.err.println("[JdbcEmailTaskStream] [ERROR] - prefetch still running after close");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public String get(String key) {
+    if ("chunk.size".equals(key)) {
+      return String.valueOf(pageSize);
+    } else if ("fetch.size".equals(key)) {
+      return String.valueOf(fetchSize);
+    }
+    return null;
+  }
+
+  @Override
+  public boolean set(String key, String value) {
+    if ("chunk.size".equals(key)) {
+      pageSize = Settings.intIn(key, value, 1, MAX_PAGE_SIZE);
+      return true;
+    } else if ("fetch.size".equals(key)) {
+      /* Integer.MIN_VALUE is the streaming hint of MySQL driver. */
+      int size = Settings.intIn(key, value, Integer.MIN_VALUE, MAX_PAGE_SIZE);
+      if (size < 0 && size != Integer.MIN_VALUE) 
+        throw new IllegalArgumentException(key + " must not be negative - " + value);
+      fetchSize = size;
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public Map<String, String> settings() {
+    Map<String, String> settings = new LinkedHashMap<String, String>();
+    settings.put("chunk.size", get("chunk.size"));
+    settings.put("fetch.size", get("fetch.size"));
+    return settings;
+  }
+
+  /** A fetched page with the key of its last task. */
+  private static final class Page {
+    final List<AyncTask> tasks;
+    final long lastKey;
+
+    Page(List<AyncTask> tasks, long lastKey) {
+      this.tasks = tasks;
+      this.lastKey = lastKey;
+    }
+  }
+
+}
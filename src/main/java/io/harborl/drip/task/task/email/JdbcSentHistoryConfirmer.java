@@ -0,0 +1,93 @@
+package io.harborl.drip.task.task.email;
+
+import io.harborl.drip.task.core.utils.Util;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+/**
+ * A relational table backed {@linkplain SentHistoryConfirmer}.<br/>
+ * <p/>
+ * The query must take the task key as its parameters, and return a row if the task has been sent.
+ * The key must be the same one of the {@linkplain SentHistoryTaskStream}, by {@link SentHistoryKey#ID}
+ * the query takes the task id, e.g.
+ * <pre>
+ * SELECT 1 FROM drip_email_task WHERE id = ? AND status = 'SUCCEEDED'
+ * </pre>
+ * and by {@link SentHistoryKey#CAMPAIGN_STEP_AND_RECIPIENT} it takes the campaign, the step 
+ * and the recipient, e.g.
+ * <pre>
+ * SELECT 1 FROM drip_email_task WHERE campaign_id = ? AND step_id = ? AND recipient = ? AND status = 'SUCCEEDED'
+ * </pre>
+ * A task without campaign binds nulls, which match no row, so its positive passes as a false positive.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class JdbcSentHistoryConfirmer implements SentHistoryConfirmer {
+
+  private final DataSource dataSource;
+  private final String query;
+  private final SentHistoryKey key;
+
+  private JdbcSentHistoryConfirmer(DataSource dataSource, String query, SentHistoryKey key) {
+    this.dataSource = dataSource;
+    this.query = query;
+    this.key = key;
+  }
+
+  /** Creates a confirmer with the specified data source and the query, which confirms by the task id. */
+  public static JdbcSentHistoryConfirmer valueOf(DataSource dataSource, String query) {
+    return valueOf(dataSource, query, SentHistoryKey.ID);
+  }
+
+  /** Creates a confirmer with the specified data source and the query, which confirms by the specified key. */
+  public static JdbcSentHistoryConfirmer valueOf(DataSource dataSource, String query, SentHistoryKey key) {
+    Util.GuardsNull(dataSource, "dataSource is null");
+    Util.GuardsNull(query, "query is null");
+    Util.GuardsNull(key, "key is null");
+    return new JdbcSentHistoryConfirmer(dataSource, query, key);
+  }
+
+  /** Returns the key which the query takes. */
+  SentHistoryKey key() {
+    return key;
+  }
+
+  @Override
+  public boolean sent(EmailTask task) throws IOException {
+    try {
+      Connection connection = dataSource.getConnection();
+      try {
+        PreparedStatement statement = connection.prepareStatement(query);
+        try {
+          if (key == SentHistoryKey.CAMPAIGN_STEP_AND_RECIPIENT) {
+            statement.setString(1, task.campaign());
+            statement.setString(2, task.step());
+            statement.setString(3, task.name());
+          } else {
+            statement.setLong(1, task.id());
+          }
+          ResultSet rs = statement.executeQuery();
+          try {
+            return rs.next();
+          } finally {
+            rs.close();
+          }
+        } finally {
+          statement.close();
+        }
+      } finally {
+        connection.close();
+      }
+    } catch (SQLException e) {
+      throw new IOException("Confirm sent history failed - " + task.id(), e);
+    }
+  }
+}
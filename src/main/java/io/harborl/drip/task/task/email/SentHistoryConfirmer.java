@@ -0,0 +1,17 @@
+package io.harborl.drip.task.task.email;
+
+import java.io.IOException;
+
+/**
+ * A SentHistoryConfirmer checks the source of truth whether a task has been sent,
+ * which is only asked for the positives of the {@linkplain SentHistoryFilter}.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public interface SentHistoryConfirmer {
+
+  /** Returns true if the task has been sent. */
+  boolean sent(EmailTask task) throws IOException;
+}
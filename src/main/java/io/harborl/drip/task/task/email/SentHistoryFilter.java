@@ -0,0 +1,300 @@
+package io.harborl.drip.task.task.email;
+
+import io.harborl.drip.task.core.utils.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A scalable Bloom filter of the sent Drip mail's tasks, which answers "definitely not sent"
+ * in memory, and "might be sent" with a bounded false positive rate.<br/>
+ * <p/>
+ * It is a chain of Bloom filters. A new one is added when the last one is full,
+ * with double capacity and half false positive rate, so the overall false positive rate
+ * stays under the configured one however many keys are added. A lookup checks all of them,
+ * an add only sets the bits of the last one.
+ * <p/>
+ * It is persisted by {@link #snapshot()} to a memory-mapped file, which is written to
+ * a temporary file and then renamed, so a crash never leaves a partial snapshot.
+ * {@link #valueOf(File, long, double)} reloads it at startup through a memory-mapped read,
+ * the capacity and the false positive rate of a reloaded filter are the snapshot's.
+ * The keys added after the last snapshot are lost on a crash, so take one regularly.
+ * <p/>
+ * It is thread-safe, the bits are set by CAS.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class SentHistoryFilter {
+
+  private static final int MAGIC = 0x44534846; // "DSHF"
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4;
+  private static final int STAGE_HEADER_BYTES = 8 + 8 + 8 + 4 + 4;
+
+  /** The growth of capacity and the tightening of false positive rate of a new stage. */
+  private static final int GROWTH = 2;
+  private static final double TIGHTENING = 0.5;
+
+  private final File file;
+  private final long initialCapacity;
+  private final double falsePositiveRate;
+
+  /** Copy-on-write by the appender, the last one is being filled. */
+  private volatile Stage[] stages;
+
+  private SentHistoryFilter(File file, long initialCapacity, double falsePositiveRate, Stage[] stages) {
+    this.file = file;
+    this.initialCapacity = initialCapacity;
+    this.falsePositiveRate = falsePositiveRate;
+    this.stages = stages;
+  }
+
+  /**
+   * Loads the filter from the snapshot file, or creates an empty one if the file is absent.
+   *
+   * @param file the snapshot file
+   * @param initialCapacity the key count of the first stage
+   * @param falsePositiveRate the upper bound of the overall false positive rate, e.g. 0.001
+   * @return returns the loaded or created instance
+   * @throws IOException throws when the snapshot is broken
+   */
+  public static SentHistoryFilter valueOf(File file, long initialCapacity, double falsePositiveRate)
+      throws IOException {
+    Util.GuardsNull(file, "file is null");
+    if (initialCapacity <= 0) throw new IllegalArgumentException("initialCapacity must be positive");
+    if (!(falsePositiveRate > 0 && falsePositiveRate < 1))
+      throw new IllegalArgumentException("falsePositiveRate must be in (0, 1)");
+
+    if (file.exists()) return load(file);
+
+    /* The rates of stages are p(1-r), p(1-r)r, ..., whose sum is under p. */
+    return new SentHistoryFilter(file, initialCapacity, falsePositiveRate,
+        new Stage[] { Stage.valueOf(initialCapacity, falsePositiveRate * (1 - TIGHTENING)) });
+  }
+
+  /** Returns the key of a task id. */
+  public static long keyOf(long id) {
+    return mix(id);
+  }
+
+  /** Returns the key of a campaign's step to a recipient, the recipient is case-insensitive. */
+  public static long keyOf(String campaign, String step, String recipient) {
+    long hash = 0xcbf29ce484222325L;
+    hash = fnv(hash, campaign == null ? "" : campaign);
+    hash = (hash ^ 0xFFFF) * 0x100000001b3L;
+    hash = fnv(hash, step == null ? "" : step);
+    hash = (hash ^ 0xFFFF) * 0x100000001b3L;
+    hash = fnv(hash, recipient.toLowerCase());
+    return mix(hash);
+  }
+
+  private static long fnv(long hash, String string) {
+    for (int i = 0, n = string.length(); i < n; ++i) {
+      hash = (hash ^ string.charAt(i)) * 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /** The finalizer of SplitMix64, which spreads the sequential ids over all bits. */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /** Returns false if the key is definitely not added, or true if it might be added. */
+  public boolean mightContain(long key) {
+    for (Stage stage : stages) {
+      if (stage.mightContain(key)) return true;
+    }
+    return false;
+  }
+
+  /** Adds the key. */
+  public void put(long key) {
+    if (mightContain(key)) return;
+
+    Stage[] current = stages;
+    Stage last = current[current.length - 1];
+    if (last.count.get() >= last.capacity) last = grow(last);
+    last.put(key);
+  }
+
+  /** Appends a new stage if the specified one is still the last one, returns the last one. */
+  private synchronized Stage grow(Stage full) {
+    Stage[] current = stages;
+    Stage last = current[current.length - 1];
+    if (last != full) return last;
+
+    Stage[] grown = new Stage[current.length + 1];
+    System.arraycopy(current, 0, grown, 0, current.length);
+    grown[current.length] = Stage.valueOf(full.capacity * GROWTH, full.falsePositiveRate * TIGHTENING);
+    stages = grown;
+    return grown[current.length];
+  }
+
+  /** Returns the count of added keys. */
+  public long size() {
+    long size = 0;
+    for (Stage stage : stages) {
+      size += stage.count.get();
+    }
+    return size;
+  }
+
+  /** Returns the memory used by the bits in bytes. */
+  public long bytes() {
+    long bytes = 0;
+    for (Stage stage : stages) {
+      bytes += stage.bits.length() * 8L;
+    }
+    return bytes;
+  }
+
+  /**
+   * Writes a snapshot to the file atomically.<br/>
+   * The keys added meanwhile might be partially in the snapshot, which are lost on reload at most.
+   */
+  public synchronized void snapshot() throws IOException {
+    final Stage[] current = stages;
+    long size = HEADER_BYTES;
+    for (Stage stage : current) {
+      size += STAGE_HEADER_BYTES + stage.bits.length() * 8L;
+    }
+    if (size > Integer.MAX_VALUE) throw new IOException("Too large snapshot - " + size + " bytes");
+
+    File temp = new File(file.getPath() + ".tmp");
+    RandomAccessFile out = new RandomAccessFile(temp, "rw");
+    try {
+      out.setLength(size);
+      MappedByteBuffer buffer = out.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+      buffer.putInt(MAGIC);
+      buffer.putInt(VERSION);
+      buffer.putLong(initialCapacity);
+      buffer.putDouble(falsePositiveRate);
+      buffer.putInt(current.length);
+      for (Stage stage : current) {
+        buffer.putLong(stage.capacity);
+        buffer.putLong(stage.count.get());
+        buffer.putDouble(stage.falsePositiveRate);
+        buffer.putInt(stage.hashes);
+        buffer.putInt(stage.bits.length());
+        for (int i = 0, n = stage.bits.length(); i < n; ++i) {
+          buffer.putLong(stage.bits.get(i));
+        }
+      }
+      buffer.force();
+    } finally {
+      out.close();
+    }
+
+    if (!temp.renameTo(file)) {
+      throw new IOException("Rename snapshot failed - " + temp + " to " + file);
+    }
+  }
+
+  /** Loads a snapshot through a memory-mapped read. */
+  private static SentHistoryFilter load(File file) throws IOException {
+    RandomAccessFile in = new RandomAccessFile(file, "r");
+    try {
+      final long length = in.length();
+      if (length < HEADER_BYTES) throw new IOException("Broken snapshot - " + file);
+
+      MappedByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+      if (buffer.getInt() != MAGIC) throw new IOException("Not a sent history snapshot - " + file);
+      final int version = buffer.getInt();
+      if (version != VERSION) throw new IOException("Unsupported snapshot version - " + version);
+
+      final long initialCapacity = buffer.getLong();
+      final double falsePositiveRate = buffer.getDouble();
+      Stage[] stages = new Stage[buffer.getInt()];
+      for (int s = 0; s < stages.length; ++s) {
+        final long capacity = buffer.getLong();
+        final long count = buffer.getLong();
+        final double rate = buffer.getDouble();
+        final int hashes = buffer.getInt();
+        final int words = buffer.getInt();
+        if (words <= 0 || buffer.remaining() < words * 8L) throw new IOException("Broken snapshot - " + file);
+
+        long[] bits = new long[words];
+        buffer.asLongBuffer().get(bits);
+        /* Calls through Buffer, the covariant overrides of ByteBuffer don't exist on Java 8. */
+        ((Buffer) buffer).position(buffer.position() + words * 8);
+        stages[s] = new Stage(capacity, rate, hashes, new AtomicLongArray(bits), count);
+      }
+      if (stages.length == 0) throw new IOException("Broken snapshot - " + file);
+
+      return new SentHistoryFilter(file, initialCapacity, falsePositiveRate, stages);
+    } finally {
+      in.close();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "[Sent history] keys: " + size() + ", stages: " + stages.length
+        + ", memory: " + (bytes() >> 10) + " KB, false positive rate: " + falsePositiveRate;
+  }
+
+  /** A standard Bloom filter with the double hashing. */
+  private static final class Stage {
+    final long capacity;
+    final double falsePositiveRate;
+    final int hashes;
+    final AtomicLongArray bits;
+    final long bitCount;
+    final AtomicLong count;
+
+    Stage(long capacity, double falsePositiveRate, int hashes, AtomicLongArray bits, long count) {
+      this.capacity = capacity;
+      this.falsePositiveRate = falsePositiveRate;
+      this.hashes = hashes;
+      this.bits = bits;
+      this.bitCount = bits.length() * 64L;
+      this.count = new AtomicLong(count);
+    }
+
+    /** Creates a stage with the optimal bits m = -n ln(p) / ln(2)^2 and hashes k = m / n ln(2). */
+    static Stage valueOf(long capacity, double falsePositiveRate) {
+      final double ln2 = Math.log(2);
+      final long m = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+      final long words = (m + 63) >>> 6;
+      if (words > Integer.MAX_VALUE) throw new IllegalArgumentException("Too large capacity - " + capacity);
+
+      final int hashes = (int) Math.max(1, Math.round((double) words * 64 / capacity * ln2));
+      return new Stage(capacity, falsePositiveRate, hashes, new AtomicLongArray((int) words), 0);
+    }
+
+    boolean mightContain(long key) {
+      final long h2 = mix(key ^ 0x9E3779B97F4A7C15L) | 1;
+      long h = key;
+      for (int i = 0; i < hashes; ++i, h += h2) {
+        final long index = (h >>> 1) % bitCount;
+        if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) return false;
+      }
+      return true;
+    }
+
+    void put(long key) {
+      final long h2 = mix(key ^ 0x9E3779B97F4A7C15L) | 1;
+      long h = key;
+      for (int i = 0; i < hashes; ++i, h += h2) {
+        final long index = (h >>> 1) % bitCount;
+        final int word = (int) (index >>> 6);
+        final long mask = 1L << index;
+        for (long value; ((value = bits.get(word)) & mask) == 0; ) {
+          if (bits.compareAndSet(word, value, value | mask)) break;
+        }
+      }
+      count.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package io.harborl.drip.task.task.email;
+
+/**
+ * The ways to key a Drip mail's task in the {@linkplain SentHistoryFilter}.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public enum SentHistoryKey {
+
+  /** By the task id, which suppresses the re-fetched or re-queued tasks. */
+  ID {
+    @Override
+    public long keyOf(EmailTask task) {
+      return SentHistoryFilter.keyOf(task.id());
+    }
+  },
+
+  /** 
+   * By the campaign, the campaign's step and the recipient (the task's name), which also suppresses
+   * the duplicated tasks, while the next step of the campaign to the same recipient still passes.
+   * A task without campaign is keyed by its id, so a one-off mail never suppresses another one.
+   */
+  CAMPAIGN_STEP_AND_RECIPIENT {
+    @Override
+    public long keyOf(EmailTask task) {
+      if (task.campaign() == null) return SentHistoryFilter.keyOf(task.id());
+      return SentHistoryFilter.keyOf(task.campaign(), task.step(), task.name());
+    }
+  };
+
+  /** Returns the filter key of the task. */
+  public abstract long keyOf(EmailTask task);
+}
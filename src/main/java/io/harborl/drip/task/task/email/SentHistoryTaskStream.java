@@ -0,0 +1,255 @@
+package io.harborl.drip.task.task.email;
+
+import io.harborl.drip.task.core.AyncTask;
+import io.harborl.drip.task.core.Completion;
+import io.harborl.drip.task.core.Configurable;
+import io.harborl.drip.task.core.ReadAhead;
+import io.harborl.drip.task.core.TaskStream;
+import io.harborl.drip.task.core.Tasks;
+import io.harborl.drip.task.core.utils.Logger;
+import io.harborl.drip.task.core.utils.Settings;
+import io.harborl.drip.task.core.utils.Util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A task stream decorator, which suppresses the Drip mail's tasks sent already
+ * through a {@linkplain SentHistoryFilter}.<br/>
+ * <p/>
+ * A task which the filter has definitely not seen passes without any I/O. A positive one
+ * is confirmed by the {@linkplain SentHistoryConfirmer}, a false positive still passes,
+ * and a failed confirmation lets it pass as well, which keeps the at-least-once delivery.
+ * Without a confirmer, the positives are suppressed directly, so about the false positive
+ * rate of new tasks are lost.
+ * <p/>
+ * A task is added to the filter when it succeeds. The filter is snapshot on a background thread
+ * when new tasks have been added and {@code sent.snapshot.interval} seconds have elapsed, so writing
+ * a large filter never delays a round. {@link #close()}, which the scheduler invokes on shutdown
+ * after the tasks complete, stops the background thread and takes a final snapshot.
+ * <p/>
+ * The other settings are delegated to the underlying stream.
+ * <p/>
+ * <strong><tt>Note:</tt></strong> The {@link #nextChunk()} is not thread-safe, which is
+ * expected to be driven by the single thread scheduler.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class SentHistoryTaskStream implements TaskStream, Configurable, Closeable, ReadAhead {
+
+  private final TaskStream underlying;
+  private final SentHistoryFilter filter;
+  private final SentHistoryKey keyType;
+  private final SentHistoryConfirmer confirmer;
+
+  /** The interval of the background thread to check whether a snapshot is due. */
+  private static final long SNAPSHOT_CHECK_MILLIS = 1000;
+
+  private volatile long snapshotInterval = 60;
+
+  /** Guarded by this, the time and the added count of the last snapshot. */
+  private long lastSnapshot = System.nanoTime();
+  private long snapshotAdded;
+
+  /** The background thread which takes the snapshots. */
+  private final ScheduledExecutorService snapshotter;
+  private volatile boolean closed;
+
+  private final AtomicLong added = new AtomicLong();
+  private long passed;
+  private long suppressed;
+  private long falsePositives;
+
+  private SentHistoryTaskStream(
+      TaskStream underlying, SentHistoryFilter filter, SentHistoryKey key, SentHistoryConfirmer confirmer) {
+    this.underlying = underlying;
+    this.filter = filter;
+    this.keyType = key;
+    this.confirmer = confirmer;
+    this.snapshotter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "[SentHistoryTaskStream] - snapshotter - ");
+        thread.setDaemon(true);
+        return thread;
+      }
+
+    });
+  }
+
+  /**
+   * Creates a filtered stream.
+   *
+   * @param underlying the stream to fetch the tasks
+   * @param filter the filter of the sent tasks
+   * @param key the way to key a task
+   * @param confirmer the confirmer of the positives, or null to trust the filter
+   * @return returns the created instance
+   * @throws IllegalArgumentException throws when a {@linkplain JdbcSentHistoryConfirmer} confirms by another key
+   */
+  public static SentHistoryTaskStream valueOf(
+      TaskStream underlying, SentHistoryFilter filter, SentHistoryKey key, SentHistoryConfirmer confirmer) {
+    Util.GuardsNull(underlying, "underlying is null");
+    Util.GuardsNull(filter, "filter is null");
+    Util.GuardsNull(key, "key is null");
+    /* A positive of a duplicated task must be confirmed by the same key, not by its own id. */
+    if (confirmer instanceof JdbcSentHistoryConfirmer && ((JdbcSentHistoryConfirmer) confirmer).key() != key) {
+      throw new IllegalArgumentException("The confirmer must confirm by the key " + key);
+    }
+    final SentHistoryTaskStream stream = new SentHistoryTaskStream(underlying, filter, key, confirmer);
+    stream.snapshotter.scheduleWithFixedDelay(new Runnable() {
+
+      @Override
+      public void run() {
+        stream.snapshotIfDue();
+      }
+
+    }, SNAPSHOT_CHECK_MILLIS, SNAPSHOT_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+    return stream;
+  }
+
+  @Override
+  public List<AyncTask> nextChunk() {
+    List<AyncTask> tasks = underlying.nextChunk();
+    if (tasks == null || tasks.isEmpty()) return tasks;
+
+    List<AyncTask> chunk = new ArrayList<AyncTask>(tasks.size());
+    for (AyncTask task : tasks) {
+      final AyncTask original = Tasks.unwrap(task);
+      if (!(original instanceof EmailTask)) {
+        chunk.add(task);
+        continue;
+      }
+
+      final long k = keyType.keyOf((EmailTask) original);
+      if (filter.mightContain(k)) {
+        if (confirmed((EmailTask) original)) {
+          ++suppressed;
+          continue;
+        }
+        ++falsePositives;
+      }
+
+      ++passed;
+      chunk.add(Tasks.whenComplete(task, new Completion() {
+
+        @Override
+        public void succeed() {
+          filter.put(k);
+          added.incrementAndGet();
+        }
+
+        @Override
+        public void fail(Throwable th) { }
+
+      }));
+    }
+    return chunk;
+  }
+
+  /** Returns true if the positive task has been sent, a failed confirmation counts as not sent. */
+  private boolean confirmed(EmailTask task) {
+    if (confirmer == null) return true;
+
+    try {
+      return confirmer.sent(task);
+    } catch (IOException e) {
+      Logger.err.println("[SentHistoryTaskStream] [ERROR] - " + e);
+      return false;
+    }
+  }
+
+  /** Takes a snapshot on the background thread if new tasks have been added since the interval. */
+  private synchronized void snapshotIfDue() {
+    if (added.get() == snapshotAdded) return;
+    if (System.nanoTime() - lastSnapshot < TimeUnit.SECONDS.toNanos(snapshotInterval)) return;
+
+    try {
+      snapshot();
+    } catch (IOException e) {
+      Logger.err.println("[SentHistoryTaskStream] [ERROR] - snapshot failed - " + e);
+    }
+  }
+
+  /** Writes a snapshot of the filter, the keys added meanwhile are in the next one. */
+  public synchronized void snapshot() throws IOException {
+    final long count = added.get();
+    lastSnapshot = System.nanoTime();
+    filter.snapshot();
+    snapshotAdded = count;
+  }
+
+  /** Returns the held position of the underlying stream, it doesn't hold any task itself. */
+  @Override
+  public long lowestHeldPosition() {
+    return underlying instanceof ReadAhead ? ((ReadAhead) underlying).lowestHeldPosition() : Long.MAX_VALUE;
+  }
+
+  /** 
+   * Stops the background thread, takes a final snapshot and closes the underlying stream if it is closeable.
+   * The underlying stream is closed even if the snapshot fails.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) return;
+    closed = true;
+
+    snapshotter.shutdown();
+    try {
+      snapshotter.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    try {
+      snapshot();
+    } finally {
+      if (underlying instanceof Closeable) ((Closeable) underlying).close();
+    }
+  }
+
+  @Override
+  public String get(String key) {
+    if ("sent.snapshot.interval".equals(key)) {
+      return String.valueOf(snapshotInterval);
+    }
+    return underlying instanceof Configurable ? ((Configurable) underlying).get(key) : null;
+  }
+
+  @Override
+  public boolean set(String key, String value) {
+    if ("sent.snapshot.interval".equals(key)) {
+      snapshotInterval = Settings.longIn(key, value, 1, Integer.MAX_VALUE);
+      return true;
+    }
+    return underlying instanceof Configurable && ((Configurable) underlying).set(key, value);
+  }
+
+  @Override
+  public Map<String, String> settings() {
+    Map<String, String> settings = new LinkedHashMap<String, String>();
+    settings.put("sent.snapshot.interval", String.valueOf(snapshotInterval));
+    if (underlying instanceof Configurable) {
+      settings.putAll(((Configurable) underlying).settings());
+    }
+    return settings;
+  }
+
+  @Override
+  public String toString() {
+    return filter + ", passed: " + passed + ", suppressed: " + suppressed
+        + ", false positives: " + falsePositives + ", added: " + added.get();
+  }
+}
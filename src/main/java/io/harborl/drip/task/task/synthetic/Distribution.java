@@ -0,0 +1,41 @@
+package io.harborl.drip.task.task.synthetic;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The distributions of the synthetic task's execution time.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public enum Distribution {
+
+  /** Always the mean. */
+  FIXED {
+    @Override
+    public long sample(long mean) {
+      return mean;
+    }
+  },
+
+  /** Uniform in [0, 2 * mean). */
+  UNIFORM {
+    @Override
+    public long sample(long mean) {
+      return mean <= 0 ? 0 : ThreadLocalRandom.current().nextLong(2 * mean);
+    }
+  },
+
+  /** Exponential with the mean, which has a long tail like the network latency. */
+  EXPONENTIAL {
+    @Override
+    public long sample(long mean) {
+      return (long) (-mean * Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+    }
+  },
+  ;
+
+  /** Returns a sample of the distribution with the specified mean. */
+  public abstract long sample(long mean);
+}
@@ -0,0 +1,62 @@
+package io.harborl.drip.task.task.synthetic;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free log-linear histogram of latencies in microseconds.<br/>
+ * <p/>
+ * Each power of two is split into 16 linear sub-buckets, 
+ * so a percentile is accurate to about 6%.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+
+  /** Records a latency. */
+  public void record(long micros) {
+    counts.incrementAndGet(indexOf(Math.max(0, micros)));
+  }
+
+  /** Returns the latency at the percentile in (0, 100], or 0 if nothing is recorded. */
+  public long percentile(double percentile) {
+    long total = 0;
+    for (int i = 0; i < counts.length(); ++i) {
+      total += counts.get(i);
+    }
+    if (total == 0) return 0;
+
+    final long rank = (long) Math.ceil(total * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < counts.length(); ++i) {
+      seen += counts.get(i);
+      if (seen >= rank) return upperBoundOf(i);
+    }
+    return upperBoundOf(counts.length() - 1);
+  }
+
+  /** Returns the bucket index of the value. */
+  private static int indexOf(long value) {
+    if (value < SUB_BUCKETS) return (int) value;
+
+    /* Keeps the highest 1 + SUB_BITS bits of the value. */
+    final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+    final int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+    return (shift + 1) * SUB_BUCKETS + sub;
+  }
+
+  /** Returns the largest value of the bucket. */
+  private static long upperBoundOf(int index) {
+    if (index < SUB_BUCKETS) return index;
+
+    final int shift = index / SUB_BUCKETS - 1;
+    final long top = index % SUB_BUCKETS + SUB_BUCKETS;
+    return ((top + 1) << shift) - 1;
+  }
+}
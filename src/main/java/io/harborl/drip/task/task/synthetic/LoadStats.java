@@ -0,0 +1,50 @@
+package io.harborl.drip.task.task.synthetic;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The statistics of a load generation run.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class LoadStats {
+
+  private final AtomicLong submitted = new AtomicLong();
+  private final AtomicLong succeeded = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final LatencyHistogram latencies = new LatencyHistogram();
+
+  /** Records the tasks handed out by the stream. */
+  void submitted(int count) {
+    submitted.addAndGet(count);
+  }
+
+  /** Records a completion and its latency since the arrival. */
+  void completed(long arrivalNanos, boolean success) {
+    latencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - arrivalNanos));
+    (success ? succeeded : failed).incrementAndGet();
+  }
+
+  public long submitted() {
+    return submitted.get();
+  }
+
+  public long succeeded() {
+    return succeeded.get();
+  }
+
+  public long failed() {
+    return failed.get();
+  }
+
+  public long completed() {
+    return succeeded.get() + failed.get();
+  }
+
+  public LatencyHistogram latencies() {
+    return latencies;
+  }
+}
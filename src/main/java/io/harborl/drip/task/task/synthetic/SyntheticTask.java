@@ -0,0 +1,68 @@
+package io.harborl.drip.task.task.synthetic;
+
+import io.harborl.drip.task.core.AyncTask;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A synthetic task used to generate load, which sleeps for a sampled execution time
+ * and fails with a configured rate.<br/>
+ * <p/>
+ * Its latency is measured from the arrival to the completion, so the time waiting 
+ * for the scheduler and the executor queue is counted, too.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class SyntheticTask implements AyncTask {
+
+  private final long seq;
+  private final long arrivalNanos;
+  private final Distribution distribution;
+  private final long meanExecMicros;
+  private final double failureRate;
+  private final LoadStats stats;
+
+  SyntheticTask(long seq, long arrivalNanos, 
+      Distribution distribution, long meanExecMicros, double failureRate, LoadStats stats) {
+    this.seq = seq;
+    this.arrivalNanos = arrivalNanos;
+    this.distribution = distribution;
+    this.meanExecMicros = meanExecMicros;
+    this.failureRate = failureRate;
+    this.stats = stats;
+  }
+
+  @Override
+  public void exec() {
+    final long micros = distribution.sample(meanExecMicros);
+    if (micros > 0) {
+      try {
+        TimeUnit.MICROSECONDS.sleep(micros);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+      throw new IllegalStateException("Synthetic failure - " + seq);
+    }
+  }
+
+  @Override
+  public void onFailure(Throwable th) {
+    stats.completed(arrivalNanos, false);
+  }
+
+  @Override
+  public void onSucceed() {
+    stats.completed(arrivalNanos, true);
+  }
+
+  @Override
+  public String name() {
+    return "synthetic-" + seq;
+  }
+}
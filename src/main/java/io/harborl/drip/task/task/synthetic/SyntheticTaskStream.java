@@ -0,0 +1,96 @@
+package io.harborl.drip.task.task.synthetic;
+
+import io.harborl.drip.task.core.AyncTask;
+import io.harborl.drip.task.core.TaskStream;
+import io.harborl.drip.task.core.utils.Util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A synthetic task stream, whose tasks arrive at a configured rate.<br/>
+ * <p/>
+ * Every call hands out the tasks arrived since the last one, at most a chunk. 
+ * The rest of arrivals stay in the backlog, which tells whether the pipeline 
+ * keeps up with the arrival rate.
+ * <p/>
+ * <strong><tt>Note:</tt></strong> It is not thread-safe, which is expected to be
+ * driven by the single thread scheduler.
+ * 
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public final class SyntheticTaskStream implements TaskStream {
+
+  private final double ratePerNano;
+  private final int chunkSize;
+  private final Distribution distribution;
+  private final long meanExecMicros;
+  private final double failureRate;
+  private final LoadStats stats;
+
+  /** The time of the first arrival, and the count of tasks handed out. */
+  private final long startNanos;
+  private long seq;
+  
+  /** Written by the scheduler thread only, read by the reporter. */
+  private volatile long backlog;
+
+  private SyntheticTaskStream(double ratePerSecond, int chunkSize, 
+      Distribution distribution, long meanExecMicros, double failureRate, LoadStats stats) {
+    this.ratePerNano = ratePerSecond / 1e9;
+    this.chunkSize = chunkSize;
+    this.distribution = distribution;
+    this.meanExecMicros = meanExecMicros;
+    this.failureRate = failureRate;
+    this.stats = stats;
+    this.startNanos = System.nanoTime();
+  }
+
+  /**
+   * Creates a synthetic stream.
+   * 
+   * @param ratePerSecond the arrival rate of tasks
+   * @param chunkSize the max size of a chunk
+   * @param distribution the distribution of execution time
+   * @param meanExecMicros the mean execution time in microseconds
+   * @param failureRate the probability of a task fails
+   * @param stats the statistics of the run
+   * @return returns the created instance
+   */
+  public static SyntheticTaskStream valueOf(double ratePerSecond, int chunkSize,
+      Distribution distribution, long meanExecMicros, double failureRate, LoadStats stats) {
+    Util.GuardsNull(distribution, "distribution is null");
+    Util.GuardsNull(stats, "stats is null");
+    if (ratePerSecond <= 0) throw new IllegalArgumentException("ratePerSecond must be positive");
+    if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive");
+    if (meanExecMicros < 0) throw new IllegalArgumentException("meanExecMicros must not be negative");
+    if (failureRate < 0 || failureRate > 1) throw new IllegalArgumentException("failureRate must be in [0, 1]");
+
+    return new SyntheticTaskStream(ratePerSecond, chunkSize, 
+        distribution, meanExecMicros, failureRate, stats);
+  }
+
+  @Override
+  public List<AyncTask> nextChunk() {
+    final long arrived = (long) ((System.nanoTime() - startNanos) * ratePerNano) - seq;
+    final int size = (int) Math.max(0, Math.min(chunkSize, arrived));
+
+    List<AyncTask> tasks = new ArrayList<AyncTask>(size);
+    for (int i = 0; i < size; ++i, ++seq) {
+      final long arrivalNanos = startNanos + (long) (seq / ratePerNano);
+      tasks.add(new SyntheticTask(seq, arrivalNanos, 
+          distribution, meanExecMicros, failureRate, stats));
+    }
+    
+    stats.submitted(size);
+    backlog = Math.max(0, arrived - size);
+    return tasks;
+  }
+
+  /** Returns the count of arrived tasks which are not handed out yet. */
+  public long backlog() {
+    return backlog;
+  }
+}
@@ -0,0 +1,12 @@
+#!/bin/sh
+
+set -h -e
+
+# Runs the synthetic load generation locally, e.g.
+#   sh loadgen.sh rate=5000 exec=20 dist=exponential duration=60
+CLASSPATH=.:lib/*
+java -server \
+     -Xms512M -Xmx1024M -Xss256k -XX:MaxMetaspaceSize=256m \
+     $JAVA_OPTS \
+     -cp $CLASSPATH \
+     io.harborl.drip.task.server.LoadGenerator $@
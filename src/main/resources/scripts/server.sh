@@ -2,8 +2,13 @@
 
 set -h -e
 
+# The flight recorder events of 'io.harborl.drip.*' are recorded once a recording starts, e.g.
+#   JAVA_OPTS="-XX:StartFlightRecording=filename=logs/drip.jfr" sh server.sh ...
+# Or on a live process:
+#   jcmd $pid JFR.start duration=60s filename=logs/drip.jfr
 CLASSPATH=.:lib/*
 java -server \
-     -Xms512M -Xmx1024M -Xss256k -XX:PermSize=256m -XX:MaxPermSize=256m \
+     -Xms512M -Xmx1024M -Xss256k -XX:MaxMetaspaceSize=256m -XX:MaxDirectMemorySize=640m \
+     $JAVA_OPTS \
      -cp $CLASSPATH \
      io.harborl.drip.task.server.Bootstrap $@
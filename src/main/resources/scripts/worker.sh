@@ -0,0 +1,12 @@
+#!/bin/sh
+
+set -h -e
+
+# Runs a remote worker of the task server started with a worker port, e.g.
+#   DRIP_WORKER_SECRET=$SECRET sh worker.sh localhost 7001
+CLASSPATH=.:lib/*
+java -server \
+     -Xms512M -Xmx1024M -Xss256k -XX:MaxMetaspaceSize=256m \
+     $JAVA_OPTS \
+     -cp $CLASSPATH \
+     io.harborl.drip.task.server.WorkerBootstrap $@
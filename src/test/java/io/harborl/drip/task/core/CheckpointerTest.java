@@ -0,0 +1,248 @@
+package io.harborl.drip.task.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@linkplain Checkpointer} with a {@linkplain FairTaskStream}, 
+ * which hands out the tasks out of the position order.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public class CheckpointerTest {
+
+  private final Map<String, Long> stored = new HashMap<String, Long>();
+  private Checkpointer checkpointer;
+
+  @Before
+  public void setUp() throws IOException {
+    checkpointer = Checkpointer.valueOf(new CheckpointStore() {
+
+      @Override
+      public long load(String stream, long defaultPosition) {
+        Long position = stored.get(stream);
+        return position == null ? defaultPosition : position;
+      }
+
+      @Override
+      public void store(String stream, long position) {
+        stored.put(stream, position);
+      }
+
+    }, "email", 1, TimeUnit.HOURS);
+  }
+
+  @After
+  public void tearDown() {
+    checkpointer.close();
+  }
+
+  /** Tenant A has the positions 1..1000, tenant B has 1001..1010, in the stream order. */
+  private static FairTaskStream twoTenants() {
+    final List<AyncTask> tasks = new ArrayList<AyncTask>();
+    for (long position = 1; position <= 1000; ++position) tasks.add(new Task(position, "A"));
+    for (long position = 1001; position <= 1010; ++position) tasks.add(new Task(position, "B"));
+
+    return FairTaskStream.valueOf(new TaskStream() {
+      boolean fetched;
+
+      @Override
+      public List<AyncTask> nextChunk() {
+        if (fetched) return Collections.emptyList();
+        fetched = true;
+        return tasks;
+      }
+
+    }, 20, 2000, 10);
+  }
+
+  private static void runAll(List<AyncTask> tasks) {
+    for (AyncTask task : tasks) {
+      task.exec();
+      task.onSucceed();
+    }
+  }
+
+  @Test
+  public void watermarkStaysBelowHeldTasks() {
+    FairTaskStream stream = twoTenants();
+
+    List<AyncTask> chunk = stream.nextChunk();
+    assertEquals(1, ((Task) chunk.get(0)).position());
+    assertEquals(1010, ((Task) chunk.get(chunk.size() - 1)).position());
+
+    runAll(checkpointer.track(chunk, stream));
+    /* A 11..1000 are still held by the stream, a restart must fetch them again. */
+    assertEquals(10, checkpointer.watermark());
+
+    checkpointer.close();
+    assertEquals(Long.valueOf(10), stored.get("email"));
+  }
+
+  @Test
+  public void watermarkAdvancesAsHeldTasksComplete() {
+    FairTaskStream stream = twoTenants();
+
+    runAll(checkpointer.track(stream.nextChunk(), stream));
+    runAll(checkpointer.track(stream.nextChunk(), stream));
+    assertEquals(30, checkpointer.watermark());
+
+    for (List<AyncTask> chunk; !(chunk = stream.nextChunk()).isEmpty(); ) {
+      runAll(checkpointer.track(chunk, stream));
+    }
+    assertEquals(1010, checkpointer.watermark());
+  }
+
+  @Test
+  public void watermarkStaysBelowPendingTasks() {
+    FairTaskStream stream = twoTenants();
+
+    List<AyncTask> chunk = checkpointer.track(stream.nextChunk(), stream);
+    runAll(chunk.subList(1, chunk.size()));
+    assertEquals(0, checkpointer.watermark());
+  }
+
+  @Test
+  public void tracksChunkRowsWithRecorder() {
+    final List<Outcome> outcomes = Collections.synchronizedList(new ArrayList<Outcome>());
+    OutcomeRecorder recorder = OutcomeRecorder.valueOf(new OutcomeSink() {
+
+      @Override
+      public void write(List<Outcome> batch) {
+        outcomes.addAll(batch);
+      }
+
+    }, 100, 1, TimeUnit.HOURS);
+
+    /* Just like the scheduler, the checkpointer tracks the rows of the recorded chunk. */
+    TaskChunk chunk = checkpointer.track(recorder.track(new Chunk(1, 10)));
+    ChunkCursor cursor = chunk.cursor();
+    for (int row = 0; row < chunk.size(); ++row) {
+      if (row == 3) continue;
+      cursor.moveTo(row).exec();
+      cursor.onSucceed();
+    }
+    assertEquals(3, checkpointer.watermark());
+
+    AyncTask fourth = chunk.task(3);
+    fourth.exec();
+    fourth.onSucceed();
+    assertEquals(10, checkpointer.watermark());
+
+    recorder.close();
+    assertEquals(10, outcomes.size());
+    boolean[] seen = new boolean[11];
+    for (Outcome outcome : outcomes) {
+      assertTrue(!seen[(int) outcome.id()]);
+      seen[(int) outcome.id()] = true;
+    }
+  }
+
+  /** A chunk of the contiguous positions, whose cursor is positioned. */
+  private static final class Chunk implements TaskChunk {
+    final long first;
+    final int size;
+
+    Chunk(long first, int size) {
+      this.first = first;
+      this.size = size;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public ChunkCursor cursor() {
+      return new Cursor();
+    }
+
+    @Override
+    public AyncTask task(int row) {
+      return new Task(first + row, "A");
+    }
+
+    final class Cursor implements ChunkCursor, Positioned {
+      int row = -1;
+
+      @Override
+      public ChunkCursor moveTo(int row) {
+        this.row = row;
+        return this;
+      }
+
+      @Override
+      public int row() {
+        return row;
+      }
+
+      @Override
+      public void exec() { }
+
+      @Override
+      public void onFailure(Throwable th) { }
+
+      @Override
+      public void onSucceed() { }
+
+      @Override
+      public String name() {
+        return "A-" + position();
+      }
+
+      @Override
+      public long position() {
+        return first + row;
+      }
+    }
+  }
+
+  private static final class Task implements AyncTask, Positioned, Tenanted {
+    final long position;
+    final String tenant;
+
+    Task(long position, String tenant) {
+      this.position = position;
+      this.tenant = tenant;
+    }
+
+    @Override
+    public void exec() { }
+
+    @Override
+    public void onFailure(Throwable th) { }
+
+    @Override
+    public void onSucceed() { }
+
+    @Override
+    public String name() {
+      return tenant + "-" + position;
+    }
+
+    @Override
+    public long position() {
+      return position;
+    }
+
+    @Override
+    public String tenant() {
+      return tenant;
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package io.harborl.drip.task.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@linkplain GradientConcurrencyLimit} backs off on a latency rise at small limits.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public class GradientConcurrencyLimitTest {
+
+  private static final long BASELINE = TimeUnit.MILLISECONDS.toNanos(10);
+
+  /** Feeds the samples of the latency with all of the limit in use, returns the last limit. */
+  private static int feed(GradientConcurrencyLimit limit, long rttNanos, int samples) {
+    int current = limit.limit();
+    for (int i = 0; i < samples; ++i) {
+      current = limit.onSample(rttNanos, current);
+    }
+    return current;
+  }
+
+  @Test
+  public void growsWhileLatencyIsFlat() {
+    GradientConcurrencyLimit limit = GradientConcurrencyLimit.valueOf(5, 1, 8);
+    assertEquals(8, feed(limit, BASELINE, 100));
+  }
+
+  @Test
+  public void backsOffOnModerateRiseAtSmallLimit() {
+    GradientConcurrencyLimit limit = GradientConcurrencyLimit.valueOf(5, 1, 8);
+    final int before = feed(limit, BASELINE, 100);
+
+    /* Twice the baseline, which is beyond the tolerance but above the gradient's floor. */
+    final int after = feed(limit, 2 * BASELINE, 30);
+    assertTrue("the limit " + before + " -> " + after, after < before);
+  }
+
+  @Test
+  public void ignoresApplicationLimitedSamples() {
+    GradientConcurrencyLimit limit = GradientConcurrencyLimit.valueOf(8, 1, 16);
+    for (int i = 0; i < 100; ++i) {
+      limit.onSample(BASELINE, 1);
+    }
+    assertEquals(8, limit.limit());
+  }
+}
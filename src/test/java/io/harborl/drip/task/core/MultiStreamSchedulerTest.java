@@ -0,0 +1,90 @@
+package io.harborl.drip.task.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests the rounds of the {@linkplain MultiStreamScheduler} and the completion of its tasks.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public class MultiStreamSchedulerTest {
+
+  @Test
+  public void periodicStreamStartsImmediately() throws InterruptedException {
+    final CountDownLatch fetched = new CountDownLatch(1);
+    MultiStreamScheduler scheduler = MultiStreamScheduler.valueOf(new ThreadPoolTaskExecutor(1), 1)
+        .register("email", new TaskStream() {
+
+          @Override
+          public List<AyncTask> nextChunk() {
+            fetched.countDown();
+            return Collections.emptyList();
+          }
+
+        }, PeriodicTrigger.valueOf(1, TimeUnit.HOURS), 10)
+        .start();
+
+    try {
+      assertTrue(fetched.await(5, TimeUnit.SECONDS));
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  @Test
+  public void throwingOnSucceedReportsOnce() {
+    final AtomicInteger succeeded = new AtomicInteger();
+    final AtomicInteger failed = new AtomicInteger();
+    AyncTask task = Tasks.whenComplete(new AyncTask() {
+
+      @Override
+      public void exec() { }
+
+      @Override
+      public void onSucceed() {
+        throw new IllegalStateException("callback failed");
+      }
+
+      @Override
+      public void onFailure(Throwable th) { }
+
+      @Override
+      public String name() {
+        return "throwing";
+      }
+
+    }, new Completion() {
+
+      @Override
+      public void succeed() {
+        succeeded.incrementAndGet();
+      }
+
+      @Override
+      public void fail(Throwable th) {
+        failed.incrementAndGet();
+      }
+
+    });
+
+    /* Just like an executor, which reports the failure of onSucceed(). */
+    try {
+      task.onSucceed();
+    } catch (IllegalStateException e) {
+      task.onFailure(e);
+    }
+
+    assertEquals(1, succeeded.get() + failed.get());
+  }
+}
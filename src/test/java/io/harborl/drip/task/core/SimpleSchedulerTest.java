@@ -0,0 +1,155 @@
+package io.harborl.drip.task.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the wake-up of the {@linkplain SimpleScheduler}.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public class SimpleSchedulerTest {
+
+  private static final long FETCH_MILLIS = 300;
+  private static final long PERIOD_MILLIS = 2000;
+
+  /** Guarded by itself, the start time of every fetch. */
+  private final List<Long> fetches = new ArrayList<Long>();
+  private SimpleScheduler scheduler;
+
+  /** A stream whose fetch takes a while and returns nothing. */
+  private final TaskStream slowStream = new TaskStream() {
+
+    @Override
+    public List<AyncTask> nextChunk() {
+      synchronized (fetches) {
+        fetches.add(System.nanoTime());
+        fetches.notifyAll();
+      }
+      try {
+        Thread.sleep(FETCH_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return Collections.emptyList();
+    }
+
+  };
+
+  @After
+  public void tearDown() {
+    if (scheduler != null) scheduler.shutdown();
+  }
+
+  private void startWithPeriod(long periodMillis) {
+    scheduler = SimpleScheduler.valueOf(slowStream, new ThreadPoolTaskExecutor(1), periodMillis, TimeUnit.MILLISECONDS)
+        .initialDelay(0)
+        .start();
+  }
+
+  /** Waits the stream has been fetched the specified times, fails after a few seconds. */
+  private void awaitFetches(int count) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    synchronized (fetches) {
+      for (long remaining; fetches.size() < count && (remaining = deadline - System.nanoTime()) > 0; ) {
+        TimeUnit.NANOSECONDS.timedWait(fetches, remaining);
+      }
+      assertTrue("fetched " + fetches.size() + " times, expected " + count, fetches.size() >= count);
+    }
+  }
+
+  /** Returns the milliseconds between the starts of the specified fetches. */
+  private long gap(int from, int to) {
+    synchronized (fetches) {
+      return TimeUnit.NANOSECONDS.toMillis(fetches.get(to) - fetches.get(from));
+    }
+  }
+
+  /** Waits the first round has completed, fails after a few seconds. */
+  private void awaitFirstRound() throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!scheduler.info().contains("Round #1 completed!") && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(scheduler.info(), scheduler.info().contains("Round #1 completed!"));
+  }
+
+  @Test
+  public void wakeUpDuringRoundRunsOneExtraRound() throws InterruptedException {
+    startWithPeriod(PERIOD_MILLIS);
+    awaitFetches(1);
+    scheduler.wakeUp();
+
+    /* The woken up round follows the running one, rather than a period later. */
+    awaitFetches(2);
+    assertTrue("the woken up round waits " + gap(0, 1) + " ms", gap(0, 1) < PERIOD_MILLIS / 2);
+
+    /* And then the period goes on, an extra round chain would start the next one immediately. */
+    awaitFetches(3);
+    assertTrue("the next round waits " + gap(1, 2) + " ms", gap(1, 2) >= PERIOD_MILLIS * 3 / 4);
+  }
+
+  @Test
+  public void wakeUpWhileIdleStartsRoundImmediately() throws InterruptedException {
+    startWithPeriod(PERIOD_MILLIS);
+    awaitFirstRound();
+    scheduler.wakeUp();
+    scheduler.wakeUp();
+
+    awaitFetches(2);
+    assertTrue("the woken up round waits " + gap(0, 1) + " ms", gap(0, 1) < PERIOD_MILLIS / 2);
+
+    /* The second wake-up either hits the pending round, or the woken up one which has just started, 
+     * so at most one extra round follows, and then the period goes on. */
+    awaitFetches(4);
+    assertTrue("the next round waits " + gap(2, 3) + " ms", gap(2, 3) >= PERIOD_MILLIS * 3 / 4);
+  }
+
+  @Test
+  public void changedPeriodTakesEffectAtNextRound() throws InterruptedException {
+    final CountDownLatch periodChanged = new CountDownLatch(1);
+    final CountDownLatch fetched = new CountDownLatch(2);
+    TaskStream stream = new TaskStream() {
+
+      @Override
+      public List<AyncTask> nextChunk() {
+        fetched.countDown();
+        try {
+          periodChanged.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return Collections.emptyList();
+      }
+
+    };
+    scheduler = SimpleScheduler.valueOf(stream, new ThreadPoolTaskExecutor(1), TimeUnit.HOURS.toMillis(1), TimeUnit.MILLISECONDS)
+        .initialDelay(0)
+        .start();
+
+    try {
+      scheduler.set("period", "0");
+      fail("period accepts 0");
+    } catch (IllegalArgumentException expected) { }
+    assertEquals(String.valueOf(TimeUnit.HOURS.toMillis(1)), scheduler.get("period"));
+
+    /* The first round is still fetching, the next one would be an hour away with the old period. */
+    assertTrue(scheduler.set("period", "50"));
+    assertEquals("50", scheduler.get("period"));
+    periodChanged.countDown();
+
+    assertTrue("the next round keeps the old period", fetched.await(5, TimeUnit.SECONDS));
+  }
+}
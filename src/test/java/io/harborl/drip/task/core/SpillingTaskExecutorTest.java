@@ -0,0 +1,261 @@
+package io.harborl.drip.task.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@linkplain SpillingTaskExecutor} with the tasks tracked by an {@linkplain OutcomeRecorder}.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public class SpillingTaskExecutorTest {
+
+  private static final int TASKS = 100;
+
+  private final AtomicInteger reads = new AtomicInteger();
+  private final List<Outcome> outcomes = Collections.synchronizedList(new ArrayList<Outcome>());
+
+  /** Serializes the position of a {@linkplain Task}, it doesn't support any other task. */
+  private final TaskSerializer serializer = new TaskSerializer() {
+
+    @Override
+    public int sizeOf(AyncTask task) {
+      return task.getClass() == Task.class ? 8 : -1;
+    }
+
+    @Override
+    public void write(AyncTask task, ByteBuffer buffer) {
+      buffer.putLong(((Task) task).position);
+    }
+
+    @Override
+    public AyncTask read(ByteBuffer buffer) {
+      reads.incrementAndGet();
+      return new Task(buffer.getLong());
+    }
+
+  };
+
+  @Test
+  public void spillsTrackedTasks() throws InterruptedException {
+    unrecorded.set(0);
+    OutcomeRecorder recorder = OutcomeRecorder.valueOf(new OutcomeSink() {
+
+      @Override
+      public void write(List<Outcome> batch) {
+        outcomes.addAll(batch);
+      }
+
+    }, 10, 1, TimeUnit.HOURS);
+    SpillingTaskExecutor executor = SpillingTaskExecutor.valueOf(new ThreadPoolTaskExecutor(2), serializer, 4, 16L << 20);
+
+    List<AyncTask> tasks = new ArrayList<AyncTask>();
+    for (long position = 1; position <= TASKS; ++position) tasks.add(new Task(position));
+    CountDownLatch latch = new CountDownLatch(TASKS);
+    executor.submit(recorder.track(tasks), latch);
+
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    executor.shudownAndAwait(10, TimeUnit.SECONDS);
+    recorder.close();
+
+    /* Only the first tasks within the heap budget are never spilled. */
+    assertTrue(reads.get() >= TASKS - 4);
+    assertEquals(TASKS, outcomes.size());
+    /* The spilled tasks are notified again when they are read back and decorated. */
+    assertEquals(0, unrecorded.get());
+    boolean[] seen = new boolean[TASKS + 1];
+    for (Outcome outcome : outcomes) {
+      assertTrue(!seen[(int) outcome.id()]);
+      seen[(int) outcome.id()] = true;
+    }
+  }
+
+  @Test
+  public void releasesSpilledTasksDuringRound() throws InterruptedException {
+    OutcomeRecorder recorder = OutcomeRecorder.valueOf(new OutcomeSink() {
+
+      @Override
+      public void write(List<Outcome> batch) {
+        outcomes.addAll(batch);
+      }
+
+    }, 10, 1, TimeUnit.HOURS);
+
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<WeakReference<AyncTask>> originals = new ArrayList<WeakReference<AyncTask>>();
+    TaskStream stream = new TaskStream() {
+      boolean fetched;
+
+      @Override
+      public List<AyncTask> nextChunk() {
+        if (fetched) return Collections.emptyList();
+        fetched = true;
+
+        /* The blocking task takes the whole heap budget, the others are spilled. */
+        List<AyncTask> tasks = new ArrayList<AyncTask>();
+        tasks.add(new AyncTask() {
+
+          @Override
+          public void exec() {
+            blocked.countDown();
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+
+          @Override
+          public void onSucceed() { }
+
+          @Override
+          public void onFailure(Throwable th) { }
+
+          @Override
+          public String name() {
+            return "blocker";
+          }
+
+        });
+        for (long position = 1; position <= TASKS; ++position) {
+          Task task = new Task(position);
+          originals.add(new WeakReference<AyncTask>(task));
+          tasks.add(task);
+        }
+        return tasks;
+      }
+
+    };
+    SimpleScheduler scheduler = SimpleScheduler.valueOf(stream, 
+        SpillingTaskExecutor.valueOf(new ThreadPoolTaskExecutor(1), serializer, 1, 16L << 20), 1, TimeUnit.HOURS)
+        .initialDelay(0)
+        .record(recorder)
+        .start();
+
+    try {
+      assertTrue(blocked.await(10, TimeUnit.SECONDS));
+      /* The round is waiting the tasks, only the off-heap copies of the spilled ones are left. */
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      int reachable;
+      do {
+        System.gc();
+        Thread.sleep(10);
+        reachable = 0;
+        for (WeakReference<AyncTask> original : originals) {
+          if (original.get() != null) ++reachable;
+        }
+      } while (reachable > 0 && System.nanoTime() < deadline);
+      assertEquals(0, reachable);
+    } finally {
+      release.countDown();
+      scheduler.shutdown();
+    }
+
+    assertEquals(TASKS, reads.get());
+    assertEquals(TASKS + 1, outcomes.size());
+  }
+
+  @Test
+  public void blocksProducerDuringSinkOutage() throws InterruptedException {
+    final AtomicBoolean down = new AtomicBoolean(true);
+    final OutcomeRecorder recorder = OutcomeRecorder.valueOf(new OutcomeSink() {
+
+      @Override
+      public void write(List<Outcome> batch) {
+        if (down.get()) throw new IllegalStateException("sink is down");
+        outcomes.addAll(batch);
+      }
+
+    }, 10, 50, 1, TimeUnit.HOURS);
+
+    Thread producer = new Thread(new Runnable() {
+
+      @Override
+      public void run() {
+        for (long position = 1; position <= TASKS; ++position) {
+          recorder.record(Outcome.succeeded(new Task(position)));
+        }
+      }
+
+    }, "[SpillingTaskExecutorTest] - producer");
+    producer.start();
+
+    /* The producer waits once the buffer is full, rather than drops the outcomes. */
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!(producer.getState() == Thread.State.TIMED_WAITING && recorder.toString().contains("buffered: 50/50"))
+        && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(recorder.toString(), recorder.toString().contains("buffered: 50/50"));
+    assertTrue(producer.isAlive());
+
+    down.set(false);
+    producer.join(TimeUnit.SECONDS.toMillis(10));
+    assertTrue(!producer.isAlive());
+    recorder.close();
+
+    assertEquals(TASKS, outcomes.size());
+    assertTrue(recorder.toString(), !recorder.toString().contains("blocked: 0"));
+  }
+
+  /** The completed tasks which are not notified as recorded. */
+  private static final AtomicInteger unrecorded = new AtomicInteger();
+
+  private static final class Task implements AyncTask, Positioned, Recordable {
+    final long position;
+    volatile boolean recorded;
+
+    Task(long position) {
+      this.position = position;
+    }
+
+    @Override
+    public void exec() {
+      try {
+        Thread.sleep(1);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public void onSucceed() {
+      if (!recorded) unrecorded.incrementAndGet();
+    }
+
+    @Override
+    public void onFailure(Throwable th) {
+      if (!recorded) unrecorded.incrementAndGet();
+    }
+
+    @Override
+    public void recorded() {
+      recorded = true;
+    }
+
+    @Override
+    public String name() {
+      return String.valueOf(position);
+    }
+
+    @Override
+    public long position() {
+      return position;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package io.harborl.drip.task.core;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the {@linkplain ThreadPoolTaskExecutor} with an adaptive limit.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public class ThreadPoolTaskExecutorTest {
+
+  private static final int TASKS = 40;
+
+  /** Completes the callbacks a while later, just like an asynchronous client. */
+  private final ScheduledExecutorService io = Executors.newSingleThreadScheduledExecutor();
+
+  @After
+  public void tearDown() {
+    io.shutdownNow();
+  }
+
+  @Test
+  public void limitsCallbacksInFlight() throws InterruptedException {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor(GradientConcurrencyLimit.valueOf(3, 3, 3));
+    final AtomicInteger outstanding = new AtomicInteger();
+    final AtomicInteger maxOutstanding = new AtomicInteger();
+
+    List<AyncTask> tasks = new ArrayList<AyncTask>();
+    for (int i = 0; i < TASKS; ++i) {
+      tasks.add(new AbstractCallbackTask() {
+
+        @Override
+        public void exec(final Completion completion) {
+          final int now = outstanding.incrementAndGet();
+          for (int max; now > (max = maxOutstanding.get()) && !maxOutstanding.compareAndSet(max, now); ) { }
+
+          io.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+              outstanding.decrementAndGet();
+              completion.succeed();
+            }
+
+          }, 5, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void onSucceed() { }
+
+        @Override
+        public void onFailure(Throwable th) { }
+
+        @Override
+        public String name() {
+          return "callback";
+        }
+
+      });
+    }
+
+    CountDownLatch latch = new CountDownLatch(TASKS);
+    executor.submit(tasks, latch);
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    executor.shudownAndAwait(5, TimeUnit.SECONDS);
+
+    assertTrue("max outstanding: " + maxOutstanding.get(), maxOutstanding.get() <= 3);
+  }
+}
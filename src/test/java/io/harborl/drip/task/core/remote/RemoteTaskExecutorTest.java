@@ -0,0 +1,326 @@
+package io.harborl.drip.task.core.remote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.harborl.drip.task.core.AyncTask;
+import io.harborl.drip.task.core.TaskExecutor;
+import io.harborl.drip.task.core.ThreadPoolTaskExecutor;
+import io.harborl.drip.task.core.codec.TaskCodec;
+import io.harborl.drip.task.core.codec.TaskCodecs;
+import io.harborl.drip.task.core.codec.TaskView;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@linkplain RemoteTaskExecutor} with the {@linkplain RemoteWorker}s over the loopback.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public class RemoteTaskExecutorTest {
+
+  private static final String SECRET = "s3cret";
+
+  private final AtomicInteger succeeded = new AtomicInteger();
+  private final AtomicInteger failed = new AtomicInteger();
+
+  private final TaskCodecs codecs = TaskCodecs.valueOf(new TaskCodec<Job>() {
+
+    @Override
+    public int tag() {
+      return 1;
+    }
+
+    @Override
+    public Class<Job> type() {
+      return Job.class;
+    }
+
+    @Override
+    public long id(Job task) {
+      return task.id;
+    }
+
+    @Override
+    public int payloadSize(Job task) {
+      return 0;
+    }
+
+    @Override
+    public void encode(Job task, ByteBuffer buffer) {
+      if (task.id < 0) throw new IllegalStateException("Unencodable job - " + task.id);
+    }
+
+    @Override
+    public Job decode(TaskView view) {
+      return new Job(view.id());
+    }
+
+  });
+
+  private RemoteTaskExecutor executor;
+  private boolean shutdown;
+
+  private final List<RemoteWorker> workers = new ArrayList<RemoteWorker>();
+  private final List<GatedExecutor> workerExecutors = new ArrayList<GatedExecutor>();
+  private final List<IOException> workerFailures = new CopyOnWriteArrayList<IOException>();
+
+  @Before
+  public void setUp() throws IOException {
+    executor = RemoteTaskExecutor.valueOf(codecs, new ThreadPoolTaskExecutor(2), 0, SECRET);
+    executor.set("worker.timeout", "2000");
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    for (RemoteWorker worker : workers) worker.close();
+    for (GatedExecutor workerExecutor : workerExecutors) {
+      workerExecutor.gate.countDown();
+      workerExecutor.shudownAndAwait(5, TimeUnit.SECONDS);
+    }
+    if (!shutdown) executor.shudownAndAwait(5, TimeUnit.SECONDS);
+  }
+
+  /** Starts a worker on its own thread, whose tasks wait the gate if it is closed. */
+  private GatedExecutor startWorker(String secret, boolean gated, long delayMillis) {
+    final GatedExecutor workerExecutor = new GatedExecutor(gated, delayMillis);
+    final RemoteWorker worker = RemoteWorker.valueOf("localhost", executor.port(), secret, codecs, workerExecutor, 2000);
+    workers.add(worker);
+    workerExecutors.add(workerExecutor);
+
+    Thread thread = new Thread(new Runnable() {
+
+      @Override
+      public void run() {
+        try {
+          worker.run();
+        } catch (IOException e) {
+          workerFailures.add(e);
+        }
+      }
+
+    }, "[RemoteTaskExecutorTest] - worker");
+    thread.setDaemon(true);
+    thread.start();
+    return workerExecutor;
+  }
+
+  private CountDownLatch submit(long fromId, long toId) {
+    List<AyncTask> jobs = new ArrayList<AyncTask>();
+    for (long id = fromId; id <= toId; ++id) jobs.add(new Job(id));
+    CountDownLatch latch = new CountDownLatch(jobs.size());
+    executor.submit(jobs, latch);
+    return latch;
+  }
+
+  @Test
+  public void dispatchesToWorkers() throws InterruptedException {
+    executor.set("batch.size", "10");
+    executor.set("window", "20");
+    GatedExecutor first = startWorker(SECRET, false, 5);
+    GatedExecutor second = startWorker(SECRET, false, 5);
+    awaitInfo("workers: 2");
+
+    CountDownLatch latch = submit(1, 200);
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    assertEquals(200, succeeded.get());
+    assertEquals(0, failed.get());
+    assertTrue(first.received.get() > 0);
+    assertTrue(second.received.get() > 0);
+    assertEquals(200, first.received.get() + second.received.get());
+  }
+
+  @Test
+  public void reassignsTasksOfDroppedWorker() throws InterruptedException {
+    executor.set("batch.size", "5");
+    executor.set("window", "5");
+    GatedExecutor stuck = startWorker(SECRET, true, 0);
+    awaitInfo("workers: 1");
+
+    CountDownLatch latch = submit(1, 50);
+    awaitReceived(stuck, 5);
+    GatedExecutor healthy = startWorker(SECRET, false, 0);
+    awaitInfo("workers: 2");
+
+    /* The stuck worker drops in the middle of its batch, which runs on the other one. */
+    workers.get(0).close();
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    assertEquals(50, succeeded.get());
+    assertEquals(0, failed.get());
+    assertTrue(healthy.received.get() >= 50 - stuck.received.get() + 5);
+    assertTrue(executor.info(), executor.info().contains("reassigned: 5"));
+  }
+
+  @Test
+  public void failsIncompleteTasksOnShutdown() throws InterruptedException {
+    GatedExecutor stuck = startWorker(SECRET, true, 0);
+    awaitInfo("workers: 1");
+
+    CountDownLatch latch = submit(1, 10);
+    awaitReceived(stuck, 10);
+
+    shutdown = true;
+    executor.shudownAndAwait(300, TimeUnit.MILLISECONDS);
+    assertEquals(0, latch.getCount());
+    assertEquals(10, failed.get());
+    assertEquals(0, succeeded.get());
+  }
+
+  @Test
+  public void rejectsWorkerWithoutSecret() throws InterruptedException {
+    GatedExecutor intruder = startWorker("guess", false, 0);
+    awaitInfo("rejected: 1");
+
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (workerFailures.isEmpty() && System.nanoTime() < deadline) Thread.sleep(10);
+    assertEquals(1, workerFailures.size());
+    assertTrue(executor.info(), executor.info().contains("workers: 0"));
+
+    /* Nothing is sent to the rejected worker, the tasks run locally once no worker has joined for the timeout. */
+    CountDownLatch latch = submit(1, 5);
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    assertEquals(5, succeeded.get());
+    assertEquals(0, intruder.received.get());
+  }
+
+  @Test
+  public void runsUnencodableBatchLocally() throws InterruptedException {
+    GatedExecutor worker = startWorker(SECRET, false, 0);
+    awaitInfo("workers: 1");
+
+    CountDownLatch broken = submit(-1, -1);
+    assertTrue(broken.await(10, TimeUnit.SECONDS));
+    assertTrue(executor.info(), executor.info().contains("ran locally: 1"));
+
+    /* The dispatcher survives the failure, the later tasks still run on the worker. */
+    CountDownLatch latch = submit(1, 5);
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    assertEquals(6, succeeded.get());
+    assertEquals(5, worker.received.get());
+  }
+
+  /** Waits the executor's info contains the text, fails after a few seconds. */
+  private void awaitInfo(String text) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!executor.info().contains(text) && System.nanoTime() < deadline) Thread.sleep(10);
+    assertTrue(executor.info(), executor.info().contains(text));
+  }
+
+  /** Waits the worker has received the count of tasks, fails after a few seconds. */
+  private static void awaitReceived(GatedExecutor worker, int count) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (worker.received.get() < count && System.nanoTime() < deadline) Thread.sleep(10);
+    assertTrue("received " + worker.received.get(), worker.received.get() >= count);
+  }
+
+  /** A task whose callbacks run in the scheduler side, the exec() does nothing. */
+  final class Job implements AyncTask {
+    final long id;
+
+    Job(long id) {
+      this.id = id;
+    }
+
+    @Override
+    public void exec() { }
+
+    @Override
+    public void onSucceed() {
+      succeeded.incrementAndGet();
+    }
+
+    @Override
+    public void onFailure(Throwable th) {
+      failed.incrementAndGet();
+    }
+
+    @Override
+    public String name() {
+      return "job-" + id;
+    }
+  }
+
+  /** A worker's executor which counts the received tasks, whose tasks wait the gate or a delay. */
+  private static final class GatedExecutor implements TaskExecutor {
+    final TaskExecutor delegate = new ThreadPoolTaskExecutor(4);
+    final AtomicInteger received = new AtomicInteger();
+    final CountDownLatch gate;
+    final long delayMillis;
+
+    GatedExecutor(boolean gated, long delayMillis) {
+      this.gate = new CountDownLatch(gated ? 1 : 0);
+      this.delayMillis = delayMillis;
+    }
+
+    @Override
+    public void submit(List<AyncTask> tasks) {
+      received.addAndGet(tasks.size());
+      List<AyncTask> gated = new ArrayList<AyncTask>(tasks.size());
+      for (final AyncTask task : tasks) {
+        gated.add(new AyncTask() {
+
+          @Override
+          public void exec() {
+            try {
+              gate.await();
+              Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            task.exec();
+          }
+
+          @Override
+          public void onSucceed() {
+            task.onSucceed();
+          }
+
+          @Override
+          public void onFailure(Throwable th) {
+            task.onFailure(th);
+          }
+
+          @Override
+          public String name() {
+            return task.name();
+          }
+
+        });
+      }
+      delegate.submit(gated);
+    }
+
+    @Override
+    public void submit(List<AyncTask> tasks, CountDownLatch latch) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void shudownAndAwait(long timeout, TimeUnit unit) throws InterruptedException {
+      delegate.shudownAndAwait(timeout, unit);
+    }
+
+    @Override
+    public int size() {
+      return delegate.size();
+    }
+
+    @Override
+    public String info() {
+      return delegate.info();
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package io.harborl.drip.task.task.email;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.harborl.drip.task.core.Outcome;
+import io.harborl.drip.task.core.OutcomeRecorder;
+import io.harborl.drip.task.core.OutcomeSink;
+import io.harborl.drip.task.core.SpillingTaskExecutor;
+import io.harborl.drip.task.core.ThreadPoolTaskExecutor;
+import io.harborl.drip.task.core.codec.TaskCodecs;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests the rows of an {@linkplain EmailTaskChunk} recorded by an {@linkplain OutcomeRecorder}
+ * through the executors which read the chunks.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public class EmailTaskChunkTest {
+
+  private static final int ROWS = 1000;
+
+  @Test
+  public void recordsRowsFromCursors() throws InterruptedException {
+    final List<Outcome> outcomes = Collections.synchronizedList(new ArrayList<Outcome>());
+    OutcomeRecorder recorder = OutcomeRecorder.valueOf(new OutcomeSink() {
+
+      @Override
+      public void write(List<Outcome> batch) {
+        outcomes.addAll(batch);
+      }
+
+    }, 100, 1, TimeUnit.HOURS);
+    SpillingTaskExecutor executor = SpillingTaskExecutor.valueOf(
+        new ThreadPoolTaskExecutor(4), TaskCodecs.valueOf(EmailTaskCodec.INSTANCE), 10, 16L << 20);
+
+    EmailTaskChunk.Builder builder = EmailTaskChunk.builder(ROWS);
+    for (int id = 0; id < ROWS; ++id) {
+      builder.add(id, "user" + id + "@x.com", id % 2 == 0 ? "spring" : null);
+    }
+    CountDownLatch latch = new CountDownLatch(ROWS);
+    executor.submit(recorder.track(builder.build()), latch);
+
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    executor.shudownAndAwait(10, TimeUnit.SECONDS);
+    recorder.close();
+
+    assertEquals(ROWS, outcomes.size());
+    boolean[] seen = new boolean[ROWS];
+    for (Outcome outcome : outcomes) {
+      final int id = (int) outcome.id();
+      assertTrue(!seen[id]);
+      seen[id] = true;
+      assertEquals("user" + id + "@x.com", outcome.name());
+      if (id % 2 == 0) assertEquals("spring", outcome.tenant()); else assertNull(outcome.tenant());
+      assertNull(outcome.failure());
+    }
+  }
+
+  @Test
+  public void encodesCampaignAndStep() {
+    EmailTaskChunk chunk = EmailTaskChunk.builder(4)
+        .add(1, "a@x.com", "acme", "spring", "welcome")
+        .add(2, "b@x.com", null, "spring", "reminder")
+        .add(3, "c@x.com", "acme", null, "welcome")
+        .add(4, "d@x.com", null)
+        .build();
+    assertEquals("reminder", chunk.cursor().moveTo(1).step());
+
+    /* The absent fields in the middle and at the end of the payload decode to nulls. */
+    TaskCodecs codecs = TaskCodecs.valueOf(EmailTaskCodec.INSTANCE);
+    for (int row = 0; row < chunk.size(); ++row) {
+      ByteBuffer buffer = ByteBuffer.allocate(codecs.sizeOf(chunk.task(row)));
+      codecs.write(chunk.task(row), buffer);
+      ((Buffer) buffer).flip();
+      EmailTask task = (EmailTask) codecs.read(buffer);
+
+      assertEquals(chunk.id(row), task.id());
+      assertEquals(chunk.name(row), task.name());
+      assertEquals(chunk.tenant(row), task.tenant());
+      assertEquals(chunk.campaign(row), task.campaign());
+      assertEquals(chunk.step(row), task.step());
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package io.harborl.drip.task.task.email;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.harborl.drip.task.core.SimpleScheduler;
+import io.harborl.drip.task.core.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the settings of the {@linkplain EmailTaskStream}, which are reached through the scheduler
+ * just like the maintenance agent does.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public class EmailTaskStreamTest {
+
+  private SimpleScheduler scheduler;
+
+  @Before
+  public void setUp() {
+    scheduler = SimpleScheduler.valueOf(EmailTaskStream.newInstance(), new ThreadPoolTaskExecutor(1), 1, TimeUnit.HOURS);
+  }
+
+  @After
+  public void tearDown() {
+    scheduler.shutdown();
+  }
+
+  @Test
+  public void setsChunkAndFetchSize() {
+    assertTrue(scheduler.set("chunk.size", "500"));
+    assertTrue(scheduler.set("fetch.size", " 100 "));
+
+    assertEquals("500", scheduler.get("chunk.size"));
+    assertEquals("100", scheduler.get("fetch.size"));
+    assertEquals("500", scheduler.settings().get("chunk.size"));
+  }
+
+  @Test
+  public void rejectsInvalidValues() {
+    for (String[] setting : new String[][] {
+        { "chunk.size", "0" }, { "chunk.size", "abc" }, { "chunk.size", "1000001" },
+        { "fetch.size", "-1" }, { "fetch.size", "" } }) {
+      try {
+        scheduler.set(setting[0], setting[1]);
+        fail(setting[0] + " accepts " + setting[1]);
+      } catch (IllegalArgumentException expected) { }
+    }
+    assertEquals("1024", scheduler.get("chunk.size"));
+    assertEquals("1024", scheduler.get("fetch.size"));
+  }
+}
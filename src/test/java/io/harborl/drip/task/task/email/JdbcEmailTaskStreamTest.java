@@ -0,0 +1,233 @@
+package io.harborl.drip.task.task.email;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.harborl.drip.task.core.AyncTask;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@linkplain JdbcEmailTaskStream} against an in-memory H2 database.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public class JdbcEmailTaskStreamTest {
+
+  private static final String QUERY =
+      "SELECT id, recipient, customer FROM drip_email_task WHERE id > ? ORDER BY id";
+
+  private static final AtomicInteger databases = new AtomicInteger();
+
+  private JdbcDataSource h2;
+  private Connection keepAlive;
+
+  /** The statements' settings and the connections, which are recorded by the proxy. */
+  private volatile int fetchSize = -1;
+  private volatile int maxRows = -1;
+  private final AtomicInteger queries = new AtomicInteger();
+  private final AtomicInteger openConnections = new AtomicInteger();
+
+  private JdbcEmailTaskStream stream;
+
+  @Before
+  public void setUp() throws SQLException {
+    h2 = new JdbcDataSource();
+    h2.setURL("jdbc:h2:mem:drip" + databases.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+    keepAlive = h2.getConnection();
+    Statement statement = keepAlive.createStatement();
+    try {
+      statement.execute("CREATE TABLE drip_email_task (id BIGINT PRIMARY KEY, recipient VARCHAR(255), customer VARCHAR(64))");
+    } finally {
+      statement.close();
+    }
+  }
+
+  @After
+  public void tearDown() throws SQLException {
+    if (stream != null) stream.close();
+    keepAlive.close();
+  }
+
+  private void insert(long fromId, long toId) throws SQLException {
+    PreparedStatement statement = keepAlive.prepareStatement("INSERT INTO drip_email_task VALUES (?, ?, ?)");
+    try {
+      for (long id = fromId; id <= toId; ++id) {
+        statement.setLong(1, id);
+        statement.setString(2, "user" + id + "@x.com");
+        statement.setString(3, id % 2 == 0 ? "acme" : null);
+        statement.addBatch();
+      }
+      statement.executeBatch();
+    } finally {
+      statement.close();
+    }
+  }
+
+  /** Returns a data source which records the statements' settings and the open connections. */
+  private DataSource recording() {
+    return proxy(DataSource.class, h2);
+  }
+
+  private <T> T proxy(final Class<T> type, final Object target) {
+    return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type },
+        new InvocationHandler() {
+
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final String name = method.getName();
+            if (name.equals("setFetchSize")) fetchSize = (Integer) args[0];
+            if (name.equals("setMaxRows")) maxRows = (Integer) args[0];
+            if (name.equals("executeQuery")) queries.incrementAndGet();
+            if (name.equals("close") && type == Connection.class) openConnections.decrementAndGet();
+
+            Object result;
+            try {
+              result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+              throw e.getCause();
+            }
+
+            if (name.equals("getConnection")) {
+              openConnections.incrementAndGet();
+              return proxy(Connection.class, result);
+            }
+            if (name.equals("prepareStatement")) return proxy(PreparedStatement.class, result);
+            return result;
+          }
+
+        }));
+  }
+
+  private static long idOf(AyncTask task) {
+    return ((EmailTask) task).id();
+  }
+
+  @Test
+  public void pagesByKeysetAcrossChunks() throws SQLException {
+    insert(1, 25);
+    stream = JdbcEmailTaskStream.valueOf(recording(), QUERY, 10, 4);
+
+    long expected = 1;
+    for (int size : new int[] { 10, 10, 5 }) {
+      List<AyncTask> chunk = stream.nextChunk();
+      assertEquals(size, chunk.size());
+      for (AyncTask task : chunk) assertEquals(expected++, idOf(task));
+    }
+    assertTrue(stream.nextChunk().isEmpty());
+
+    /* The fresh rows are read after the last key, once the table grows again. */
+    insert(26, 28);
+    List<AyncTask> chunk = stream.nextChunk();
+    assertEquals(3, chunk.size());
+    assertEquals(26, idOf(chunk.get(0)));
+  }
+
+  @Test
+  public void resumesAfterKey() throws SQLException {
+    insert(1, 25);
+    stream = JdbcEmailTaskStream.valueOf(recording(), QUERY, 10, 4, 20);
+
+    List<AyncTask> chunk = stream.nextChunk();
+    assertEquals(5, chunk.size());
+    assertEquals(21, idOf(chunk.get(0)));
+  }
+
+  @Test
+  public void limitsPageAndFetchSize() throws Exception {
+    insert(1, 100);
+    stream = JdbcEmailTaskStream.valueOf(recording(), QUERY, 30, 8);
+
+    assertEquals(30, stream.nextChunk().size());
+    assertEquals(30, maxRows);
+    assertEquals(8, fetchSize);
+
+    /* The page prefetched already keeps the old settings, the next fetch takes the new ones. */
+    awaitTrue(2, queries);
+    stream.set("chunk.size", "7");
+    stream.set("fetch.size", "3");
+    assertEquals(30, stream.nextChunk().size());
+    assertEquals(7, stream.nextChunk().size());
+    assertEquals(7, maxRows);
+    assertEquals(3, fetchSize);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNegativeFetchSize() {
+    stream = JdbcEmailTaskStream.valueOf(recording(), QUERY, 10, 4);
+    stream.set("fetch.size", "-2");
+  }
+
+  @Test
+  public void prefetchesNextPage() throws Exception {
+    insert(1, 25);
+    stream = JdbcEmailTaskStream.valueOf(recording(), QUERY, 10, 4);
+
+    stream.nextChunk();
+    awaitTrue(2, queries);
+
+    /* The prefetched page is handed out without another query, which prefetches the third one. */
+    stream.nextChunk();
+    awaitTrue(3, queries);
+    assertEquals(3, queries.get());
+  }
+
+  @Test
+  public void readsTenantByLabel() throws SQLException {
+    insert(1, 2);
+    stream = JdbcEmailTaskStream.valueOf(recording(), QUERY, 10, 4);
+    assertNull(((EmailTask) stream.nextChunk().get(1)).tenant());
+    stream.close();
+
+    stream = JdbcEmailTaskStream.valueOf(recording(), QUERY, 10, 4).tenantColumn("customer");
+    List<AyncTask> chunk = stream.nextChunk();
+    assertNull(((EmailTask) chunk.get(0)).tenant());
+    assertEquals("acme", ((EmailTask) chunk.get(1)).tenant());
+  }
+
+  @Test
+  public void closeReleasesPrefetcher() throws Exception {
+    insert(1, 25);
+    stream = JdbcEmailTaskStream.valueOf(recording(), QUERY, 10, 4);
+    stream.nextChunk();
+
+    stream.close();
+    assertEquals(0, openConnections.get());
+    assertTrue(stream.nextChunk().isEmpty());
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (!thread.getName().startsWith("[JdbcEmailTaskStream] - prefetcher")) continue;
+      /* The terminated pool's thread might be still on its way out. */
+      thread.join(TimeUnit.SECONDS.toMillis(5));
+      assertTrue(!thread.isAlive());
+    }
+  }
+
+  /** Waits the counter reaches the expected value, fails after a few seconds. */
+  private static void awaitTrue(int expected, AtomicInteger counter) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (counter.get() < expected && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue("expected " + expected + " but " + counter.get(), counter.get() >= expected);
+  }
+}
@@ -0,0 +1,92 @@
+package io.harborl.drip.task.task.email;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.harborl.drip.task.core.AyncTask;
+import io.harborl.drip.task.core.TaskStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@linkplain JdbcSentHistoryConfirmer} confirms by the key of the {@linkplain SentHistoryTaskStream}.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public class JdbcSentHistoryConfirmerTest {
+
+  /** The parameters bound to the query, in the order of the calls. */
+  private final List<Object> bound = new ArrayList<Object>();
+
+  /** A data source whose query binds its parameters, and returns a row. */
+  private final DataSource dataSource = proxy(DataSource.class);
+
+  private <T> T proxy(Class<T> type) {
+    return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type },
+        new InvocationHandler() {
+
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            final String name = method.getName();
+            if (name.equals("getConnection")) return proxy(java.sql.Connection.class);
+            if (name.equals("prepareStatement")) return proxy(java.sql.PreparedStatement.class);
+            if (name.equals("executeQuery")) return proxy(java.sql.ResultSet.class);
+            if (name.equals("next")) return true;
+            if (name.startsWith("set")) bound.add(args[1]);
+            return null;
+          }
+
+        }));
+  }
+
+  @Test
+  public void confirmsByCampaignStepAndRecipient() throws IOException {
+    JdbcSentHistoryConfirmer confirmer = JdbcSentHistoryConfirmer.valueOf(dataSource, 
+        "SELECT 1 FROM drip_email_task WHERE campaign_id = ? AND step_id = ? AND recipient = ?", 
+        SentHistoryKey.CAMPAIGN_STEP_AND_RECIPIENT);
+
+    assertTrue(confirmer.sent(EmailTask.valueOf(42, "a@x.com", "acme", "spring", "welcome")));
+    assertEquals(3, bound.size());
+    assertEquals("spring", bound.get(0));
+    assertEquals("welcome", bound.get(1));
+    assertEquals("a@x.com", bound.get(2));
+  }
+
+  @Test
+  public void confirmsById() throws IOException {
+    JdbcSentHistoryConfirmer confirmer = JdbcSentHistoryConfirmer.valueOf(dataSource, 
+        "SELECT 1 FROM drip_email_task WHERE id = ?");
+
+    assertTrue(confirmer.sent(EmailTask.valueOf(42, "a@x.com", "spring")));
+    assertEquals(Collections.<Object>singletonList(42L), bound);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsConfirmerOfAnotherKey() throws IOException {
+    File file = File.createTempFile("sent-history", ".bloom");
+    file.delete();
+
+    SentHistoryTaskStream.valueOf(new TaskStream() {
+
+      @Override
+      public List<AyncTask> nextChunk() {
+        return Collections.emptyList();
+      }
+
+    }, SentHistoryFilter.valueOf(file, 1000, 0.001), SentHistoryKey.CAMPAIGN_STEP_AND_RECIPIENT,
+        JdbcSentHistoryConfirmer.valueOf(dataSource, "SELECT 1 FROM drip_email_task WHERE id = ?"));
+  }
+}
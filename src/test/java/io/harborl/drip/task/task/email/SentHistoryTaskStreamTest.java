@@ -0,0 +1,130 @@
+package io.harborl.drip.task.task.email;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.harborl.drip.task.core.AyncTask;
+import io.harborl.drip.task.core.TaskStream;
+import io.harborl.drip.task.core.Tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@linkplain SentHistoryTaskStream} suppresses the Drip mail's tasks sent already.
+ *
+ * @author Harbor Luo
+ * @since 0.0.2
+ *
+ */
+public class SentHistoryTaskStreamTest {
+
+  /** The chunks handed out by the underlying stream, one per fetch. */
+  private final LinkedList<List<AyncTask>> chunks = new LinkedList<List<AyncTask>>();
+
+  private final TaskStream underlying = new TaskStream() {
+
+    @Override
+    public List<AyncTask> nextChunk() {
+      return chunks.isEmpty() ? new ArrayList<AyncTask>() : chunks.poll();
+    }
+
+  };
+
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("sent-history", ".bloom");
+    file.delete();
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  /** Runs the tasks to success, returns their ids. */
+  private static List<Long> run(List<AyncTask> tasks) {
+    List<Long> ids = new ArrayList<Long>();
+    for (AyncTask task : tasks) {
+      task.exec();
+      task.onSucceed();
+      ids.add(((EmailTask) Tasks.unwrap(task)).id());
+    }
+    return ids;
+  }
+
+  @Test
+  public void passesNextStepOfCampaign() throws IOException {
+    SentHistoryTaskStream stream = SentHistoryTaskStream.valueOf(underlying, 
+        SentHistoryFilter.valueOf(file, 1000, 0.001), SentHistoryKey.CAMPAIGN_STEP_AND_RECIPIENT, null);
+
+    chunks.add(Arrays.<AyncTask>asList(EmailTask.valueOf(1, "a@x.com", "acme", "spring", "step-1")));
+    assertEquals(Arrays.asList(1L), run(stream.nextChunk()));
+
+    /* The same step is suppressed even in another id, the step 2 and the other campaign still pass. */
+    chunks.add(Arrays.<AyncTask>asList(
+        EmailTask.valueOf(2, "A@x.com", "acme", "spring", "step-1"),
+        EmailTask.valueOf(3, "a@x.com", "acme", "spring", "step-2"),
+        EmailTask.valueOf(4, "a@x.com", "acme", "autumn", "step-1")));
+    assertEquals(Arrays.asList(3L, 4L), run(stream.nextChunk()));
+
+    /* A task without campaign is keyed by its id, another one-off mail to the recipient passes. */
+    chunks.add(Arrays.<AyncTask>asList(EmailTask.valueOf(5, "a@x.com", "acme")));
+    assertEquals(Arrays.asList(5L), run(stream.nextChunk()));
+    chunks.add(Arrays.<AyncTask>asList(EmailTask.valueOf(5, "a@x.com", "acme"), EmailTask.valueOf(6, "a@x.com", "acme")));
+    assertEquals(Arrays.asList(6L), run(stream.nextChunk()));
+    stream.close();
+  }
+
+  @Test
+  public void snapshotsInBackground() throws Exception {
+    SentHistoryTaskStream stream = SentHistoryTaskStream.valueOf(underlying, 
+        SentHistoryFilter.valueOf(file, 1000, 0.001), SentHistoryKey.ID, null);
+    stream.set("sent.snapshot.interval", "1");
+
+    chunks.add(Arrays.<AyncTask>asList(EmailTask.valueOf(1, "a@x.com"), EmailTask.valueOf(2, "b@x.com")));
+    run(stream.nextChunk());
+
+    /* The snapshot is taken without another fetch. */
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!file.exists() && System.nanoTime() < deadline) Thread.sleep(10);
+    assertTrue(file.exists());
+    stream.close();
+
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (!thread.getName().startsWith("[SentHistoryTaskStream] - snapshotter")) continue;
+      thread.join(TimeUnit.SECONDS.toMillis(5));
+      assertTrue(!thread.isAlive());
+    }
+  }
+
+  @Test
+  public void closeTakesFinalSnapshot() throws IOException {
+    SentHistoryTaskStream stream = SentHistoryTaskStream.valueOf(underlying, 
+        SentHistoryFilter.valueOf(file, 1000, 0.001), SentHistoryKey.ID, null);
+
+    chunks.add(Arrays.<AyncTask>asList(EmailTask.valueOf(1, "a@x.com"), EmailTask.valueOf(2, "b@x.com")));
+    run(stream.nextChunk());
+    assertTrue(!file.exists());
+    stream.close();
+
+    /* The reloaded filter suppresses the tasks sent before close. */
+    SentHistoryFilter reloaded = SentHistoryFilter.valueOf(file, 1000, 0.001);
+    assertEquals(2, reloaded.size());
+    stream = SentHistoryTaskStream.valueOf(underlying, reloaded, SentHistoryKey.ID, null);
+    chunks.add(Arrays.<AyncTask>asList(EmailTask.valueOf(2, "b@x.com"), EmailTask.valueOf(3, "c@x.com")));
+    assertEquals(Arrays.asList(3L), run(stream.nextChunk()));
+    stream.close();
+  }
+}